@@ -1,9 +1,9 @@
 package com.ge.model;
 
-import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 import java.io.Serializable;
+import java.util.HashMap;
 import java.util.Map;
 
 public class ImageProcessingMessage implements Serializable {
@@ -18,10 +18,30 @@ public class ImageProcessingMessage implements Serializable {
     @JsonProperty("retry_count")
     private int retryCount;
 
+    /**
+     * Hex SHA-256 of the raw image bytes, computed by the producer once the file is ingested, or {@code null} when
+     * {@code producer.ingest.hash} is off.
+     */
+    @JsonProperty("content_hash")
+    private String contentHash;
+
+    /**
+     * Location of the submitted file when the producer referenced it in place instead of bringing it into the raw
+     * folder. Stages that read the raw image read this file instead.
+     */
+    @JsonProperty("source_path")
+    private String sourcePath;
+
     @JsonProperty("process_status")
-    @JsonIgnore
     private ProcessStatus status;
 
+    /**
+     * Location of the output written by each completed stage, keyed by the status the stage sets.
+     * Lets a retried message resume after the last stage whose output still exists.
+     */
+    @JsonProperty("stage_outputs")
+    private Map<String, String> stageOutputs;
+
     @JsonProperty("delivery_timestamp")
     private String deliveryTimestamp;
 
@@ -54,6 +74,22 @@ public class ImageProcessingMessage implements Serializable {
         this.retryCount = retryCount;
     }
 
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    public void setContentHash(String contentHash) {
+        this.contentHash = contentHash;
+    }
+
+    public String getSourcePath() {
+        return sourcePath;
+    }
+
+    public void setSourcePath(String sourcePath) {
+        this.sourcePath = sourcePath;
+    }
+
     public String getImageFormat() {
         return imageFormat;
     }
@@ -94,6 +130,36 @@ public class ImageProcessingMessage implements Serializable {
         this.metadata = metadata;
     }
 
+    public Map<String, String> getStageOutputs() {
+        return stageOutputs;
+    }
+
+    public void setStageOutputs(Map<String, String> stageOutputs) {
+        this.stageOutputs = stageOutputs;
+    }
+
+    public void recordStageOutput(ProcessStatus stage, String location) {
+        recordStageOutput(stage.name(), location);
+    }
+
+    /**
+     * Records the output of a stage that is not one of the fixed statuses, such as a stage of a pipeline graph.
+     */
+    public void recordStageOutput(String stage, String location) {
+        if (stageOutputs == null) {
+            stageOutputs = new HashMap<>();
+        }
+        stageOutputs.put(stage, location);
+    }
+
+    public String getStageOutput(ProcessStatus stage) {
+        return getStageOutput(stage.name());
+    }
+
+    public String getStageOutput(String stage) {
+        return stageOutputs == null ? null : stageOutputs.get(stage);
+    }
+
     public void incrementRetryCount() {
         this.setRetryCount(this.retryCount + 1);
     }
@@ -0,0 +1,78 @@
+package com.ge.imageprocessingbenchmarks;
+
+import com.ge.imageprocessorconsumer.codec.EncodeOptions;
+import com.ge.imageprocessorconsumer.codec.ImageCodecs;
+import com.ge.imageprocessorconsumer.codec.PngFilter;
+import com.ge.imageprocessorconsumer.imaging.ImageBufferPool;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encode time against output size for the encoder settings exposed through {@link EncodeOptions}. The size of the
+ * encoded image is logged once per setting, ahead of its iterations.
+ * <p>
+ * Settings read {@code png <encoder> <level> [filter]} or {@code jpg <quality> [optimized]}; {@code png imageio 4}
+ * is what the consumer wrote before the codec layer.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CodecBenchmark {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CodecBenchmark.class);
+
+    @Param({"1000"})
+    public int size;
+
+    @Param({"png imageio 4", "png fast 4 ADAPTIVE", "png fast 1 SUB", "png fast 6 PAETH", "png fast 9 ADAPTIVE",
+            "jpg 75", "jpg 90", "jpg 90 optimized"})
+    public String settings;
+
+    private ImageCodecs codecs;
+    private ImageBufferPool bufferPool;
+    private BufferedImage source;
+    private String format;
+    private EncodeOptions options;
+
+    @Setup
+    public void setUp() throws IOException {
+        String[] parts = settings.split(" ");
+        format = parts[0];
+        if (format.equals("png")) {
+            codecs = new ImageCodecs(parts[1], 75, false, 4, "ADAPTIVE", 80);
+            PngFilter filter = parts.length > 3 ? PngFilter.fromName(parts[3]) : null;
+            options = new EncodeOptions(null, null, Integer.parseInt(parts[2]), filter, null);
+        } else {
+            codecs = ImageCodecs.defaults();
+            options = new EncodeOptions(Integer.parseInt(parts[1]), parts.length > 2, null, null, null);
+        }
+        bufferPool = new ImageBufferPool(128 << 20);
+        source = ImageCorpus.generate(size, size);
+        LOGGER.info("{} at {}x{}: {} bytes", settings, size, size, encode());
+    }
+
+    @Benchmark
+    public int encode() throws IOException {
+        try (ImageBufferPool.EncodeBuffer out = bufferPool.encodeBuffer(size * size)) {
+            codecs.encode(source, format, options, out);
+            return out.size();
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.ge.imageprocessingbenchmarks;
+
+import com.ge.imageprocessorconsumer.cache.ResultCache;
+import com.ge.imageprocessorconsumer.codec.ImageCodecs;
+import com.ge.imageprocessorconsumer.imaging.GrayscaleKernel;
+import com.ge.imageprocessorconsumer.imaging.ImageBufferPool;
+import com.ge.imageprocessorconsumer.imaging.ResizeEngine;
+import com.ge.imageprocessorconsumer.imaging.RowBandExecutor;
+import com.ge.imageprocessorconsumer.metrics.PipelineMetrics;
+import com.ge.imageprocessorconsumer.processor.GrayscaleProcessor;
+import com.ge.imageprocessorconsumer.processor.ImageProcessingPipeline;
+import com.ge.imageprocessorconsumer.processor.PipelineGraphRunner;
+import com.ge.imageprocessorconsumer.processor.ResizeProcessor;
+import com.ge.imageprocessorconsumer.processor.ValidationProcessor;
+import com.ge.imageprocessorconsumer.reader.LocalFileStorage;
+
+import java.util.Optional;
+
+/**
+ * Wires the consumer's processing beans by hand, with the defaults from application.properties,
+ * so benchmarks measure the chain without a Spring context or Kafka. The result cache is off so that every
+ * invocation does the full work.
+ */
+public final class ConsumerFixture implements AutoCloseable {
+
+    public final ImageCodecs codecs;
+    public final LocalFileStorage storage;
+    public final RowBandExecutor bands;
+    public final ImageBufferPool bufferPool;
+    public final ResizeEngine resizeEngine;
+    public final GrayscaleKernel grayscaleKernel;
+    public final GrayscaleProcessor grayscaleProcessor;
+    public final PipelineGraphRunner graphRunner;
+    public final ImageProcessingPipeline pipeline;
+
+    public ConsumerFixture(boolean inMemory) {
+        this.codecs = ImageCodecs.defaults();
+        this.bands = new RowBandExecutor(0);
+        this.bufferPool = new ImageBufferPool(128 << 20);
+        this.storage = new LocalFileStorage(codecs, bufferPool, 1 << 20, 16, false);
+        this.resizeEngine = new ResizeEngine(bands, bufferPool);
+        this.grayscaleKernel = new GrayscaleKernel(bands);
+        ValidationProcessor validationProcessor = new ValidationProcessor(storage, 10, 2000, false, 10000);
+        ResizeProcessor resizeProcessor = new ResizeProcessor(storage, resizeEngine,
+                1000, 1000, "LANCZOS", "FIT", false, true, false, 4_000_000, 32 << 20, true, 2.0,
+                ResizeProcessor.DEFAULT_RENDITIONS);
+        this.grayscaleProcessor = new GrayscaleProcessor(storage, grayscaleKernel, "FAST", "BT601");
+        PipelineMetrics metrics = PipelineMetrics.unpublished();
+        this.graphRunner = new PipelineGraphRunner(validationProcessor, resizeProcessor, grayscaleProcessor, storage,
+                bufferPool, metrics, "", PipelineGraphRunner.CHAIN, 0, 2000);
+        this.pipeline = new ImageProcessingPipeline(validationProcessor, resizeProcessor, grayscaleProcessor,
+                graphRunner, storage, new ResultCache(false, "", 0), Optional.empty(), metrics, bufferPool, codecs,
+                inMemory);
+    }
+
+    @Override
+    public void close() {
+        graphRunner.shutdown();
+        bands.shutdown();
+    }
+}
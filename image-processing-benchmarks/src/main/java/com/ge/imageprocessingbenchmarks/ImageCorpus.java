@@ -0,0 +1,90 @@
+package com.ge.imageprocessingbenchmarks;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * Deterministic, photo-like test images laid out the way the consumer expects them on disk:
+ * {@code <base>/raw/<imageId>.<format>}.
+ */
+public final class ImageCorpus {
+
+    /** Square sizes spanning the 10 - 2000 px range that ValidationProcessor accepts. */
+    public static final int[] SIZES = {10, 100, 500, 1000, 2000};
+
+    public static final String RAW_FOLDER = "raw";
+
+    private ImageCorpus() {
+    }
+
+    /**
+     * Renders gradients, shapes and sensor-like noise so encoders see realistic entropy.
+     */
+    public static BufferedImage generate(int width, int height) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
+        Graphics2D g = image.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g.setPaint(new GradientPaint(0, 0, new Color(30, 60, 120), width, height, new Color(220, 180, 90)));
+        g.fillRect(0, 0, width, height);
+        Random random = new Random(width * 31L + height);
+        for (int i = 0; i < 40; i++) {
+            g.setColor(new Color(random.nextInt(256), random.nextInt(256), random.nextInt(256), 160));
+            int r = Math.max(1, random.nextInt(Math.max(1, Math.min(width, height) / 3)));
+            g.fillOval(random.nextInt(width), random.nextInt(height), r, r);
+        }
+        g.dispose();
+        byte[] data = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+        for (int i = 0; i < data.length; i++) {
+            int v = (data[i] & 0xFF) + random.nextInt(9) - 4;
+            data[i] = (byte) Math.max(0, Math.min(255, v));
+        }
+        return image;
+    }
+
+    /**
+     * Writes a generated square image into {@code <base>/raw} and returns its path.
+     */
+    public static Path write(Path base, String imageId, String format, int size) {
+        try {
+            Path raw = Files.createDirectories(base.resolve(RAW_FOLDER));
+            Path file = raw.resolve(imageId + "." + format);
+            if (!ImageIO.write(generate(size, size), format, file.toFile())) {
+                throw new IllegalArgumentException("No ImageIO writer for " + format);
+            }
+            return file;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static Path createBaseDirectory() {
+        try {
+            return Files.createTempDirectory("image-corpus");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static void delete(Path base) {
+        if (base == null) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(base)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.ge.imageprocessingbenchmarks;
+
+import com.ge.imageprocessorconsumer.imaging.GrayscaleKernel;
+import com.ge.imageprocessorconsumer.imaging.ResampleFilter;
+import com.ge.imageprocessorconsumer.imaging.ResizeMode;
+import com.ge.imageprocessorconsumer.imaging.ResizeOptions;
+import com.ge.imageprocessorconsumer.processor.GrayscaleProcessor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.awt.image.BufferedImage;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory cost of the grayscale filter and the resize path, without any file I/O.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ImagingBenchmark {
+
+    @Param({"10", "100", "500", "1000", "2000"})
+    public int size;
+
+    @Param({"LANCZOS"})
+    public String filter;
+
+    private ConsumerFixture fixture;
+    private BufferedImage source;
+    private BufferedImage grayDestination;
+    private ResizeOptions resizeOptions;
+    private Map<String, Object> fastMetadata;
+    private Map<String, Object> accurateMetadata;
+
+    @Setup
+    public void setUp() {
+        fixture = new ConsumerFixture(true);
+        source = ImageCorpus.generate(size, size);
+        grayDestination = new BufferedImage(size, size, BufferedImage.TYPE_BYTE_GRAY);
+        // Half the source size so every size actually resamples
+        int target = Math.max(1, size / 2);
+        resizeOptions = new ResizeOptions(target, target, ResampleFilter.fromName(filter), ResizeMode.FIT, false);
+        fastMetadata = Map.of(GrayscaleProcessor.MODE_KEY, "FAST");
+        accurateMetadata = Map.of(GrayscaleProcessor.MODE_KEY, "COLOR_ACCURATE");
+    }
+
+    @TearDown
+    public void tearDown() {
+        fixture.close();
+    }
+
+    @Benchmark
+    public BufferedImage grayscaleFast() {
+        return fixture.grayscaleProcessor.applyGrayscaleFilter(source, fastMetadata);
+    }
+
+    @Benchmark
+    public BufferedImage grayscaleFastReusedDestination() {
+        return fixture.grayscaleKernel.apply(source, grayDestination, GrayscaleKernel.Mode.FAST, GrayscaleKernel.Weights.BT601);
+    }
+
+    @Benchmark
+    public BufferedImage grayscaleColorAccurate() {
+        return fixture.grayscaleProcessor.applyGrayscaleFilter(source, accurateMetadata);
+    }
+
+    @Benchmark
+    public BufferedImage resize() {
+        return fixture.resizeEngine.resize(source, resizeOptions);
+    }
+}
@@ -0,0 +1,77 @@
+package com.ge.imageprocessingbenchmarks;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Local S3 stand-in that answers path-style GET and HEAD requests for preloaded objects after a fixed delay,
+ * to simulate a distant bucket. Every request gets its own thread so the stub never limits concurrency.
+ */
+final class LatencyS3Stub implements AutoCloseable {
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "s3-stub");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Map<String, byte[]> objects = new ConcurrentHashMap<>();
+    private final long latencyMs;
+
+    LatencyS3Stub(long latencyMs) throws IOException {
+        this.latencyMs = latencyMs;
+        this.server = HttpServer.create(new InetSocketAddress("localhost", 0), 1024);
+        server.createContext("/", this::handle);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    URI endpoint() {
+        return URI.create("http://localhost:" + server.getAddress().getPort());
+    }
+
+    void put(String bucket, String key, byte[] bytes) {
+        objects.put("/" + bucket + "/" + key, bytes);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            exchange.getRequestBody().readAllBytes();
+            Thread.sleep(latencyMs);
+            byte[] body = objects.get(exchange.getRequestURI().getPath());
+            String method = exchange.getRequestMethod();
+            if (body == null || !("GET".equals(method) || "HEAD".equals(method))) {
+                exchange.sendResponseHeaders(body == null ? 404 : 405, -1);
+                return;
+            }
+            exchange.getResponseHeaders().add("ETag", "\"" + Integer.toHexString(body.length) + "\"");
+            exchange.getResponseHeaders().add("Content-Type", "application/octet-stream");
+            if ("HEAD".equals(method)) {
+                exchange.getResponseHeaders().add("Content-Length", Integer.toString(body.length));
+                exchange.sendResponseHeaders(200, -1);
+                return;
+            }
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
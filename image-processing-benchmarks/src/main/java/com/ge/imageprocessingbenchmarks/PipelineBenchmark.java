@@ -0,0 +1,69 @@
+package com.ge.imageprocessingbenchmarks;
+
+import com.ge.model.ImageProcessingMessage;
+import com.ge.model.ProcessStatus;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The full START -> VALIDATED -> RESIZED -> GRAY_SCALED chain against local files,
+ * in both in-memory and per-stage file round-trip modes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+public class PipelineBenchmark {
+
+    private static final String IMAGE_ID = "pipeline-benchmark";
+
+    @Param({"jpg", "png"})
+    public String format;
+
+    @Param({"10", "100", "500", "1000", "2000"})
+    public int size;
+
+    @Param({"true", "false"})
+    public boolean inMemory;
+
+    private ConsumerFixture fixture;
+    private Path base;
+
+    @Setup
+    public void setUp() {
+        fixture = new ConsumerFixture(inMemory);
+        base = ImageCorpus.createBaseDirectory();
+        ImageCorpus.write(base, IMAGE_ID, format, size);
+    }
+
+    @TearDown
+    public void tearDown() {
+        fixture.close();
+        ImageCorpus.delete(base);
+    }
+
+    @Benchmark
+    public ImageProcessingMessage processChain() throws Exception {
+        ImageProcessingMessage message = new ImageProcessingMessage();
+        message.setImageId(IMAGE_ID);
+        message.setImageFormat(format);
+        message.setS3Path(base.toString());
+        message.setStatus(ProcessStatus.START);
+        return fixture.pipeline.execute(message);
+    }
+}
@@ -0,0 +1,78 @@
+package com.ge.imageprocessingbenchmarks;
+
+import com.ge.imageprocessorconsumer.reader.ImageMetadata;
+import com.ge.imageprocessorconsumer.reader.LocalFileStorage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link LocalFileStorage} decode, header probe and encode cost per format and size.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StorageBenchmark {
+
+    private static final String IMAGE_ID = "storage-benchmark";
+
+    @Param({"jpg", "png"})
+    public String format;
+
+    @Param({"10", "100", "500", "1000", "2000"})
+    public int size;
+
+    private LocalFileStorage storage;
+    private Path base;
+    private String rawFolder;
+    private String outputFolder;
+    private BufferedImage decoded;
+
+    @Setup
+    public void setUp() throws IOException {
+        storage = new LocalFileStorage();
+        base = ImageCorpus.createBaseDirectory();
+        Path file = ImageCorpus.write(base, IMAGE_ID, format, size);
+        rawFolder = file.getParent().toString();
+        outputFolder = base.resolve("out").toString();
+        decoded = ImageIO.read(file.toFile());
+    }
+
+    @TearDown
+    public void tearDown() {
+        ImageCorpus.delete(base);
+    }
+
+    @Benchmark
+    public BufferedImage readImage() throws IOException {
+        return storage.readImage(rawFolder, storage.fileName(IMAGE_ID, format));
+    }
+
+    @Benchmark
+    public ImageMetadata probeImage() throws IOException {
+        return storage.probeImage(rawFolder, storage.fileName(IMAGE_ID, format));
+    }
+
+    @Benchmark
+    public void writeImage() throws IOException {
+        storage.writeImage(decoded, outputFolder, storage.fileName(IMAGE_ID, format), format);
+    }
+}
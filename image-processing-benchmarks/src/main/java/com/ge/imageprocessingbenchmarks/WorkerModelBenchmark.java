@@ -0,0 +1,127 @@
+package com.ge.imageprocessingbenchmarks;
+
+import com.ge.imageprocessorconsumer.codec.ImageCodecs;
+import com.ge.imageprocessorconsumer.consumer.ImageProcessingWorkerPool;
+import com.ge.imageprocessorconsumer.imaging.GrayscaleKernel;
+import com.ge.imageprocessorconsumer.imaging.ImageBufferPool;
+import com.ge.imageprocessorconsumer.imaging.RowBandExecutor;
+import com.ge.imageprocessorconsumer.reader.DirectBufferPool;
+import com.ge.imageprocessorconsumer.reader.S3FileStorage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.http.nio.netty.NettyNioAsyncHttpClient;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Messages per second of the worker pool when every message fetches its source from a slow S3 and then runs the
+ * grayscale kernel: platform lanes (one per core) against one virtual thread per message. The virtual-thread runs
+ * need Java 21, build with {@code -Pjava21} and run the benchmark jar on a Java 21 JVM.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class WorkerModelBenchmark {
+
+    private static final int MESSAGES = 512;
+    private static final String BUCKET = "benchmark";
+
+    @Param({"false", "true"})
+    public boolean virtualThreads;
+
+    @Param({"20", "100"})
+    public int s3LatencyMs;
+
+    @Param({"500"})
+    public int size;
+
+    private LatencyS3Stub stub;
+    private S3AsyncClient s3Client;
+    private S3FileStorage storage;
+    private ImageProcessingWorkerPool pool;
+    private RowBandExecutor bands;
+    private GrayscaleKernel grayscaleKernel;
+
+    @Setup
+    public void setUp() throws IOException {
+        ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+        ImageIO.write(ImageCorpus.generate(size, size), "jpg", encoded);
+        stub = new LatencyS3Stub(s3LatencyMs);
+        stub.put(BUCKET, ImageCorpus.RAW_FOLDER + "/source.jpg", encoded.toByteArray());
+
+        s3Client = S3AsyncClient.builder()
+                .region(Region.US_EAST_1)
+                .httpClient(NettyNioAsyncHttpClient.builder()
+                        .maxConcurrency(MESSAGES)
+                        .connectionAcquisitionTimeout(Duration.ofSeconds(60))
+                        .build())
+                .endpointOverride(stub.endpoint())
+                .forcePathStyle(true)
+                .credentialsProvider(StaticCredentialsProvider.create(AwsBasicCredentials.create("key", "secret")))
+                .build();
+        storage = new S3FileStorage(s3Client, new DirectBufferPool(1 << 20, 4), new ImageBufferPool(1 << 27), BUCKET, 65536,
+                ImageCodecs.defaults());
+        // Same in-flight limit for both models, so only the threads running the messages differ
+        pool = new ImageProcessingWorkerPool(0, MESSAGES, virtualThreads);
+        bands = new RowBandExecutor(0);
+        grayscaleKernel = new GrayscaleKernel(bands);
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdown();
+        bands.shutdown();
+        s3Client.close();
+        stub.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MESSAGES)
+    public void fetchAndProcess(Blackhole blackhole) throws Exception {
+        CountDownLatch done = new CountDownLatch(MESSAGES);
+        AtomicReference<Exception> failure = new AtomicReference<>();
+        for (int i = 0; i < MESSAGES; i++) {
+            pool.submit("image-" + i, () -> {
+                try {
+                    BufferedImage image = storage.readImage(ImageCorpus.RAW_FOLDER, "source.jpg");
+                    blackhole.consume(grayscaleKernel.apply(image, null,
+                            GrayscaleKernel.Mode.FAST, GrayscaleKernel.Weights.BT601));
+                } catch (IOException e) {
+                    failure.compareAndSet(null, e);
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+    }
+}
@@ -3,12 +3,20 @@ package com.ge.imageprocessorconsumer.accessor;
 
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.http.async.SdkAsyncHttpClient;
+import software.amazon.awssdk.http.nio.netty.NettyNioAsyncHttpClient;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.S3AsyncClientBuilder;
 import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
 import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
 import org.springframework.beans.factory.annotation.Value;
 
+import java.net.URI;
+import java.time.Duration;
+
 @Configuration
 public class S3Accessor {
 
@@ -18,13 +26,41 @@ public class S3Accessor {
     @Value("${amazon.secretKey}")
     private String secretKey;
 
-    @Bean
-    public S3Client amazonS3() {
-        AwsCredentialsProvider credentialsProvider = DefaultCredentialsProvider.builder().profileName("default").build();
-        return S3Client.builder()
-                .region(Region.US_EAST_1)
-                .credentialsProvider(credentialsProvider)
+    /**
+     * S3-compatible endpoint such as a local stand-in; empty for AWS.
+     */
+    @Value("${amazon.s3.endpoint:}")
+    private String endpoint;
+
+    @Value("${amazon.s3.max-connections:64}")
+    private int maxConnections;
+
+    @Value("${amazon.s3.connection-acquire-timeout-ms:10000}")
+    private long connectionAcquireTimeoutMs;
+
+    /**
+     * Async client on a bounded Netty connection pool; requests beyond {@code max-connections} wait for a
+     * connection instead of opening new sockets.
+     */
+    @Bean(destroyMethod = "close")
+    public S3AsyncClient amazonS3() {
+        SdkAsyncHttpClient httpClient = NettyNioAsyncHttpClient.builder()
+                .maxConcurrency(maxConnections)
+                .connectionAcquisitionTimeout(Duration.ofMillis(connectionAcquireTimeoutMs))
                 .build();
+        S3AsyncClientBuilder builder = S3AsyncClient.builder()
+                .region(Region.US_EAST_1)
+                .httpClient(httpClient);
+        if (endpoint.isBlank()) {
+            AwsCredentialsProvider credentialsProvider = DefaultCredentialsProvider.builder().profileName("default").build();
+            builder.credentialsProvider(credentialsProvider);
+        } else {
+            // Local stand-ins serve buckets by path and accept the configured static keys
+            builder.endpointOverride(URI.create(endpoint))
+                    .forcePathStyle(true)
+                    .credentialsProvider(StaticCredentialsProvider.create(AwsBasicCredentials.create(accessKey, secretKey)));
+        }
+        return builder.build();
     }
 
 }
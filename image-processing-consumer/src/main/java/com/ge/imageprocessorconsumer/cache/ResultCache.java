@@ -0,0 +1,164 @@
+package com.ge.imageprocessorconsumer.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.UUID;
+
+/**
+ * Index of finished pipeline outputs keyed by the source content hash and the parameters the pipeline ran with.
+ * <p>
+ * Entries map each stage to the location of its output. The most recently used entries are kept in memory and
+ * every entry is also written as a small file under {@code cache.index-dir}, so the index survives restarts and
+ * is shared by consumers on the same volume. Outputs are local files; they are reused by hard link, or by copy
+ * when the link crosses file systems.
+ */
+@Component
+public class ResultCache {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ResultCache.class);
+
+    private final boolean enabled;
+    private final Path indexDir;
+    private final Map<String, Map<String, String>> recent;
+
+    @Autowired
+    public ResultCache(@Value("${cache.enabled:true}") boolean enabled,
+                       @Value("${cache.index-dir:${local.baseFilePath}/cache-index}") String indexDir,
+                       @Value("${cache.max-entries:10000}") int maxEntries) {
+        this.enabled = enabled;
+        this.indexDir = Paths.get(indexDir);
+        this.recent = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Map<String, String>> eldest) {
+                return size() > maxEntries;
+            }
+        });
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Hex SHA-256 over the parts, each terminated so that {@code ("ab", "c")} and {@code ("a", "bc")} differ.
+     */
+    public static String key(String... parts) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (String part : parts) {
+                digest.update(String.valueOf(part).getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * Stage outputs recorded for the key, or {@code null} on a miss.
+     */
+    public Map<String, String> get(String key) {
+        if (!enabled) {
+            return null;
+        }
+        Map<String, String> outputs = recent.get(key);
+        if (outputs != null) {
+            return outputs;
+        }
+        Path entry = entryPath(key);
+        try (InputStream in = Files.newInputStream(entry)) {
+            Properties properties = new Properties();
+            properties.load(in);
+            outputs = new HashMap<>();
+            for (String stage : properties.stringPropertyNames()) {
+                outputs.put(stage, properties.getProperty(stage));
+            }
+            recent.put(key, outputs);
+            return outputs;
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            LOGGER.warn("Ignoring unreadable cache index entry {}: {}", entry, e.getMessage());
+            return null;
+        }
+    }
+
+    public void put(String key, Map<String, String> outputs) {
+        if (!enabled || outputs == null || outputs.isEmpty()) {
+            return;
+        }
+        Map<String, String> copy = Map.copyOf(outputs);
+        recent.put(key, copy);
+        Path entry = entryPath(key);
+        try {
+            Files.createDirectories(entry.getParent());
+            Properties properties = new Properties();
+            properties.putAll(copy);
+            // Written aside and renamed so readers never see a partial entry
+            Path temp = Files.createTempFile(entry.getParent(), key, ".tmp");
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                properties.store(out, null);
+            }
+            Files.move(temp, entry, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            LOGGER.warn("Failed to write cache index entry {}: {}", entry, e.getMessage());
+        }
+    }
+
+    public void invalidate(String key) {
+        recent.remove(key);
+        try {
+            Files.deleteIfExists(entryPath(key));
+        } catch (IOException e) {
+            LOGGER.warn("Failed to delete cache index entry for {}: {}", key, e.getMessage());
+        }
+    }
+
+    /**
+     * Makes {@code target} a hard link to {@code source}, falling back to a copy where links are not possible.
+     */
+    public static void link(Path source, Path target) throws IOException {
+        Files.createDirectories(target.getParent());
+        Files.deleteIfExists(target);
+        try {
+            Files.createLink(target, source);
+        } catch (NoSuchFileException e) {
+            throw e;
+        } catch (UnsupportedOperationException | FileSystemException e) {
+            // Copied under a temporary name so the target never shows a partial file
+            Path temp = target.resolveSibling("." + target.getFileName() + "." + UUID.randomUUID() + ".tmp");
+            try {
+                Files.copy(source, temp);
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        }
+    }
+
+    private Path entryPath(String key) {
+        return indexDir.resolve(key.substring(0, 2)).resolve(key);
+    }
+}
@@ -0,0 +1,130 @@
+package com.ge.imageprocessorconsumer.codec;
+
+import com.ge.imageprocessorconsumer.exception.ErrorCode;
+import com.ge.imageprocessorconsumer.exception.ImageProcessingException;
+
+import java.util.Map;
+
+/**
+ * Encoder settings for writing one image. Unset values ({@code null}) are taken from the defaults configured on
+ * {@link ImageCodecs}, so per-message overrides read from {@code ImageProcessingMessage.metadata} only carry the
+ * entries the message sets.
+ */
+public final class EncodeOptions {
+
+    public static final String JPEG_QUALITY_KEY = "jpeg_quality";
+    public static final String JPEG_OPTIMIZE_HUFFMAN_KEY = "jpeg_optimize_huffman";
+    public static final String PNG_COMPRESSION_LEVEL_KEY = "png_compression_level";
+    public static final String PNG_FILTER_KEY = "png_filter";
+    public static final String WEBP_QUALITY_KEY = "webp_quality";
+
+    private static final EncodeOptions NONE = new EncodeOptions(null, null, null, null, null);
+
+    private final Integer jpegQuality;
+    private final Boolean jpegOptimizeHuffman;
+    private final Integer pngCompressionLevel;
+    private final PngFilter pngFilter;
+    private final Integer webpQuality;
+
+    /**
+     * @param jpegQuality         JPEG quality from 1 to 100
+     * @param jpegOptimizeHuffman whether to compute Huffman tables per image instead of using the standard ones
+     * @param pngCompressionLevel deflate level from 0 (stored) to 9
+     * @param pngFilter           row filter of the PNG encoder
+     * @param webpQuality         WebP quality from 1 to 100, for a WebP writer plugin
+     */
+    public EncodeOptions(Integer jpegQuality, Boolean jpegOptimizeHuffman, Integer pngCompressionLevel,
+                         PngFilter pngFilter, Integer webpQuality) {
+        checkRange("JPEG quality", jpegQuality, 1, 100);
+        checkRange("PNG compression level", pngCompressionLevel, 0, 9);
+        checkRange("WebP quality", webpQuality, 1, 100);
+        this.jpegQuality = jpegQuality;
+        this.jpegOptimizeHuffman = jpegOptimizeHuffman;
+        this.pngCompressionLevel = pngCompressionLevel;
+        this.pngFilter = pngFilter;
+        this.webpQuality = webpQuality;
+    }
+
+    /**
+     * No overrides: every value comes from the configured defaults.
+     */
+    public static EncodeOptions none() {
+        return NONE;
+    }
+
+    /**
+     * The encoder entries of a message's metadata.
+     */
+    public static EncodeOptions fromMetadata(Map<String, Object> metadata) {
+        if (metadata == null || metadata.isEmpty()) {
+            return NONE;
+        }
+        try {
+            return new EncodeOptions(
+                    intValue(metadata.get(JPEG_QUALITY_KEY)),
+                    metadata.containsKey(JPEG_OPTIMIZE_HUFFMAN_KEY)
+                            ? Boolean.parseBoolean(metadata.get(JPEG_OPTIMIZE_HUFFMAN_KEY).toString()) : null,
+                    intValue(metadata.get(PNG_COMPRESSION_LEVEL_KEY)),
+                    metadata.containsKey(PNG_FILTER_KEY) ? PngFilter.fromName(metadata.get(PNG_FILTER_KEY).toString()) : null,
+                    intValue(metadata.get(WEBP_QUALITY_KEY)));
+        } catch (IllegalArgumentException e) {
+            throw new ImageProcessingException(ErrorCode.CONFIGURATION_ERROR, "Invalid encoder metadata: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * These options with unset values taken from {@code defaults}.
+     */
+    public EncodeOptions orElse(EncodeOptions defaults) {
+        return new EncodeOptions(
+                jpegQuality != null ? jpegQuality : defaults.jpegQuality,
+                jpegOptimizeHuffman != null ? jpegOptimizeHuffman : defaults.jpegOptimizeHuffman,
+                pngCompressionLevel != null ? pngCompressionLevel : defaults.pngCompressionLevel,
+                pngFilter != null ? pngFilter : defaults.pngFilter,
+                webpQuality != null ? webpQuality : defaults.webpQuality);
+    }
+
+    private static Integer intValue(Object value) {
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof Number number) {
+            return number.intValue();
+        }
+        return Integer.parseInt(value.toString().trim());
+    }
+
+    private static void checkRange(String name, Integer value, int min, int max) {
+        if (value != null && (value < min || value > max)) {
+            throw new ImageProcessingException(ErrorCode.CONFIGURATION_ERROR,
+                    name + " must be between " + min + " and " + max + ", got " + value);
+        }
+    }
+
+    public Integer getJpegQuality() {
+        return jpegQuality;
+    }
+
+    public Boolean getJpegOptimizeHuffman() {
+        return jpegOptimizeHuffman;
+    }
+
+    public Integer getPngCompressionLevel() {
+        return pngCompressionLevel;
+    }
+
+    public PngFilter getPngFilter() {
+        return pngFilter;
+    }
+
+    public Integer getWebpQuality() {
+        return webpQuality;
+    }
+
+    @Override
+    public String toString() {
+        return "jpeg q" + jpegQuality + (Boolean.TRUE.equals(jpegOptimizeHuffman) ? " optimized" : "")
+                + ", png level " + pngCompressionLevel + " " + pngFilter
+                + ", webp q" + webpQuality;
+    }
+}
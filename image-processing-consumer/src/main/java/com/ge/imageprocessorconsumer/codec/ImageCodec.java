@@ -0,0 +1,31 @@
+package com.ge.imageprocessorconsumer.codec;
+
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+
+/**
+ * Decoder and encoder of one image format. Implementations are shared between threads.
+ */
+public interface ImageCodec {
+
+    /**
+     * Format name as used for file extensions, such as {@code png}.
+     */
+    String getFormat();
+
+    /**
+     * Decodes the first image of the stream, leaving the stream open.
+     *
+     * @return the image, or {@code null} if the stream is not in this format
+     */
+    BufferedImage decode(ImageInputStream input) throws IOException;
+
+    /**
+     * Encodes the image into the stream, leaving it open.
+     *
+     * @param options complete settings, without unset values
+     */
+    void encode(BufferedImage image, ImageOutputStream output, EncodeOptions options) throws IOException;
+}
@@ -0,0 +1,203 @@
+package com.ge.imageprocessorconsumer.codec;
+
+import com.ge.imageprocessorconsumer.exception.ErrorCode;
+import com.ge.imageprocessorconsumer.exception.ImageProcessingException;
+import com.ge.imageprocessorconsumer.imaging.ComputeGate;
+import com.ge.imageprocessorconsumer.metrics.PipelineMetrics;
+import com.ge.imageprocessorconsumer.reader.ImageProbe;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The codec used for each image format beneath the {@link com.ge.imageprocessorconsumer.reader.FileStorage}
+ * implementations, with the default encoder settings.
+ * <p>
+ * PNG is written by {@link PngCodec} unless {@code codec.png.encoder} is {@code imageio}; every other format goes
+ * to its ImageIO plugin through an {@link ImageIoCodec}. WebP has no plugin in the JDK and is only available when
+ * one is on the classpath. Defaults are {@code codec.jpeg.quality} (75, the ImageIO default),
+ * {@code codec.jpeg.optimize-huffman}, {@code codec.png.compression-level} (1), {@code codec.png.filter} (SUB)
+ * and {@code codec.webp.quality}; messages override them through {@link EncodeOptions}. At level 1 with the SUB
+ * filter the built-in encoder takes less than half the time of the JDK writer at its level 4 on a photograph and
+ * writes a smaller file; level 4 with ADAPTIVE filtering saves another 8% of the size but is slower than the JDK
+ * writer (see {@code CodecBenchmark}).
+ * <p>
+ * Given {@link PipelineMetrics}, every decode and encode is timed here, whichever storage drives it, so the codec
+ * time stays apart from the storage latency.
+ * <p>
+ * Decodes and encodes take a {@link ComputeGate} permit, so no more of them run at once than there are cores,
+ * however many virtual-thread workers are in flight. Their timings start once the permit is held. The permit is
+ * held for as long as the codec reads or writes its stream, so storages hand them bytes already in memory or
+ * mapped and encode into memory before writing: a stream over a network connection would keep a core's permit
+ * idle while it waits.
+ */
+@Component
+public class ImageCodecs {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ImageCodecs.class);
+
+    private static final ImageCodecs DEFAULTS = new ImageCodecs("fast", 75, false, 1, "SUB", 80);
+
+    private final Map<String, ImageCodec> codecs = new ConcurrentHashMap<>();
+    private final EncodeOptions defaults;
+    private final String pngEncoder;
+    private final PipelineMetrics metrics;
+    private final ComputeGate gate;
+
+    public ImageCodecs(String pngEncoder, int jpegQuality, boolean jpegOptimizeHuffman, int pngCompressionLevel,
+                       String pngFilter, int webpQuality) {
+        this(pngEncoder, jpegQuality, jpegOptimizeHuffman, pngCompressionLevel, pngFilter, webpQuality, null,
+                ComputeGate.unbounded());
+    }
+
+    @Autowired
+    public ImageCodecs(@Value("${codec.png.encoder:fast}") String pngEncoder,
+                       @Value("${codec.jpeg.quality:75}") int jpegQuality,
+                       @Value("${codec.jpeg.optimize-huffman:false}") boolean jpegOptimizeHuffman,
+                       @Value("${codec.png.compression-level:1}") int pngCompressionLevel,
+                       @Value("${codec.png.filter:SUB}") String pngFilter,
+                       @Value("${codec.webp.quality:80}") int webpQuality,
+                       PipelineMetrics metrics, ComputeGate gate) {
+        this.metrics = metrics;
+        this.gate = gate;
+        this.pngEncoder = pngEncoder.trim().toLowerCase(Locale.ROOT);
+        switch (this.pngEncoder) {
+            case "fast" -> codecs.put("png", new PngCodec());
+            case "imageio" -> codecs.put("png", new ImageIoCodec("png"));
+            default -> throw new ImageProcessingException(ErrorCode.CONFIGURATION_ERROR,
+                    "Unknown PNG encoder '" + pngEncoder + "', expected fast or imageio");
+        }
+        try {
+            this.defaults = new EncodeOptions(jpegQuality, jpegOptimizeHuffman, pngCompressionLevel,
+                    PngFilter.fromName(pngFilter), webpQuality);
+        } catch (IllegalArgumentException e) {
+            throw new ImageProcessingException(ErrorCode.CONFIGURATION_ERROR, "Invalid PNG filter: " + pngFilter, e);
+        }
+        LOGGER.info("Image codecs: {} PNG encoder, defaults {}", this.pngEncoder, defaults);
+    }
+
+    /**
+     * Codecs with the built-in defaults, for storages created outside of Spring.
+     */
+    public static ImageCodecs defaults() {
+        return DEFAULTS;
+    }
+
+    /**
+     * Codecs with the built-in defaults that record their timings in {@code metrics}.
+     */
+    public static ImageCodecs defaults(PipelineMetrics metrics) {
+        return new ImageCodecs("fast", 75, false, 1, "SUB", 80, metrics, ComputeGate.unbounded());
+    }
+
+    public EncodeOptions getDefaults() {
+        return defaults;
+    }
+
+    /**
+     * Codec for the format, or {@code null} if ImageIO has no plugin for it.
+     */
+    public ImageCodec codec(String format) {
+        String name = format.toLowerCase(Locale.ROOT);
+        if (name.equals("jpeg")) {
+            name = "jpg";
+        }
+        ImageCodec codec = codecs.get(name);
+        if (codec == null && (ImageIoCodec.canRead(name) || ImageIoCodec.canWrite(name))) {
+            codec = codecs.computeIfAbsent(name, ImageIoCodec::new);
+        }
+        return codec;
+    }
+
+    /**
+     * Decodes the image, choosing the codec from the stream's leading bytes. Containers without a known signature
+     * go to the first ImageIO reader that accepts them, as {@code ImageIO.read} would. The stream is left open.
+     *
+     * @return the image, or {@code null} if no codec can read the stream
+     */
+    public BufferedImage decode(ImageInputStream input) throws IOException {
+        return gate.call(() -> decodeImage(input));
+    }
+
+    private BufferedImage decodeImage(ImageInputStream input) throws IOException {
+        long start = System.nanoTime();
+        String format = ImageProbe.detectFormat(input);
+        try {
+            ImageCodec codec = format == null ? null : codec(format);
+            if (codec != null) {
+                return codec.decode(input);
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                return reader.read(0, reader.getDefaultReadParam());
+            } finally {
+                reader.dispose();
+            }
+        } finally {
+            record("decode", format, start);
+        }
+    }
+
+    /**
+     * Encodes the image with the message's settings on top of the defaults, leaving the stream open.
+     */
+    public void encode(BufferedImage image, String format, EncodeOptions options, ImageOutputStream output)
+            throws IOException {
+        ImageCodec codec = codec(format);
+        if (codec == null) {
+            throw new IOException("No image writer available for format: " + format);
+        }
+        gate.call(() -> {
+            long start = System.nanoTime();
+            try {
+                codec.encode(image, output, options.orElse(defaults));
+            } finally {
+                record("encode", format, start);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Like {@link #encode(BufferedImage, String, EncodeOptions, ImageOutputStream)} into a plain stream. The
+     * encoder's seeks are served from memory, never from a cache file as {@code ImageIO.write} may do.
+     */
+    public void encode(BufferedImage image, String format, EncodeOptions options, OutputStream output)
+            throws IOException {
+        try (ImageOutputStream stream = new MemoryCacheImageOutputStream(output)) {
+            encode(image, format, options, stream);
+        }
+    }
+
+    private void record(String operation, String format, long start) {
+        if (metrics != null) {
+            metrics.recordCodec(operation, format, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Encoder settings a message's outputs are written with, for result cache keys.
+     */
+    public String parameterKey(Map<String, Object> metadata) {
+        return pngEncoder + " " + EncodeOptions.fromMetadata(metadata).orElse(defaults);
+    }
+}
@@ -0,0 +1,166 @@
+package com.ge.imageprocessorconsumer.codec;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.plugins.jpeg.JPEGImageWriteParam;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentLinkedDeque;
+
+/**
+ * Codec on the ImageIO reader and writer plugins registered for a format.
+ * <p>
+ * {@code ImageIO.read} and {@code ImageIO.write} look up the plugin and create a new reader or writer, with its
+ * native state, for every image. Here readers and writers are kept after use and reset for the next image. They
+ * are pooled rather than held per thread, so the reuse also holds on virtual threads, which are never reused.
+ * <p>
+ * Encoder settings map onto the plugin's {@link ImageWriteParam}: the JPEG quality and Huffman table
+ * optimisation, the PNG deflate level (the JDK writer has no filter setting and always filters adaptively), and
+ * the quality of a WebP plugin.
+ */
+public class ImageIoCodec implements ImageCodec {
+
+    private final String format;
+    private final ConcurrentLinkedDeque<ImageReader> readers = new ConcurrentLinkedDeque<>();
+    private final ConcurrentLinkedDeque<ImageWriter> writers = new ConcurrentLinkedDeque<>();
+
+    public ImageIoCodec(String format) {
+        this.format = format.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Whether ImageIO has a writer plugin for the format.
+     */
+    public static boolean canWrite(String format) {
+        return ImageIO.getImageWritersByFormatName(format).hasNext();
+    }
+
+    /**
+     * Whether ImageIO has a reader plugin for the format.
+     */
+    public static boolean canRead(String format) {
+        return ImageIO.getImageReadersByFormatName(format).hasNext();
+    }
+
+    @Override
+    public String getFormat() {
+        return format;
+    }
+
+    @Override
+    public BufferedImage decode(ImageInputStream input) throws IOException {
+        ImageReader reader = readers.pollFirst();
+        if (reader == null) {
+            Iterator<ImageReader> available = ImageIO.getImageReadersByFormatName(format);
+            if (!available.hasNext()) {
+                throw new IOException("No image reader available for format: " + format);
+            }
+            reader = available.next();
+        }
+        boolean reusable = false;
+        try {
+            reader.setInput(input, true, true);
+            BufferedImage image = reader.read(0, reader.getDefaultReadParam());
+            reusable = true;
+            return image;
+        } finally {
+            recycleReader(reader, reusable);
+        }
+    }
+
+    @Override
+    public void encode(BufferedImage image, ImageOutputStream output, EncodeOptions options) throws IOException {
+        ImageWriter writer = writers.pollFirst();
+        if (writer == null) {
+            Iterator<ImageWriter> available = ImageIO.getImageWritersByFormatName(format);
+            if (!available.hasNext()) {
+                throw new IOException("No image writer available for format: " + format);
+            }
+            writer = available.next();
+        }
+        boolean reusable = false;
+        try {
+            if (writer.getOriginatingProvider() != null && !writer.getOriginatingProvider().canEncodeImage(image)) {
+                // Same outcome as ImageIO.write, which finds no writer for e.g. a JPEG with alpha
+                reusable = true;
+                throw new IOException("No image writer available for format: " + format);
+            }
+            writer.setOutput(output);
+            writer.write(null, new IIOImage(image, null, null), writeParam(writer, options));
+            reusable = true;
+        } finally {
+            recycleWriter(writer, reusable);
+        }
+    }
+
+    private ImageWriteParam writeParam(ImageWriter writer, EncodeOptions options) {
+        ImageWriteParam param = writer.getDefaultWriteParam();
+        if (!param.canWriteCompressed()) {
+            return param;
+        }
+        switch (format) {
+            case "jpg", "jpeg" -> {
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                param.setCompressionQuality(options.getJpegQuality() / 100f);
+                if (param instanceof JPEGImageWriteParam jpeg) {
+                    jpeg.setOptimizeHuffmanTables(options.getJpegOptimizeHuffman());
+                }
+            }
+            case "png" -> {
+                // The JDK writer deflates at level 9 - round(9 * quality)
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                param.setCompressionQuality((9 - options.getPngCompressionLevel()) / 9f);
+            }
+            case "webp" -> {
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                String[] types = param.getCompressionTypes();
+                if (types != null && types.length > 0) {
+                    param.setCompressionType(lossyType(types));
+                }
+                param.setCompressionQuality(options.getWebpQuality() / 100f);
+            }
+            default -> {
+                // Other formats keep the plugin defaults
+            }
+        }
+        return param;
+    }
+
+    private static String lossyType(String[] types) {
+        for (String type : types) {
+            if (type.toLowerCase(Locale.ROOT).contains("lossy")) {
+                return type;
+            }
+        }
+        return types[0];
+    }
+
+    /**
+     * Resets a reader or writer and keeps it for the next image; one that failed is disposed of instead, as its
+     * native state may be unusable.
+     */
+    private void recycleReader(ImageReader reader, boolean reusable) {
+        if (reusable) {
+            reader.reset();
+            readers.offerFirst(reader);
+        } else {
+            reader.dispose();
+        }
+    }
+
+    private void recycleWriter(ImageWriter writer, boolean reusable) {
+        if (reusable) {
+            writer.reset();
+            writers.offerFirst(writer);
+        } else {
+            writer.dispose();
+        }
+    }
+}
@@ -0,0 +1,275 @@
+package com.ge.imageprocessorconsumer.codec;
+
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.Raster;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * PNG encoder with a selectable row filter and deflate level, for the 8-bit gray, RGB and RGBA images the
+ * pipeline produces. Other layouts, such as indexed or 16-bit images, and all decoding go to the ImageIO plugin.
+ * <p>
+ * Rows are copied out of the raster one at a time, filtered and streamed through a {@link Deflater} into
+ * {@code IDAT} chunks of {@value #IDAT_SIZE} bytes. Deflaters are kept between images instead of allocating
+ * their native buffers for every one.
+ */
+public class PngCodec implements ImageCodec {
+
+    private static final byte[] SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+    private static final int IDAT_SIZE = 64 * 1024;
+
+    private static final int COLOR_GRAY = 0;
+    private static final int COLOR_RGB = 2;
+    private static final int COLOR_RGBA = 6;
+
+    private final ImageIoCodec imageIo = new ImageIoCodec("png");
+    private final ConcurrentLinkedDeque<Deflater> deflaters = new ConcurrentLinkedDeque<>();
+
+    @Override
+    public String getFormat() {
+        return "png";
+    }
+
+    @Override
+    public BufferedImage decode(ImageInputStream input) throws IOException {
+        return imageIo.decode(input);
+    }
+
+    @Override
+    public void encode(BufferedImage image, ImageOutputStream output, EncodeOptions options) throws IOException {
+        int colorType = colorType(image);
+        if (colorType < 0) {
+            imageIo.encode(image, output, options);
+            return;
+        }
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int channels = colorType == COLOR_GRAY ? 1 : colorType == COLOR_RGB ? 3 : 4;
+
+        output.write(SIGNATURE);
+        byte[] header = new byte[13];
+        putInt(header, 0, width);
+        putInt(header, 4, height);
+        header[8] = 8;
+        header[9] = (byte) colorType;
+        writeChunk(output, "IHDR", header, header.length);
+
+        Deflater deflater = deflaters.pollFirst();
+        if (deflater == null) {
+            deflater = new Deflater();
+        }
+        deflater.setLevel(options.getPngCompressionLevel());
+        boolean reusable = false;
+        try (DeflaterOutputStream compressed = new DeflaterOutputStream(new IdatStream(output), deflater, IDAT_SIZE)) {
+            writeRows(image.getRaster(), colorType, channels, options.getPngFilter(), compressed);
+            compressed.finish();
+            reusable = true;
+        } finally {
+            if (reusable) {
+                deflater.reset();
+                deflaters.offerFirst(deflater);
+            } else {
+                deflater.end();
+            }
+        }
+        writeChunk(output, "IEND", new byte[0], 0);
+    }
+
+    /**
+     * PNG color type written for the image without conversion, or -1 if the ImageIO plugin should encode it.
+     */
+    private static int colorType(BufferedImage image) {
+        ColorModel colorModel = image.getColorModel();
+        return switch (image.getType()) {
+            case BufferedImage.TYPE_BYTE_GRAY -> COLOR_GRAY;
+            case BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_3BYTE_BGR -> COLOR_RGB;
+            case BufferedImage.TYPE_INT_ARGB, BufferedImage.TYPE_4BYTE_ABGR ->
+                    colorModel.isAlphaPremultiplied() ? -1 : COLOR_RGBA;
+            default -> -1;
+        };
+    }
+
+    private static void writeRows(Raster raster, int colorType, int channels, PngFilter filter, OutputStream out)
+            throws IOException {
+        int width = raster.getWidth();
+        int height = raster.getHeight();
+        int rowBytes = width * channels;
+        boolean packed = raster.getTransferType() == DataBuffer.TYPE_INT;
+        int[] packedRow = packed ? new int[width] : null;
+        byte[] current = new byte[rowBytes];
+        byte[] previous = new byte[rowBytes];
+        byte[][] filtered = new byte[filter == PngFilter.ADAPTIVE ? 5 : 1][rowBytes + 1];
+
+        for (int y = 0; y < height; y++) {
+            if (packed) {
+                raster.getDataElements(raster.getMinX(), raster.getMinY() + y, width, 1, packedRow);
+                unpack(packedRow, current, colorType == COLOR_RGBA);
+            } else {
+                // Interleaved byte rasters return their samples in band order, which is PNG's R, G, B, A
+                raster.getDataElements(raster.getMinX(), raster.getMinY() + y, width, 1, current);
+            }
+            byte[] row;
+            if (filter == PngFilter.ADAPTIVE) {
+                row = filtered[0];
+                long best = Long.MAX_VALUE;
+                for (int type = 0; type < 5; type++) {
+                    long cost = filter(type, current, previous, channels, filtered[type]);
+                    if (cost < best) {
+                        best = cost;
+                        row = filtered[type];
+                    }
+                }
+            } else {
+                row = filtered[0];
+                filter(filter.type(), current, previous, channels, row);
+            }
+            out.write(row, 0, rowBytes + 1);
+            byte[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+    }
+
+    private static void unpack(int[] pixels, byte[] row, boolean alpha) {
+        int j = 0;
+        for (int pixel : pixels) {
+            row[j++] = (byte) (pixel >> 16);
+            row[j++] = (byte) (pixel >> 8);
+            row[j++] = (byte) pixel;
+            if (alpha) {
+                row[j++] = (byte) (pixel >>> 24);
+            }
+        }
+    }
+
+    /**
+     * Writes the filter type and the filtered row into {@code out}.
+     *
+     * @return the sum of the filtered bytes taken as signed values, the adaptive heuristic's cost
+     */
+    static long filter(int type, byte[] row, byte[] previous, int bpp, byte[] out) {
+        out[0] = (byte) type;
+        int length = row.length;
+        switch (type) {
+            case 0 -> System.arraycopy(row, 0, out, 1, length);
+            case 1 -> {
+                System.arraycopy(row, 0, out, 1, Math.min(bpp, length));
+                for (int i = bpp; i < length; i++) {
+                    out[i + 1] = (byte) (row[i] - row[i - bpp]);
+                }
+            }
+            case 2 -> {
+                for (int i = 0; i < length; i++) {
+                    out[i + 1] = (byte) (row[i] - previous[i]);
+                }
+            }
+            case 3 -> {
+                for (int i = 0; i < length; i++) {
+                    int left = i >= bpp ? row[i - bpp] & 0xFF : 0;
+                    out[i + 1] = (byte) (row[i] - ((left + (previous[i] & 0xFF)) >>> 1));
+                }
+            }
+            default -> {
+                for (int i = 0; i < length; i++) {
+                    int left = i >= bpp ? row[i - bpp] & 0xFF : 0;
+                    int upLeft = i >= bpp ? previous[i - bpp] & 0xFF : 0;
+                    out[i + 1] = (byte) (row[i] - paeth(left, previous[i] & 0xFF, upLeft));
+                }
+            }
+        }
+        long cost = 0;
+        for (int i = 1; i <= length; i++) {
+            cost += Math.abs(out[i]);
+        }
+        return cost;
+    }
+
+    private static int paeth(int left, int up, int upLeft) {
+        int p = left + up - upLeft;
+        int pa = Math.abs(p - left);
+        int pb = Math.abs(p - up);
+        int pc = Math.abs(p - upLeft);
+        if (pa <= pb && pa <= pc) {
+            return left;
+        }
+        return pb <= pc ? up : upLeft;
+    }
+
+    private static void writeChunk(ImageOutputStream output, String type, byte[] data, int length) throws IOException {
+        byte[] typeBytes = type.getBytes(StandardCharsets.US_ASCII);
+        CRC32 crc = new CRC32();
+        crc.update(typeBytes);
+        crc.update(data, 0, length);
+        byte[] word = new byte[4];
+        putInt(word, 0, length);
+        output.write(word);
+        output.write(typeBytes);
+        output.write(data, 0, length);
+        putInt(word, 0, (int) crc.getValue());
+        output.write(word);
+    }
+
+    private static void putInt(byte[] bytes, int offset, int value) {
+        bytes[offset] = (byte) (value >>> 24);
+        bytes[offset + 1] = (byte) (value >>> 16);
+        bytes[offset + 2] = (byte) (value >>> 8);
+        bytes[offset + 3] = (byte) value;
+    }
+
+    /**
+     * Cuts the compressed stream into {@code IDAT} chunks. Closing writes the last chunk but leaves the image
+     * stream open.
+     */
+    private static final class IdatStream extends OutputStream {
+        private final ImageOutputStream output;
+        private final byte[] buffer = new byte[IDAT_SIZE];
+        private int count;
+
+        private IdatStream(ImageOutputStream output) {
+            this.output = output;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (count == buffer.length) {
+                flushChunk();
+            }
+            buffer[count++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            while (length > 0) {
+                if (count == buffer.length) {
+                    flushChunk();
+                }
+                int n = Math.min(length, buffer.length - count);
+                System.arraycopy(bytes, offset, buffer, count, n);
+                count += n;
+                offset += n;
+                length -= n;
+            }
+        }
+
+        private void flushChunk() throws IOException {
+            if (count > 0) {
+                writeChunk(output, "IDAT", buffer, count);
+                count = 0;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            flushChunk();
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.ge.imageprocessorconsumer.codec;
+
+/**
+ * Row filters of the PNG format, applied before deflating each scanline.
+ * <p>
+ * {@link #NONE} and {@link #SUB} are the cheapest and suit flat or synthetic images; {@link #PAETH} usually
+ * compresses photographs best. {@link #ADAPTIVE} tries all five per row and keeps the one with the smallest sum of
+ * absolute values, the heuristic the JDK writer always uses.
+ */
+public enum PngFilter {
+    NONE(0),
+    SUB(1),
+    UP(2),
+    AVERAGE(3),
+    PAETH(4),
+    ADAPTIVE(-1);
+
+    private final int type;
+
+    PngFilter(int type) {
+        this.type = type;
+    }
+
+    /**
+     * Filter type byte written in front of each row, or -1 for {@link #ADAPTIVE}.
+     */
+    int type() {
+        return type;
+    }
+
+    public static PngFilter fromName(String name) {
+        return valueOf(name.trim().toUpperCase());
+    }
+}
@@ -0,0 +1,80 @@
+package com.ge.imageprocessorconsumer.consumer;
+
+import com.ge.imageprocessorconsumer.processor.ImageProcessingPipeline;
+import com.ge.model.ImageProcessingMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Batch alternative to {@link ImageProcessingConsumer}, enabled with {@code kafka.listener.batch.enabled=true}.
+ * Each poll is processed in parallel on the worker pool, failures are routed with one producer flush
+ * and the offsets of the whole batch are committed once. If a failure cannot be routed, the batch is committed up to
+ * that message and the rest is delivered again.
+ */
+@Service
+@ConditionalOnProperty(name = "kafka.listener.batch.enabled", havingValue = "true")
+public class BatchImageProcessingConsumer {
+    private static final Logger LOGGER = LoggerFactory.getLogger(BatchImageProcessingConsumer.class);
+    public static final String LISTENER_ID = "image-processing-batch-listener";
+
+    private static final Duration REDELIVERY_DELAY = Duration.ofSeconds(1);
+
+    private final ImageProcessingPipeline pipeline;
+
+    private final ImageProcessingFailureHandler failureHandler;
+
+    private final ImageProcessingWorkerPool workerPool;
+
+    @Autowired
+    public BatchImageProcessingConsumer(
+            ImageProcessingPipeline pipeline,
+            ImageProcessingFailureHandler failureHandler,
+            ImageProcessingWorkerPool workerPool
+    ) {
+        this.pipeline = pipeline;
+        this.failureHandler = failureHandler;
+        this.workerPool = workerPool;
+    }
+
+    @KafkaListener(id = LISTENER_ID, topics = "${kafka.topic.name}",
+            groupId = "${spring.kafka.consumer.group-id}", containerFactory = BatchListenerConfig.BATCH_FACTORY)
+    public void processBatch(List<ImageProcessingMessage> messages, Acknowledgment acknowledgment) throws InterruptedException {
+        LOGGER.info("Received batch of {} messages", messages.size());
+        Map<ImageProcessingMessage, Exception> failures = new ConcurrentHashMap<>();
+        CountDownLatch done = new CountDownLatch(messages.size());
+        for (ImageProcessingMessage message : messages) {
+            workerPool.submit(message.getImageId(), () -> {
+                try {
+                    pipeline.execute(message);
+                } catch (Exception e) {
+                    LOGGER.error("Error processing message: {}", message.getImageId(), e);
+                    failures.put(message, e);
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+        List<ImageProcessingMessage> unsent = failureHandler.handleFailures(failures);
+        if (!unsent.isEmpty()) {
+            // Commit up to the first failure that could not be routed and have the rest delivered again
+            int index = unsent.stream().mapToInt(messages::indexOf).min().orElse(0);
+            LOGGER.warn("Could not route {} failures, redelivering batch from index {}", unsent.size(), index);
+            acknowledgment.nack(index, REDELIVERY_DELAY);
+            return;
+        }
+        acknowledgment.acknowledge();
+        LOGGER.info("Completed batch of {} messages, {} failed", messages.size(), failures.size());
+    }
+}
@@ -0,0 +1,55 @@
+package com.ge.imageprocessorconsumer.consumer;
+
+import com.ge.model.ImageProcessingMessage;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.listener.ContainerProperties;
+
+import java.util.Map;
+
+/**
+ * Listener container factory for batch consumption. A poll returns up to {@code max-size} records and the broker
+ * holds the fetch for up to {@code max-latency-ms} while it waits for {@code min-bytes} to accumulate.
+ */
+@Configuration
+@ConditionalOnProperty(name = "kafka.listener.batch.enabled", havingValue = "true")
+public class BatchListenerConfig {
+
+    public static final String BATCH_FACTORY = "batchKafkaListenerContainerFactory";
+
+    @Value("${kafka.listener.batch.max-size:500}")
+    private int maxBatchSize;
+
+    @Value("${kafka.listener.batch.max-latency-ms:200}")
+    private int maxBatchLatencyMs;
+
+    @Value("${kafka.listener.batch.min-bytes:65536}")
+    private int minBatchBytes;
+
+    @Value("${kafka.listener.concurrency:1}")
+    private int concurrency;
+
+    @Bean(name = BATCH_FACTORY)
+    public ConcurrentKafkaListenerContainerFactory<String, ImageProcessingMessage> batchKafkaListenerContainerFactory(
+            KafkaProperties kafkaProperties) {
+        Map<String, Object> consumerProperties = kafkaProperties.buildConsumerProperties(null);
+        consumerProperties.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, maxBatchSize);
+        consumerProperties.put(ConsumerConfig.FETCH_MAX_WAIT_MS_CONFIG, maxBatchLatencyMs);
+        consumerProperties.put(ConsumerConfig.FETCH_MIN_BYTES_CONFIG, minBatchBytes);
+        consumerProperties.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+
+        ConcurrentKafkaListenerContainerFactory<String, ImageProcessingMessage> factory
+                = new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(new DefaultKafkaConsumerFactory<>(consumerProperties));
+        factory.setBatchListener(true);
+        factory.setConcurrency(concurrency);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        return factory;
+    }
+}
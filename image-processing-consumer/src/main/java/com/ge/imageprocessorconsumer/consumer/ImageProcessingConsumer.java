@@ -1,113 +1,94 @@
 package com.ge.imageprocessorconsumer.consumer;
 
 
-import com.ge.imageprocessorconsumer.exception.ErrorCode;
-import com.ge.imageprocessorconsumer.exception.ImageProcessingException;
 import com.ge.imageprocessorconsumer.processor.ImageProcessingPipeline;
-import com.ge.imageprocessorconsumer.processor.ImageProcessor;
 import com.ge.model.ImageProcessingMessage;
-import com.ge.model.ProcessStatus;
-import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.kafka.annotation.KafkaListener;
-import org.springframework.kafka.core.KafkaTemplate;
-import org.springframework.retry.support.RetryTemplate;
+import org.springframework.kafka.support.Acknowledgment;
 import org.springframework.stereotype.Service;
 
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
-
 @Service
+@ConditionalOnProperty(name = "kafka.listener.batch.enabled", havingValue = "false", matchIfMissing = true)
 public class ImageProcessingConsumer {
     private static final Logger LOGGER = LoggerFactory.getLogger(ImageProcessingConsumer.class);
-    private static final String SCHEDULED_RETRY_TOPIC = "retry-input-topic";
-    private static final String DLQ_PROCESSING_TOPIC = "dlq-input-topic";
-
-    private static final int MAX_RETRIES = 3;
-
-    private static final long RETRY_DELAY_MS = 500L;
+    public static final String LISTENER_ID = "image-processing-listener";
 
-    private final KafkaTemplate<String, ImageProcessingMessage> kafkaTemplate;
+    private static final long ROUTE_RETRY_INITIAL_MS = 100;
+    private static final long ROUTE_RETRY_MAX_MS = 30_000;
 
     private final ImageProcessingPipeline pipeline;
 
-    private final RetryTemplate retryTemplate;
-    private final ScheduledExecutorService scheduler;
+    private final ImageProcessingFailureHandler failureHandler;
 
+    private final ImageProcessingWorkerPool workerPool;
 
     @Autowired
     public ImageProcessingConsumer(
-            KafkaTemplate<String, ImageProcessingMessage> kafkaTemplate,
             ImageProcessingPipeline pipeline,
-            RetryTemplate retryTemplate
+            ImageProcessingFailureHandler failureHandler,
+            ImageProcessingWorkerPool workerPool
     ) {
-        this.kafkaTemplate = kafkaTemplate;
         this.pipeline = pipeline;
-        this.retryTemplate = retryTemplate;
-        this.scheduler = Executors.newScheduledThreadPool(1);
+        this.failureHandler = failureHandler;
+        this.workerPool = workerPool;
     }
 
-    @KafkaListener(topics = {"${kafka.topic.name}", "${kafka.retry.topic.name}"}, groupId = "${spring.kafka.consumer.group-id}")
-    public void processMessage(ImageProcessingMessage message) {
+    /**
+     * Hands each record to the worker pool and returns, so the listener thread keeps polling.
+     * The offset is acknowledged once the message has been processed or its route to retry/DLQ has been sent;
+     * with async acks the container commits only up to the lowest incomplete offset of each partition.
+     * <p>
+     * Async acks are also the backpressure: while any record of the previous poll is unacknowledged the container
+     * pauses its partitions, so at most {@code max-poll-records} messages per listener thread are in flight. The
+     * worker pool's {@code max-in-flight} only blocks this thread when several listener threads share the pool.
+     */
+    @KafkaListener(id = LISTENER_ID, topics = "${kafka.topic.name}",
+            groupId = "${spring.kafka.consumer.group-id}", concurrency = "${kafka.listener.concurrency:1}")
+    public void processMessage(ImageProcessingMessage message, Acknowledgment acknowledgment) throws InterruptedException {
+        LOGGER.info("Received request to process: {}", message.getImageId());
+        workerPool.submit(message.getImageId(), () -> {
+            if (processOrRoute(message)) {
+                acknowledgment.acknowledge();
+            }
+        });
+    }
+
+    /**
+     * Processes the message or routes it to retry/DLQ. A route whose send fails is tried again with backoff until the
+     * broker has it: records cannot be nacked with async acks, and an unacknowledged record would keep its partition
+     * paused. Returns {@code false} only when the worker is interrupted on shutdown; the record is then not committed
+     * and is delivered again when the consumer restarts.
+     */
+    private boolean processOrRoute(ImageProcessingMessage message) {
         try {
-            LOGGER.info("Received request to process: {}", message.getImageId());
             processMessageWithChain(message);
-            // Execute with retry
-            /*retryTemplate.execute(context -> {
-                processMessageWithChain(message);
-                return null;
-            });*/
+            return true;
         } catch (Exception e) {
             LOGGER.error("Error processing message: {}", message.getImageId(), e);
-            handleFailure(message, e);
-        }
-    }
-
-    private void processMessageWithChain(ImageProcessingMessage message) throws Exception {
-        ProcessStatus status = message.getStatus();
-        ImageProcessor processor = pipeline.findProcessor(status);
-        processor.process(message);
-    }
-
-    private void handleFailure(ImageProcessingMessage message, Exception e) {
-        if (shouldRetry(message, e)) {
-            message.incrementRetryCount();
-            scheduler.schedule(() -> {
-                kafkaTemplate.send(SCHEDULED_RETRY_TOPIC, message.getImageId(), message);
-                LOGGER.info("Sent to retry topic after {}ms delay: {}", RETRY_DELAY_MS, SCHEDULED_RETRY_TOPIC);
-            }, RETRY_DELAY_MS, TimeUnit.MILLISECONDS);
-        } else {
-            kafkaTemplate.send(DLQ_PROCESSING_TOPIC, message.getImageId(), message);
-            LOGGER.info("Sent to DLQ topic: {}", DLQ_PROCESSING_TOPIC);
+            return routeUntilSent(message, e);
         }
     }
 
-    private boolean shouldRetry(ImageProcessingMessage message, Exception e) {
-        if (message.getRetryCount() >= MAX_RETRIES) {
-            return false;
-        }
-        // Optionally, skip retries for certain errors
-        if (e instanceof ImageProcessingException ipe) {
-            return ipe.getErrorCode() == ErrorCode.PROCESSING_FAILURE ||
-                    ipe.getErrorCode() == ErrorCode.IO_ERROR;
+    private boolean routeUntilSent(ImageProcessingMessage message, Exception e) {
+        long delay = ROUTE_RETRY_INITIAL_MS;
+        while (!failureHandler.handleFailure(message, e)) {
+            LOGGER.warn("Could not route {}, trying again in {}ms", message.getImageId(), delay);
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException interrupted) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+            delay = Math.min(delay * 2, ROUTE_RETRY_MAX_MS);
         }
         return true;
     }
 
-    @PreDestroy
-    public void shutdown() {
-        LOGGER.info("Shutting down scheduler");
-        scheduler.shutdown();
-        try {
-            if (!scheduler.awaitTermination(5, TimeUnit.SECONDS)) {
-                scheduler.shutdownNow();
-            }
-        } catch (InterruptedException e) {
-            scheduler.shutdownNow();
-            Thread.currentThread().interrupt();
-        }
+    private void processMessageWithChain(ImageProcessingMessage message) throws Exception {
+        pipeline.execute(message);
     }
 }
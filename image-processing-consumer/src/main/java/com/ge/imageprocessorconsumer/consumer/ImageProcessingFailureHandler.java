@@ -0,0 +1,156 @@
+package com.ge.imageprocessorconsumer.consumer;
+
+import com.ge.imageprocessorconsumer.exception.ErrorCode;
+import com.ge.imageprocessorconsumer.exception.ImageProcessingException;
+import com.ge.imageprocessorconsumer.metrics.PipelineMetrics;
+import com.ge.model.ImageProcessingMessage;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Routes failed messages to a retry tier topic or, once retries are exhausted or the error is not retryable, to the DLQ.
+ * Retries are written immediately with a {@link RetryBackoff#NOT_BEFORE_HEADER} header; the tier listeners hold them
+ * until they are due, so nothing waits in memory and nothing is lost on shutdown. Every send is awaited before the
+ * caller acknowledges the source record; a failed send is reported to the caller, which routes the message again or
+ * has its record delivered again.
+ */
+@Component
+public class ImageProcessingFailureHandler {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ImageProcessingFailureHandler.class);
+    private static final String DLQ_PROCESSING_TOPIC = "dlq-input-topic";
+
+    private final KafkaTemplate<String, ImageProcessingMessage> kafkaTemplate;
+    private final RetryBackoff backoff;
+    private final PipelineMetrics metrics;
+
+    @Autowired
+    public ImageProcessingFailureHandler(KafkaTemplate<String, ImageProcessingMessage> kafkaTemplate,
+                                         RetryBackoff backoff,
+                                         PipelineMetrics metrics) {
+        this.kafkaTemplate = kafkaTemplate;
+        this.backoff = backoff;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Routes the message and waits until the broker has it. Returns {@code false} when the send failed, leaving the
+     * message's retry count as it was so that the caller can route it again.
+     */
+    public boolean handleFailure(ImageProcessingMessage message, Exception e) {
+        int retryCount = message.getRetryCount();
+        if (sent(message, tryRoute(message, e))) {
+            return true;
+        }
+        message.setRetryCount(retryCount);
+        return false;
+    }
+
+    /**
+     * Routes all failures of a batch with a single producer flush and waits for every send. Returns the messages
+     * whose send failed, which the caller must not acknowledge.
+     */
+    public List<ImageProcessingMessage> handleFailures(Map<ImageProcessingMessage, Exception> failures) {
+        if (failures.isEmpty()) {
+            return List.of();
+        }
+        Map<ImageProcessingMessage, CompletableFuture<Boolean>> sends = new LinkedHashMap<>();
+        for (Map.Entry<ImageProcessingMessage, Exception> failure : failures.entrySet()) {
+            sends.put(failure.getKey(), tryRoute(failure.getKey(), failure.getValue()));
+        }
+        kafkaTemplate.flush();
+        List<ImageProcessingMessage> unsent = new ArrayList<>();
+        int retried = 0;
+        for (Map.Entry<ImageProcessingMessage, CompletableFuture<Boolean>> send : sends.entrySet()) {
+            if (!sent(send.getKey(), send.getValue())) {
+                unsent.add(send.getKey());
+            } else if (send.getValue().join()) {
+                retried++;
+            }
+        }
+        LOGGER.info("Sent {} messages to retry topics and {} to DLQ topic, {} failed to send",
+                retried, failures.size() - retried - unsent.size(), unsent.size());
+        return unsent;
+    }
+
+    private CompletableFuture<Boolean> tryRoute(ImageProcessingMessage message, Exception e) {
+        try {
+            return route(message, e);
+        } catch (RuntimeException sendError) {
+            // The producer can fail before handing the record over, such as when metadata cannot be fetched
+            return CompletableFuture.failedFuture(sendError);
+        }
+    }
+
+    /**
+     * Sends the message to its retry tier or the DLQ. The future completes with whether it was retried once the
+     * broker has acknowledged the record.
+     */
+    private CompletableFuture<Boolean> route(ImageProcessingMessage message, Exception e) {
+        if (!shouldRetry(message, e)) {
+            String reason = deadLetterReason(message, e);
+            return kafkaTemplate.send(DLQ_PROCESSING_TOPIC, message.getImageId(), message).thenApply(result -> {
+                metrics.recordDeadLetter(reason);
+                LOGGER.info("Sent {} to DLQ topic: {}", message.getImageId(), DLQ_PROCESSING_TOPIC);
+                return false;
+            });
+        }
+        message.incrementRetryCount();
+        long delay = backoff.delayFor(message.getRetryCount());
+        String topic = backoff.getTierTopics().get(backoff.tierFor(delay));
+        long notBefore = System.currentTimeMillis() + delay;
+
+        ProducerRecord<String, ImageProcessingMessage> record = new ProducerRecord<>(topic, message.getImageId(), message);
+        record.headers().add(RetryBackoff.NOT_BEFORE_HEADER, Long.toString(notBefore).getBytes(StandardCharsets.UTF_8));
+        return kafkaTemplate.send(record).thenApply(result -> {
+            metrics.recordRetry(topic);
+            LOGGER.info("Sent {} to retry topic {} for attempt {} in {}ms",
+                    message.getImageId(), topic, message.getRetryCount(), delay);
+            return true;
+        });
+    }
+
+    private static boolean sent(ImageProcessingMessage message, CompletableFuture<Boolean> send) {
+        try {
+            send.get();
+            return true;
+        } catch (ExecutionException e) {
+            LOGGER.error("Could not route failed message {}", message.getImageId(), e.getCause());
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOGGER.error("Interrupted while routing failed message {}", message.getImageId());
+            return false;
+        }
+    }
+
+    private boolean shouldRetry(ImageProcessingMessage message, Exception e) {
+        if (!backoff.canRetry(message.getRetryCount())) {
+            return false;
+        }
+        // Optionally, skip retries for certain errors
+        if (e instanceof ImageProcessingException ipe) {
+            return ipe.getErrorCode() == ErrorCode.PROCESSING_FAILURE ||
+                    ipe.getErrorCode() == ErrorCode.IO_ERROR;
+        }
+        return true;
+    }
+
+    private String deadLetterReason(ImageProcessingMessage message, Exception e) {
+        if (!backoff.canRetry(message.getRetryCount())) {
+            return "retries_exhausted";
+        }
+        return e instanceof ImageProcessingException ipe ? ipe.getErrorCode().name() : "not_retryable";
+    }
+}
@@ -0,0 +1,177 @@
+package com.ge.imageprocessorconsumer.consumer;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded pool of CPU workers that the Kafka listener threads hand messages to.
+ * <p>
+ * Work is striped over single-threaded lanes by key, so messages with the same imageId run in submission order
+ * while different images run in parallel. At most {@code maxInFlight} tasks are queued or running; beyond that
+ * {@link #submit} blocks the listener thread until a task completes.
+ * <p>
+ * With {@code worker.pool.virtual-threads} (Java 21) every task gets its own virtual thread instead of a lane and
+ * tasks of the same key are chained one after another. Blocking storage calls and Kafka sends then only park a
+ * virtual thread, so {@code max-in-flight} can be raised to thousands of messages waiting on S3. The CPU-bound
+ * work stays bounded: kernels run on the fixed {@link com.ge.imageprocessorconsumer.imaging.RowBandExecutor} pool,
+ * and decodes, encodes and small kernels wait for a {@link com.ge.imageprocessorconsumer.imaging.ComputeGate}
+ * permit, one per core.
+ * <p>
+ * Queue depth, running tasks and capacity are published as {@code image.worker.*} gauges.
+ */
+@Component
+public class ImageProcessingWorkerPool implements MeterBinder {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ImageProcessingWorkerPool.class);
+
+    private final List<ExecutorService> lanes;
+    private final ExecutorService virtualExecutor;
+    private final ConcurrentHashMap<String, CompletableFuture<Void>> keyTails = new ConcurrentHashMap<>();
+    private final Semaphore permits;
+    private final int maxInFlight;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger running = new AtomicInteger();
+
+    @Autowired
+    public ImageProcessingWorkerPool(@Value("${worker.pool.size:0}") int size,
+                                     @Value("${worker.pool.max-in-flight:0}") int maxInFlight,
+                                     @Value("${worker.pool.virtual-threads:false}") boolean virtualThreads) {
+        int laneCount = size > 0 ? size : Runtime.getRuntime().availableProcessors();
+        this.maxInFlight = maxInFlight > 0 ? maxInFlight : laneCount * 4;
+        this.permits = new Semaphore(this.maxInFlight);
+        this.lanes = new ArrayList<>(laneCount);
+        if (virtualThreads) {
+            this.virtualExecutor = VirtualThreads.newThreadPerTaskExecutor("image-worker-v");
+            LOGGER.info("Started virtual-thread image worker pool with {} max in-flight tasks", this.maxInFlight);
+            return;
+        }
+        this.virtualExecutor = null;
+        AtomicInteger threadIndex = new AtomicInteger();
+        for (int i = 0; i < laneCount; i++) {
+            lanes.add(Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "image-worker-" + threadIndex.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }));
+        }
+        LOGGER.info("Started image worker pool with {} lanes and {} max in-flight tasks", laneCount, this.maxInFlight);
+    }
+
+    /**
+     * Queues a task on the lane owned by {@code key}, blocking while the pool is saturated.
+     */
+    public void submit(String key, Runnable task) throws InterruptedException {
+        permits.acquire();
+        inFlight.incrementAndGet();
+        Runnable work = () -> {
+            running.incrementAndGet();
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                LOGGER.error("Unhandled error in image worker for key {}", key, e);
+            } finally {
+                running.decrementAndGet();
+                release();
+            }
+        };
+        try {
+            if (virtualExecutor != null) {
+                submitVirtual(key == null ? "" : key, work);
+            } else {
+                lanes.get(Math.floorMod(key == null ? 0 : key.hashCode(), lanes.size())).execute(work);
+            }
+        } catch (RuntimeException e) {
+            release();
+            throw e;
+        }
+    }
+
+    /**
+     * Starts the task on its own virtual thread once the previous task of the same key has finished.
+     */
+    private void submitVirtual(String key, Runnable work) {
+        CompletableFuture<Void> tail = keyTails.compute(key, (ignored, previous) -> previous == null
+                ? CompletableFuture.runAsync(work, virtualExecutor)
+                : previous.exceptionally(e -> null).thenRunAsync(work, virtualExecutor));
+        tail.whenComplete((result, error) -> keyTails.remove(key, tail));
+    }
+
+    private void release() {
+        inFlight.decrementAndGet();
+        permits.release();
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    /**
+     * Tasks accepted but not yet started.
+     */
+    public int getQueued() {
+        return Math.max(0, inFlight.get() - running.get());
+    }
+
+    public boolean isSaturated() {
+        return inFlight.get() >= maxInFlight;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("image.worker.queue.depth", this, ImageProcessingWorkerPool::getQueued)
+                .description("Tasks waiting for a worker lane")
+                .register(registry);
+        Gauge.builder("image.worker.active", running, AtomicInteger::get)
+                .description("Tasks currently running")
+                .register(registry);
+        Gauge.builder("image.worker.in.flight", inFlight, AtomicInteger::get)
+                .description("Tasks queued or running")
+                .register(registry);
+        Gauge.builder("image.worker.max.in.flight", this, ImageProcessingWorkerPool::getMaxInFlight)
+                .description("In-flight tasks at which submitting blocks")
+                .register(registry);
+        Gauge.builder("image.worker.lanes", lanes, List::size)
+                .description("Worker lanes")
+                .register(registry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        LOGGER.info("Shutting down image worker pool with {} tasks in flight", inFlight.get());
+        List<ExecutorService> executors = new ArrayList<>(lanes);
+        if (virtualExecutor != null) {
+            executors.add(virtualExecutor);
+        }
+        executors.forEach(ExecutorService::shutdown);
+        try {
+            for (ExecutorService executor : executors) {
+                if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+                    executor.shutdownNow();
+                }
+            }
+        } catch (InterruptedException e) {
+            executors.forEach(ExecutorService::shutdownNow);
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.ge.imageprocessorconsumer.consumer;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Backoff policy for failed messages and the tiered retry topics that hold them until they are due.
+ * <p>
+ * The delay of attempt {@code n} is {@code initial * multiplier^(n-1)}, capped at {@code max} and spread by
+ * {@code ±jitter}. A retry is parked on the smallest tier that is at least as long as its delay, so each tier
+ * topic holds messages that become due in roughly the order they were written.
+ */
+@Component
+public class RetryBackoff {
+
+    /**
+     * Epoch millis before which a retry record must not be processed.
+     */
+    public static final String NOT_BEFORE_HEADER = "retry-not-before";
+
+    private final int maxAttempts;
+    private final long initialDelayMs;
+    private final double multiplier;
+    private final long maxDelayMs;
+    private final double jitter;
+    private final List<Long> tierDelaysMs;
+    private final List<String> tierTopics;
+
+    @Autowired
+    public RetryBackoff(@Value("${retry.max-attempts:3}") int maxAttempts,
+                        @Value("${retry.backoff.initial-ms:1000}") long initialDelayMs,
+                        @Value("${retry.backoff.multiplier:10}") double multiplier,
+                        @Value("${retry.backoff.max-ms:60000}") long maxDelayMs,
+                        @Value("${retry.backoff.jitter:0.2}") double jitter,
+                        @Value("${retry.tiers-ms:1000,10000,60000}") List<Long> tierDelaysMs,
+                        @Value("${kafka.retry.topic.name}") String retryTopicPrefix) {
+        if (tierDelaysMs.isEmpty()) {
+            throw new IllegalArgumentException("At least one retry tier is required");
+        }
+        if (jitter < 0 || jitter >= 1) {
+            throw new IllegalArgumentException("Retry jitter must be in [0, 1): " + jitter);
+        }
+        this.maxAttempts = maxAttempts;
+        this.initialDelayMs = initialDelayMs;
+        this.multiplier = multiplier;
+        this.maxDelayMs = maxDelayMs;
+        this.jitter = jitter;
+        List<Long> sorted = new ArrayList<>(tierDelaysMs);
+        Collections.sort(sorted);
+        this.tierDelaysMs = List.copyOf(sorted);
+        this.tierTopics = sorted.stream().map(delay -> retryTopicPrefix + "-" + label(delay)).toList();
+    }
+
+    private static String label(long delayMs) {
+        return delayMs % 1000 == 0 ? delayMs / 1000 + "s" : delayMs + "ms";
+    }
+
+    public boolean canRetry(int retryCount) {
+        return retryCount < maxAttempts;
+    }
+
+    /**
+     * Jittered delay before retry number {@code attempt}, starting at 1.
+     */
+    public long delayFor(int attempt) {
+        double delay = initialDelayMs * Math.pow(multiplier, Math.max(0, attempt - 1));
+        delay = Math.min(delay, maxDelayMs);
+        if (jitter > 0) {
+            delay *= 1 + ThreadLocalRandom.current().nextDouble(-jitter, jitter);
+        }
+        return Math.max(0, Math.round(delay));
+    }
+
+    /**
+     * Index of the shortest tier that covers {@code delayMs}, or the longest tier.
+     */
+    public int tierFor(long delayMs) {
+        for (int i = 0; i < tierDelaysMs.size(); i++) {
+            if (delayMs <= tierDelaysMs.get(i)) {
+                return i;
+            }
+        }
+        return tierDelaysMs.size() - 1;
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public List<Long> getTierDelaysMs() {
+        return tierDelaysMs;
+    }
+
+    public List<String> getTierTopics() {
+        return tierTopics;
+    }
+}
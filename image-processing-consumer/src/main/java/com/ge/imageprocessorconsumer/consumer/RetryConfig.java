@@ -1,30 +1,49 @@
 package com.ge.imageprocessorconsumer.consumer;
 
 
+import com.ge.model.ImageProcessingMessage;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.retry.backoff.FixedBackOffPolicy;
-import org.springframework.retry.policy.SimpleRetryPolicy;
-import org.springframework.retry.support.RetryTemplate;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.listener.ContainerProperties;
 
+import java.util.Map;
+
+/**
+ * Batch listener container factory for the retry tier topics. Records that are not yet due are nacked, which pauses
+ * the consumer until then, so acks stay synchronous and on the consumer thread. A poll holds up to
+ * {@code retry.max-poll-records} retries, which run in parallel.
+ */
 @Configuration
 public class RetryConfig {
 
-    private final Integer MAX_RETRIES = 3;
-    private final Long BACKOFF_INTERVAL = 1000L; // 500 ms
-
-    @Bean
-    public RetryTemplate retryTemplate() {
-        RetryTemplate retryTemplate = new RetryTemplate();
-
-        SimpleRetryPolicy retryPolicy = new SimpleRetryPolicy();
-        retryPolicy.setMaxAttempts(MAX_RETRIES);
-        retryTemplate.setRetryPolicy(retryPolicy);
-
-        FixedBackOffPolicy backOffPolicy = new FixedBackOffPolicy();
-        backOffPolicy.setBackOffPeriod(BACKOFF_INTERVAL);
-        retryTemplate.setBackOffPolicy(backOffPolicy);
-
-        return retryTemplate;
+    public static final String RETRY_FACTORY = "retryKafkaListenerContainerFactory";
+
+    @Value("${retry.max-poll-records:50}")
+    private int maxPollRecords;
+
+    @Value("${retry.poll-timeout-ms:200}")
+    private long pollTimeoutMs;
+
+    @Bean(name = RETRY_FACTORY)
+    public ConcurrentKafkaListenerContainerFactory<String, ImageProcessingMessage> retryKafkaListenerContainerFactory(
+            KafkaProperties kafkaProperties) {
+        Map<String, Object> consumerProperties = kafkaProperties.buildConsumerProperties(null);
+        consumerProperties.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, maxPollRecords);
+        consumerProperties.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+
+        ConcurrentKafkaListenerContainerFactory<String, ImageProcessingMessage> factory
+                = new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(new DefaultKafkaConsumerFactory<>(consumerProperties));
+        factory.setBatchListener(true);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        factory.getContainerProperties().setAsyncAcks(false);
+        // A paused consumer only notices that its nack sleep has ended when poll returns
+        factory.getContainerProperties().setPollTimeout(pollTimeoutMs);
+        return factory;
     }
 }
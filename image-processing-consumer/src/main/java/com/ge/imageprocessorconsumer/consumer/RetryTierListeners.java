@@ -0,0 +1,176 @@
+package com.ge.imageprocessorconsumer.consumer;
+
+import com.ge.imageprocessorconsumer.processor.ImageProcessingPipeline;
+import com.ge.model.ImageProcessingMessage;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.header.Header;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.listener.BatchAcknowledgingMessageListener;
+import org.springframework.kafka.listener.ConcurrentMessageListenerContainer;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One listener container per retry tier topic. A record that is not yet due is nacked, which seeks it back and
+ * pauses that tier's consumer until the record's not-before time; the tier's partitions stay assigned and no thread
+ * sleeps. The due records of a poll run on the worker pool in parallel, under the same per-image ordering as first
+ * deliveries, and are committed together once all of them are processed or routed on.
+ * <p>
+ * Tiers take whole polls rather than handing single records off with async acks, because nacks, which pace the
+ * not-yet-due records, need synchronous acks.
+ * <p>
+ * Every tier has its own consumer, so a long tier waiting on its head record never holds back a shorter one.
+ */
+@Component
+public class RetryTierListeners implements SmartLifecycle {
+    private static final Logger LOGGER = LoggerFactory.getLogger(RetryTierListeners.class);
+
+    private final List<ConcurrentMessageListenerContainer<String, ImageProcessingMessage>> containers = new ArrayList<>();
+    private final ImageProcessingPipeline pipeline;
+    private final ImageProcessingFailureHandler failureHandler;
+    private final ImageProcessingWorkerPool workerPool;
+
+    private volatile boolean running;
+
+    @Autowired
+    public RetryTierListeners(
+            @Qualifier(RetryConfig.RETRY_FACTORY) ConcurrentKafkaListenerContainerFactory<String, ImageProcessingMessage> factory,
+            RetryBackoff backoff,
+            ImageProcessingPipeline pipeline,
+            ImageProcessingFailureHandler failureHandler,
+            ImageProcessingWorkerPool workerPool,
+            @Value("${spring.kafka.consumer.group-id}") String groupId
+    ) {
+        this.pipeline = pipeline;
+        this.failureHandler = failureHandler;
+        this.workerPool = workerPool;
+        for (int i = 0; i < backoff.getTierTopics().size(); i++) {
+            String topic = backoff.getTierTopics().get(i);
+            long maxWaitMs = backoff.getTierDelaysMs().get(i);
+            ConcurrentMessageListenerContainer<String, ImageProcessingMessage> container = factory.createContainer(topic);
+            container.getContainerProperties().setGroupId(groupId);
+            container.getContainerProperties().setMessageListener(
+                    (BatchAcknowledgingMessageListener<String, ImageProcessingMessage>) (records, acknowledgment) ->
+                            onRetries(records, acknowledgment, maxWaitMs));
+            container.setBeanName("image-retry-" + topic);
+            containers.add(container);
+        }
+    }
+
+    /**
+     * Runs the due head of the poll on the worker pool and waits for all of it, then commits it. The rest, from the
+     * first record not yet due, is nacked and comes back once that record is due.
+     */
+    private void onRetries(List<ConsumerRecord<String, ImageProcessingMessage>> records, Acknowledgment acknowledgment,
+                           long maxWaitMs) {
+        long now = System.currentTimeMillis();
+        int due = 0;
+        while (due < records.size() && notBefore(records.get(due)) <= now) {
+            due++;
+        }
+        // Index of the first record that is not done: not submitted, or failed and not routed
+        AtomicInteger incomplete = new AtomicInteger(due);
+        CountDownLatch done = new CountDownLatch(due);
+        boolean interrupted = false;
+        for (int i = 0; i < due; i++) {
+            int index = i;
+            ImageProcessingMessage message = records.get(i).value();
+            LOGGER.info("Retrying {} (attempt {}) from {}", message.getImageId(), message.getRetryCount(),
+                    records.get(i).topic());
+            try {
+                workerPool.submit(message.getImageId(), () -> {
+                    try {
+                        if (!processOrRoute(message)) {
+                            incomplete.accumulateAndGet(index, Math::min);
+                        }
+                    } finally {
+                        done.countDown();
+                    }
+                });
+            } catch (InterruptedException e) {
+                interrupted = true;
+                incomplete.accumulateAndGet(index, Math::min);
+                for (int skipped = i; skipped < due; skipped++) {
+                    done.countDown();
+                }
+                break;
+            }
+        }
+        // Submitted records finish before anything is nacked, so none of them is delivered again while still running
+        while (true) {
+            try {
+                done.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        int resumeAt = incomplete.get();
+        if (resumeAt == records.size()) {
+            acknowledgment.acknowledge();
+        } else if (resumeAt == due && !interrupted) {
+            // A record is never due later than its tier delay plus jitter, the cap keeps the pause below max.poll.interval.ms
+            long waitMs = notBefore(records.get(due)) - System.currentTimeMillis();
+            acknowledgment.nack(resumeAt, Duration.ofMillis(Math.max(0, Math.min(waitMs, maxWaitMs))));
+        } else {
+            acknowledgment.nack(resumeAt, Duration.ofMillis(interrupted ? 0 : maxWaitMs));
+        }
+    }
+
+    private boolean processOrRoute(ImageProcessingMessage message) {
+        try {
+            pipeline.execute(message);
+            return true;
+        } catch (Exception e) {
+            LOGGER.error("Error retrying message: {}", message.getImageId(), e);
+            return failureHandler.handleFailure(message, e);
+        }
+    }
+
+    private static long notBefore(ConsumerRecord<?, ?> record) {
+        Header header = record.headers().lastHeader(RetryBackoff.NOT_BEFORE_HEADER);
+        if (header == null) {
+            return 0L;
+        }
+        try {
+            return Long.parseLong(new String(header.value(), StandardCharsets.UTF_8));
+        } catch (NumberFormatException e) {
+            LOGGER.warn("Ignoring malformed {} header on {}", RetryBackoff.NOT_BEFORE_HEADER, record.topic());
+            return 0L;
+        }
+    }
+
+    @Override
+    public void start() {
+        containers.forEach(ConcurrentMessageListenerContainer::start);
+        running = true;
+        LOGGER.info("Started {} retry tier listeners", containers.size());
+    }
+
+    @Override
+    public void stop() {
+        containers.forEach(ConcurrentMessageListenerContainer::stop);
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+}
@@ -0,0 +1,167 @@
+package com.ge.imageprocessorconsumer.imaging;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.PixelInterleavedSampleModel;
+import java.awt.image.Raster;
+import java.awt.image.SinglePixelPackedSampleModel;
+
+/**
+ * Packed 0xAARRGGBB pixels in row-major order. Pixels are read straight from the backing
+ * {@code int[]}/{@code byte[]} of the common ImageIO image types instead of through per-pixel {@code getRGB}.
+ * The array may be longer than {@code width * height} when it comes from an {@link ImageBufferPool}.
+ */
+public final class ArgbRaster {
+
+    private final int[] pixels;
+    private final int width;
+    private final int height;
+    private final boolean alpha;
+    private final BufferedImage image;
+
+    private ArgbRaster(int[] pixels, int width, int height, boolean alpha, BufferedImage image) {
+        this.pixels = pixels;
+        this.width = width;
+        this.height = height;
+        this.alpha = alpha;
+        this.image = image;
+    }
+
+    /**
+     * Wraps a plain pixel array that is not backed by an image.
+     */
+    public static ArgbRaster wrap(int[] pixels, int width, int height, boolean alpha) {
+        return new ArgbRaster(pixels, width, height, alpha, null);
+    }
+
+    /**
+     * Allocates a {@code TYPE_INT_ARGB} or {@code TYPE_INT_RGB} image and exposes its data array,
+     * so writing pixels writes the image directly.
+     */
+    public static ArgbRaster allocate(int width, int height, boolean alpha) {
+        BufferedImage image = new BufferedImage(width, height,
+                alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        int[] data = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        return new ArgbRaster(data, width, height, alpha, image);
+    }
+
+    /**
+     * Reads an image into packed ARGB. For {@code TYPE_INT_RGB}/{@code TYPE_INT_ARGB} the image's own array
+     * is returned without copying, so callers must treat the pixels as read-only.
+     * For opaque images the alpha byte is undefined and should be ignored.
+     */
+    public static ArgbRaster of(BufferedImage image) {
+        return of(image, ImageBufferPool.disabled());
+    }
+
+    /**
+     * Like {@link #of(BufferedImage)}, converting into an array taken from the pool. Converted pixels go back to
+     * the pool with {@link #release}.
+     */
+    public static ArgbRaster of(BufferedImage image, ImageBufferPool pool) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        boolean alpha = image.getColorModel().hasAlpha();
+        Raster raster = image.getRaster();
+        int pixelCount = width * height;
+
+        switch (image.getType()) {
+            case BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_INT_ARGB -> {
+                if (isPackedAndTight(raster, width)) {
+                    int[] data = ((DataBufferInt) raster.getDataBuffer()).getData();
+                    return new ArgbRaster(data, width, height, alpha, image);
+                }
+            }
+            case BufferedImage.TYPE_3BYTE_BGR -> {
+                if (isInterleavedAndTight(raster, width, 3)) {
+                    byte[] data = ((DataBufferByte) raster.getDataBuffer()).getData();
+                    int[] out = pool.acquireInts(pixelCount);
+                    for (int i = 0, j = 0; i < pixelCount; i++, j += 3) {
+                        out[i] = 0xFF000000 | (data[j + 2] & 0xFF) << 16 | (data[j + 1] & 0xFF) << 8 | (data[j] & 0xFF);
+                    }
+                    return new ArgbRaster(out, width, height, false, null);
+                }
+            }
+            case BufferedImage.TYPE_4BYTE_ABGR -> {
+                if (isInterleavedAndTight(raster, width, 4)) {
+                    byte[] data = ((DataBufferByte) raster.getDataBuffer()).getData();
+                    int[] out = pool.acquireInts(pixelCount);
+                    for (int i = 0, j = 0; i < pixelCount; i++, j += 4) {
+                        out[i] = (data[j] & 0xFF) << 24 | (data[j + 3] & 0xFF) << 16
+                                | (data[j + 2] & 0xFF) << 8 | (data[j + 1] & 0xFF);
+                    }
+                    return new ArgbRaster(out, width, height, true, null);
+                }
+            }
+            case BufferedImage.TYPE_BYTE_GRAY -> {
+                if (isInterleavedAndTight(raster, width, 1)) {
+                    byte[] data = ((DataBufferByte) raster.getDataBuffer()).getData();
+                    int[] out = pool.acquireInts(pixelCount);
+                    for (int i = 0; i < pixelCount; i++) {
+                        int g = data[i] & 0xFF;
+                        out[i] = 0xFF000000 | g << 16 | g << 8 | g;
+                    }
+                    return new ArgbRaster(out, width, height, false, null);
+                }
+            }
+            default -> {
+                // Indexed, 16-bit and custom layouts go through the color model below
+            }
+        }
+        int[] out = image.getRGB(0, 0, width, height, pool.acquireInts(pixelCount), 0, width);
+        return new ArgbRaster(out, width, height, alpha, null);
+    }
+
+    private static boolean isPackedAndTight(Raster raster, int width) {
+        return raster.getParent() == null
+                && raster.getDataBuffer().getOffset() == 0
+                && raster.getSampleModel() instanceof SinglePixelPackedSampleModel sm
+                && sm.getScanlineStride() == width;
+    }
+
+    private static boolean isInterleavedAndTight(Raster raster, int width, int bands) {
+        return raster.getParent() == null
+                && raster.getDataBuffer().getOffset() == 0
+                && raster.getSampleModel() instanceof PixelInterleavedSampleModel sm
+                && sm.getPixelStride() == bands
+                && sm.getScanlineStride() == width * bands;
+    }
+
+    /**
+     * Returns the image backing these pixels, creating one if the raster was converted or wrapped.
+     */
+    public BufferedImage toImage() {
+        if (image != null) {
+            return image;
+        }
+        ArgbRaster target = allocate(width, height, alpha);
+        System.arraycopy(pixels, 0, target.pixels, 0, width * height);
+        return target.image;
+    }
+
+    /**
+     * Returns pixels that were converted or wrapped to the pool they came from; pixels of an image are left alone.
+     */
+    public void release(ImageBufferPool pool) {
+        if (image == null) {
+            pool.release(pixels);
+        }
+    }
+
+    public int[] getPixels() {
+        return pixels;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public boolean hasAlpha() {
+        return alpha;
+    }
+}
@@ -0,0 +1,71 @@
+package com.ge.imageprocessorconsumer.imaging;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Bounds how many threads run CPU-bound image work at once: decodes, encodes and kernels too small to be split
+ * over the {@link RowBandExecutor} pool, which run on the calling thread.
+ * <p>
+ * With virtual-thread workers thousands of messages can be in flight, most of them parked on storage or Kafka.
+ * Only {@code imaging.cpu-permits} of them (the number of cores by default) decode, encode or transform at a time;
+ * the others wait for a permit, which parks a virtual thread without holding a carrier. Work never waits for
+ * another permit while holding one, so the gate cannot deadlock.
+ */
+@Component
+public class ComputeGate {
+
+    private static final ComputeGate UNBOUNDED = new ComputeGate(null);
+
+    private final Semaphore permits;
+
+    @FunctionalInterface
+    public interface Work<T> {
+        T call() throws IOException;
+    }
+
+    @Autowired
+    public ComputeGate(@Value("${imaging.cpu-permits:0}") int permits) {
+        this(new Semaphore(permits > 0 ? permits : Runtime.getRuntime().availableProcessors()));
+    }
+
+    private ComputeGate(Semaphore permits) {
+        this.permits = permits;
+    }
+
+    /**
+     * A gate that never waits, for code run outside the application context.
+     */
+    public static ComputeGate unbounded() {
+        return UNBOUNDED;
+    }
+
+    public <T> T call(Work<T> work) throws IOException {
+        if (permits == null) {
+            return work.call();
+        }
+        permits.acquireUninterruptibly();
+        try {
+            return work.call();
+        } finally {
+            permits.release();
+        }
+    }
+
+    public void run(Runnable work) {
+        if (permits == null) {
+            work.run();
+            return;
+        }
+        permits.acquireUninterruptibly();
+        try {
+            work.run();
+        } finally {
+            permits.release();
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.ge.imageprocessorconsumer.imaging;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.awt.color.ColorSpace;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorConvertOp;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.PixelInterleavedSampleModel;
+import java.awt.image.Raster;
+import java.awt.image.SinglePixelPackedSampleModel;
+
+/**
+ * Converts images to {@code TYPE_BYTE_GRAY}.
+ * <p>
+ * {@link Mode#FAST} computes luma from the gamma-encoded channels with 16-bit fixed-point weights, reading and
+ * writing the raster arrays directly in parallel row strips. {@link Mode#COLOR_ACCURATE} keeps the ICC
+ * {@link ColorConvertOp} conversion to the linear {@code CS_GRAY} space, which is several times slower and
+ * produces different (darker mid-tone) values.
+ */
+@Component
+public class GrayscaleKernel {
+
+    public enum Mode {
+        FAST,
+        COLOR_ACCURATE;
+
+        public static Mode fromName(String name) {
+            return valueOf(name.trim().toUpperCase().replace('-', '_'));
+        }
+    }
+
+    public enum Weights {
+        BT601(19595, 38470, 7471),
+        BT709(13933, 46871, 4732);
+
+        // Each triple sums to 65536
+        private final int red;
+        private final int green;
+        private final int blue;
+
+        Weights(int red, int green, int blue) {
+            this.red = red;
+            this.green = green;
+            this.blue = blue;
+        }
+
+        public static Weights fromName(String name) {
+            return valueOf(name.trim().toUpperCase().replace(".", ""));
+        }
+    }
+
+    private static final int ROUND = 1 << 15;
+
+    private final RowBandExecutor bands;
+
+    @Autowired
+    public GrayscaleKernel(RowBandExecutor bands) {
+        this.bands = bands;
+    }
+
+    /**
+     * Converts {@code source} to gray. {@code destination} is reused when it is a {@code TYPE_BYTE_GRAY} image of the
+     * same size, otherwise a new one is allocated.
+     */
+    public BufferedImage apply(BufferedImage source, BufferedImage destination, Mode mode, Weights weights) {
+        int width = source.getWidth();
+        int height = source.getHeight();
+        BufferedImage gray = isReusable(destination, width, height)
+                ? destination
+                : new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+
+        if (mode == Mode.COLOR_ACCURATE) {
+            ColorConvertOp op = new ColorConvertOp(ColorSpace.getInstance(ColorSpace.CS_GRAY), null);
+            op.filter(source, gray);
+            return gray;
+        }
+
+        byte[] out = ((DataBufferByte) gray.getRaster().getDataBuffer()).getData();
+        Raster raster = source.getRaster();
+        int wr = weights.red;
+        int wg = weights.green;
+        int wb = weights.blue;
+
+        switch (source.getType()) {
+            case BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_INT_ARGB -> {
+                if (raster.getParent() == null && raster.getDataBuffer().getOffset() == 0
+                        && raster.getSampleModel() instanceof SinglePixelPackedSampleModel sm
+                        && sm.getScanlineStride() == width) {
+                    int[] in = ((DataBufferInt) raster.getDataBuffer()).getData();
+                    bands.forEachBand(height, width, (from, to) -> {
+                        for (int i = from * width, end = to * width; i < end; i++) {
+                            int p = in[i];
+                            out[i] = (byte) ((((p >> 16) & 0xFF) * wr + ((p >> 8) & 0xFF) * wg + (p & 0xFF) * wb + ROUND) >>> 16);
+                        }
+                    });
+                    return gray;
+                }
+            }
+            case BufferedImage.TYPE_3BYTE_BGR, BufferedImage.TYPE_4BYTE_ABGR -> {
+                int stride = source.getType() == BufferedImage.TYPE_3BYTE_BGR ? 3 : 4;
+                // ABGR keeps alpha in the first byte of each pixel
+                int first = stride - 3;
+                if (raster.getParent() == null && raster.getDataBuffer().getOffset() == 0
+                        && raster.getSampleModel() instanceof PixelInterleavedSampleModel sm
+                        && sm.getPixelStride() == stride && sm.getScanlineStride() == width * stride) {
+                    byte[] in = ((DataBufferByte) raster.getDataBuffer()).getData();
+                    bands.forEachBand(height, width, (from, to) -> {
+                        for (int i = from * width, j = i * stride + first, end = to * width; i < end; i++, j += stride) {
+                            out[i] = (byte) (((in[j + 2] & 0xFF) * wr + (in[j + 1] & 0xFF) * wg + (in[j] & 0xFF) * wb + ROUND) >>> 16);
+                        }
+                    });
+                    return gray;
+                }
+            }
+            case BufferedImage.TYPE_BYTE_GRAY -> {
+                if (raster.getParent() == null && raster.getDataBuffer().getOffset() == 0
+                        && raster.getSampleModel() instanceof PixelInterleavedSampleModel sm
+                        && sm.getScanlineStride() == width) {
+                    System.arraycopy(((DataBufferByte) raster.getDataBuffer()).getData(), 0, out, 0, width * height);
+                    return gray;
+                }
+            }
+            default -> {
+                // Indexed and custom layouts are unpacked to ARGB first
+            }
+        }
+        int[] in = ArgbRaster.of(source).getPixels();
+        bands.forEachBand(height, width, (from, to) -> {
+            for (int i = from * width, end = to * width; i < end; i++) {
+                int p = in[i];
+                out[i] = (byte) ((((p >> 16) & 0xFF) * wr + ((p >> 8) & 0xFF) * wg + (p & 0xFF) * wb + ROUND) >>> 16);
+            }
+        });
+        return gray;
+    }
+
+    private static boolean isReusable(BufferedImage destination, int width, int height) {
+        return destination != null
+                && destination.getType() == BufferedImage.TYPE_BYTE_GRAY
+                && destination.getWidth() == width
+                && destination.getHeight() == height
+                && destination.getRaster().getParent() == null;
+    }
+}
@@ -0,0 +1,383 @@
+package com.ge.imageprocessorconsumer.imaging;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.awt.Transparency;
+import java.awt.color.ColorSpace;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.ComponentColorModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DirectColorModel;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Hashtable;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Reusable {@code int[]} and {@code byte[]} buffers for pixels and encoded images, so the arrays of every message
+ * are not allocated afresh and promoted to the old generation.
+ * <p>
+ * Lengths are rounded up to size classes of a quarter power of two, so an array may be longer than requested and
+ * holds data from its previous use. Released arrays are kept up to {@code imaging.buffer-pool.max-bytes} in total;
+ * beyond that, and for arrays larger than an eighth of it, they are left to the garbage collector. A limit of 0
+ * disables pooling: arrays are allocated at their exact length and releases are ignored.
+ * <p>
+ * Buffers handed out and not yet released are tracked, so {@link #getOutstanding()} exposes leaks and releasing
+ * an array twice fails. Per-message buffers are taken through a {@link Scope}, which releases them all on close.
+ */
+@Component
+public class ImageBufferPool implements MeterBinder {
+
+    /**
+     * Image property set on images backed by pooled buffers, which must not outlive their scope.
+     */
+    public static final String POOLED_PROPERTY = "image-buffer-pool.pooled";
+
+    private static final int MIN_CLASS = 1024;
+
+    private static final ImageBufferPool DISABLED = new ImageBufferPool(0);
+
+    private static final ColorModel RGB = new DirectColorModel(24, 0xFF0000, 0xFF00, 0xFF);
+    private static final int[] RGB_MASKS = {0xFF0000, 0xFF00, 0xFF};
+    private static final int[] ARGB_MASKS = {0xFF0000, 0xFF00, 0xFF, 0xFF000000};
+    private static final ColorModel GRAY = new ComponentColorModel(ColorSpace.getInstance(ColorSpace.CS_GRAY),
+            false, false, Transparency.OPAQUE, DataBuffer.TYPE_BYTE);
+
+    private final long maxBytes;
+    private final Map<Integer, ConcurrentLinkedDeque<int[]>> ints = new ConcurrentHashMap<>();
+    private final Map<Integer, ConcurrentLinkedDeque<byte[]>> bytes = new ConcurrentHashMap<>();
+    private final Set<Object> outstanding = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final AtomicLong retainedBytes = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    @Autowired
+    public ImageBufferPool(@Value("${imaging.buffer-pool.max-bytes:134217728}") long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * A pool that always allocates, for callers without one.
+     */
+    public static ImageBufferPool disabled() {
+        return DISABLED;
+    }
+
+    public boolean isEnabled() {
+        return maxBytes > 0;
+    }
+
+    /**
+     * Whether the image is backed by buffers of a pool and must not be kept beyond the scope that created it.
+     */
+    public static boolean isPooled(BufferedImage image) {
+        return Boolean.TRUE.equals(image.getProperty(POOLED_PROPERTY));
+    }
+
+    /**
+     * An array of at least {@code length} ints with undefined contents.
+     */
+    public int[] acquireInts(int length) {
+        if (!isEnabled()) {
+            return new int[length];
+        }
+        int size = sizeClass(length);
+        int[] array = poll(ints, size, 4L);
+        if (array == null) {
+            array = new int[size];
+        }
+        track(array);
+        return array;
+    }
+
+    /**
+     * An array of at least {@code length} bytes with undefined contents.
+     */
+    public byte[] acquireBytes(int length) {
+        if (!isEnabled()) {
+            return new byte[length];
+        }
+        int size = sizeClass(length);
+        byte[] array = poll(bytes, size, 1L);
+        if (array == null) {
+            array = new byte[size];
+        }
+        track(array);
+        return array;
+    }
+
+    public void release(int[] array) {
+        if (isEnabled()) {
+            untrack(array);
+            offer(ints, array, array.length, 4L);
+        }
+    }
+
+    public void release(byte[] array) {
+        if (isEnabled()) {
+            untrack(array);
+            offer(bytes, array, array.length, 1L);
+        }
+    }
+
+    public Scope scope() {
+        return new Scope();
+    }
+
+    /**
+     * Buffers acquired and not yet released.
+     */
+    public int getOutstanding() {
+        synchronized (outstanding) {
+            return outstanding.size();
+        }
+    }
+
+    public long getRetainedBytes() {
+        return retainedBytes.get();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("image.buffer.pool.retained", retainedBytes, AtomicLong::get)
+                .description("Bytes of released buffers kept for reuse")
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("image.buffer.pool.outstanding", this, ImageBufferPool::getOutstanding)
+                .description("Buffers acquired and not yet released")
+                .register(registry);
+        FunctionCounter.builder("image.buffer.pool.requests", hits, AtomicLong::get)
+                .tag("result", "hit")
+                .description("Buffer requests served from the pool or allocated")
+                .register(registry);
+        FunctionCounter.builder("image.buffer.pool.requests", misses, AtomicLong::get)
+                .tag("result", "miss")
+                .description("Buffer requests served from the pool or allocated")
+                .register(registry);
+    }
+
+    /**
+     * Smallest size class holding {@code length}: a multiple of a quarter of the power of two below it.
+     */
+    static int sizeClass(int length) {
+        if (length <= MIN_CLASS) {
+            return MIN_CLASS;
+        }
+        int step = Integer.highestOneBit(length - 1) / 4;
+        return (int) Math.min(Integer.MAX_VALUE - 8, ((long) length + step - 1) / step * step);
+    }
+
+    private <T> T poll(Map<Integer, ConcurrentLinkedDeque<T>> classes, int size, long elementBytes) {
+        ConcurrentLinkedDeque<T> free = classes.get(size);
+        T array = free == null ? null : free.pollFirst();
+        if (array == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        retainedBytes.addAndGet(-size * elementBytes);
+        hits.incrementAndGet();
+        return array;
+    }
+
+    private <T> void offer(Map<Integer, ConcurrentLinkedDeque<T>> classes, T array, int length, long elementBytes) {
+        long arrayBytes = length * elementBytes;
+        if (length != sizeClass(length) || arrayBytes > maxBytes / 8) {
+            return;
+        }
+        if (retainedBytes.addAndGet(arrayBytes) > maxBytes) {
+            retainedBytes.addAndGet(-arrayBytes);
+            return;
+        }
+        classes.computeIfAbsent(length, size -> new ConcurrentLinkedDeque<>()).offerFirst(array);
+    }
+
+    private void track(Object array) {
+        synchronized (outstanding) {
+            outstanding.add(array);
+        }
+    }
+
+    private void untrack(Object array) {
+        synchronized (outstanding) {
+            if (!outstanding.remove(array)) {
+                throw new IllegalStateException("Buffer was already released or not acquired from this pool");
+            }
+        }
+    }
+
+    /**
+     * Growable byte sink on pooled arrays, for encoder output or downloads whose size is not known up front.
+     */
+    public EncodeBuffer encodeBuffer(int expectedSize) {
+        return new EncodeBuffer(expectedSize);
+    }
+
+    private static Hashtable<String, Object> pooledProperties() {
+        Hashtable<String, Object> properties = new Hashtable<>();
+        properties.put(POOLED_PROPERTY, Boolean.TRUE);
+        return properties;
+    }
+
+    /**
+     * Keeps its bytes in one pooled array, replaced by a larger one as it fills.
+     */
+    public final class EncodeBuffer extends OutputStream {
+        private byte[] buffer;
+        private int count;
+
+        private EncodeBuffer(int expectedSize) {
+            this.buffer = acquireBytes(Math.max(expectedSize, MIN_CLASS));
+        }
+
+        @Override
+        public void write(int b) {
+            ensureCapacity(count + 1);
+            buffer[count++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) {
+            ensureCapacity(count + length);
+            System.arraycopy(bytes, offset, buffer, count, length);
+            count += length;
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (capacity > buffer.length) {
+                byte[] larger = acquireBytes(Math.max(capacity, buffer.length * 2));
+                System.arraycopy(buffer, 0, larger, 0, count);
+                release(buffer);
+                buffer = larger;
+            }
+        }
+
+        public int size() {
+            return count;
+        }
+
+        /**
+         * Writes the bytes to {@code channel} straight from the pooled array.
+         */
+        public void writeTo(WritableByteChannel channel) throws IOException {
+            ByteBuffer bytes = ByteBuffer.wrap(buffer, 0, count);
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+        }
+
+        /**
+         * Writes the bytes to {@code output} straight from the pooled array.
+         */
+        public void writeTo(OutputStream output) throws IOException {
+            output.write(buffer, 0, count);
+        }
+
+        /**
+         * The bytes written, backed by the pooled array and only valid until the buffer is closed.
+         */
+        public ByteBuffer byteBuffer() {
+            return ByteBuffer.wrap(buffer, 0, count);
+        }
+
+        /**
+         * A copy of the bytes written, which stays valid after the buffer is released.
+         */
+        public byte[] toByteArray() {
+            return Arrays.copyOf(buffer, count);
+        }
+
+        /**
+         * Returns the array to the pool.
+         */
+        @Override
+        public void close() {
+            if (buffer != null) {
+                release(buffer);
+                buffer = null;
+            }
+        }
+    }
+
+    /**
+     * Buffers taken for one unit of work, such as a message going through the pipeline, and released together.
+     * Not thread-safe; images and arrays from a scope must not be used after it is closed.
+     */
+    public final class Scope implements AutoCloseable {
+        private final List<int[]> intArrays = new ArrayList<>();
+        private final List<byte[]> byteArrays = new ArrayList<>();
+
+        private Scope() {
+        }
+
+        public int[] ints(int length) {
+            int[] array = acquireInts(length);
+            if (isEnabled()) {
+                intArrays.add(array);
+            }
+            return array;
+        }
+
+        public byte[] bytes(int length) {
+            byte[] array = acquireBytes(length);
+            if (isEnabled()) {
+                byteArrays.add(array);
+            }
+            return array;
+        }
+
+        /**
+         * A {@code TYPE_INT_ARGB} or {@code TYPE_INT_RGB} image on a pooled array, with undefined pixels.
+         */
+        public BufferedImage argbImage(int width, int height, boolean alpha) {
+            if (!isEnabled()) {
+                return new BufferedImage(width, height, alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+            }
+            DataBufferInt buffer = new DataBufferInt(ints(width * height), width * height);
+            WritableRaster raster = Raster.createPackedRaster(buffer, width, height, width,
+                    alpha ? ARGB_MASKS : RGB_MASKS, null);
+            return new BufferedImage(alpha ? ColorModel.getRGBdefault() : RGB, raster, false, pooledProperties());
+        }
+
+        /**
+         * A {@code TYPE_BYTE_GRAY} image on a pooled array, with undefined pixels.
+         */
+        public BufferedImage grayImage(int width, int height) {
+            if (!isEnabled()) {
+                return new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+            }
+            DataBufferByte buffer = new DataBufferByte(bytes(width * height), width * height);
+            WritableRaster raster = Raster.createInterleavedRaster(buffer, width, height, width, 1, new int[]{0}, null);
+            return new BufferedImage(GRAY, raster, false, pooledProperties());
+        }
+
+        @Override
+        public void close() {
+            intArrays.forEach(ImageBufferPool.this::release);
+            byteArrays.forEach(ImageBufferPool.this::release);
+            intArrays.clear();
+            byteArrays.clear();
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.ge.imageprocessorconsumer.imaging;
+
+/**
+ * Reconstruction filters available to the resize engine, ordered roughly by cost and quality.
+ */
+public enum ResampleFilter {
+    NEAREST(0.5) {
+        @Override
+        double weight(double x) {
+            return x >= -0.5 && x < 0.5 ? 1.0 : 0.0;
+        }
+    },
+    BILINEAR(1.0) {
+        @Override
+        double weight(double x) {
+            x = Math.abs(x);
+            return x < 1.0 ? 1.0 - x : 0.0;
+        }
+    },
+    BICUBIC(2.0) {
+        // Catmull-Rom (a = -0.5)
+        @Override
+        double weight(double x) {
+            final double a = -0.5;
+            x = Math.abs(x);
+            if (x < 1.0) {
+                return ((a + 2.0) * x - (a + 3.0)) * x * x + 1.0;
+            }
+            if (x < 2.0) {
+                return (((x - 5.0) * x + 8.0) * x - 4.0) * a;
+            }
+            return 0.0;
+        }
+    },
+    LANCZOS(3.0) {
+        @Override
+        double weight(double x) {
+            x = Math.abs(x);
+            if (x < 1e-8) {
+                return 1.0;
+            }
+            if (x >= 3.0) {
+                return 0.0;
+            }
+            double px = Math.PI * x;
+            return 3.0 * Math.sin(px) * Math.sin(px / 3.0) / (px * px);
+        }
+    };
+
+    private final double support;
+
+    ResampleFilter(double support) {
+        this.support = support;
+    }
+
+    /**
+     * Radius of the filter in source pixels at a scale factor of 1.
+     */
+    double support() {
+        return support;
+    }
+
+    abstract double weight(double x);
+
+    public static ResampleFilter fromName(String name) {
+        return valueOf(name.trim().toUpperCase());
+    }
+}
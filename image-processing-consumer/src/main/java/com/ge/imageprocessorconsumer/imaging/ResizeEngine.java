@@ -0,0 +1,643 @@
+package com.ge.imageprocessorconsumer.imaging;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Separable convolution resampler working on packed ARGB arrays.
+ * <p>
+ * Large reductions are first halved with a 2x2 box filter until the remaining factor is below 2,
+ * then the selected filter runs once horizontally and once vertically. Every pass is split into
+ * row bands by {@link RowBandExecutor}.
+ * <p>
+ * Images too large to decode whole are resized from a {@link StripSource}: each strip of source rows is resampled
+ * horizontally as it arrives and output rows are emitted as soon as all the rows under their vertical filter have
+ * been seen, so only a strip and the filter window are held at a time.
+ * <p>
+ * Sources whose decoder can skip pixels may also be decoded subsampled by an integer period chosen with
+ * {@link #subsampling}, so large reductions start from an intermediate a few times the output size.
+ */
+@Component
+public class ResizeEngine {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ResizeEngine.class);
+
+    private static final int PRECISION_BITS = 14;
+    private static final int ONE = 1 << PRECISION_BITS;
+    private static final int HALF = 1 << (PRECISION_BITS - 1);
+
+    private final RowBandExecutor bands;
+
+    private final ImageBufferPool pool;
+
+    public ResizeEngine(RowBandExecutor bands) {
+        this(bands, ImageBufferPool.disabled());
+    }
+
+    /**
+     * Intermediate arrays are taken from and returned to {@code pool}.
+     */
+    @Autowired
+    public ResizeEngine(RowBandExecutor bands, ImageBufferPool pool) {
+        this.bands = bands;
+        this.pool = pool;
+    }
+
+    /**
+     * Resizes an image according to the options. Returns the source itself when no scaling is needed.
+     */
+    public BufferedImage resize(BufferedImage source, ResizeOptions options) {
+        return resize(source, options, ImageBufferPool.disabled().scope());
+    }
+
+    /**
+     * Resizes into an image whose pixels belong to {@code scope}.
+     */
+    public BufferedImage resize(BufferedImage source, ResizeOptions options, ImageBufferPool.Scope scope) {
+        int sw = source.getWidth();
+        int sh = source.getHeight();
+        Geometry geometry = geometry(sw, sh, options);
+        if (geometry.dw() == sw && geometry.dh() == sh) {
+            return source;
+        }
+
+        long start = System.nanoTime();
+        ArgbRaster src = ArgbRaster.of(source, pool);
+        ArgbRaster cropped = src;
+        ArgbRaster result;
+        try {
+            if (geometry.cropW() != sw || geometry.cropH() != sh) {
+                cropped = crop(src, geometry.cropX(), geometry.cropY(), geometry.cropW(), geometry.cropH());
+            }
+            result = resize(cropped, geometry.dw(), geometry.dh(), options.getFilter(), scope);
+        } finally {
+            src.release(pool);
+            if (cropped != src) {
+                cropped.release(pool);
+            }
+        }
+        LOGGER.debug("Resized {}x{} to {}x{} ({}) in {} ms", sw, sh, geometry.dw(), geometry.dh(), options,
+                (System.nanoTime() - start) / 1_000_000);
+        return result.toImage();
+    }
+
+    /**
+     * Resizes to every size in {@code sizes}, each bounding both sides like a {@code size x size} target with the
+     * other settings of {@code options}. Only the largest level is resized from the source; every other level is
+     * resized from the one above it, so each pass reads a few times its output rather than the whole source.
+     * Returns the levels keyed by size, largest first, with pixels belonging to {@code scope}.
+     */
+    public Map<Integer, BufferedImage> pyramid(BufferedImage source, Collection<Integer> sizes, ResizeOptions options,
+                                               ImageBufferPool.Scope scope) {
+        long start = System.nanoTime();
+        Map<Integer, BufferedImage> levels = new LinkedHashMap<>();
+        BufferedImage previous = source;
+        for (int size : new TreeSet<>(sizes).descendingSet()) {
+            previous = resize(previous, options.withSize(size, size), scope);
+            levels.put(size, previous);
+        }
+        LOGGER.debug("Built {} levels from {}x{} ({}) in {} ms", levels.keySet(), source.getWidth(),
+                source.getHeight(), options, (System.nanoTime() - start) / 1_000_000);
+        return levels;
+    }
+
+    /**
+     * Resizes an image decoded {@code stripRows} source rows at a time. Produces the same size and crop as
+     * {@link #resize(BufferedImage, ResizeOptions)}; large reductions use the widened filter instead of box halving.
+     */
+    public BufferedImage resize(StripSource source, ResizeOptions options, int stripRows) throws IOException {
+        return resize(source, options, 1, stripRows);
+    }
+
+    /**
+     * Resizes an image decoded with every {@code period}-th source pixel along each axis, {@code stripRows}
+     * subsampled rows at a time. The output has the same size and crop as without subsampling; the filter runs
+     * on the subsampled crop.
+     */
+    public BufferedImage resize(StripSource source, ResizeOptions options, int period, int stripRows)
+            throws IOException {
+        return resize(source, options, period, stripRows, ImageBufferPool.disabled().scope());
+    }
+
+    /**
+     * Subsampled strip resize into an image whose pixels belong to {@code scope}.
+     */
+    public BufferedImage resize(StripSource source, ResizeOptions options, int period, int stripRows,
+                                ImageBufferPool.Scope scope) throws IOException {
+        int sw = source.getWidth();
+        int sh = source.getHeight();
+        Geometry geometry = geometry(sw, sh, options);
+        if (geometry.dw() == sw && geometry.dh() == sh) {
+            return source.readRegion(0, 0, sw, sh);
+        }
+        if (period > 1) {
+            StripSource sampled = new SubsampledCrop(source, geometry, period);
+            // Resized to the exact output size of the full-resolution geometry, the crop is already applied
+            ResizeOptions exact = new ResizeOptions(geometry.dw(), geometry.dh(), options.getFilter(),
+                    ResizeMode.EXACT, true);
+            return resize(sampled, exact, 1, stripRows, scope);
+        }
+        long start = System.nanoTime();
+        StripResize resize = null;
+        ArgbRaster result;
+        try {
+            int end = geometry.cropY() + geometry.cropH();
+            for (int y = geometry.cropY(); y < end; y += stripRows) {
+                int rows = Math.min(stripRows, end - y);
+                ArgbRaster strip = ArgbRaster.of(source.readRegion(geometry.cropX(), y, geometry.cropW(), rows), pool);
+                try {
+                    if (resize == null) {
+                        resize = new StripResize(geometry, options.getFilter(), strip.hasAlpha(), scope);
+                    }
+                    resize.push(strip);
+                } finally {
+                    strip.release(pool);
+                }
+            }
+            result = resize.finish();
+        } finally {
+            if (resize != null) {
+                resize.releaseWindow();
+            }
+        }
+        LOGGER.debug("Resized {}x{} to {}x{} ({}) in strips of {} rows in {} ms", sw, sh, geometry.dw(), geometry.dh(),
+                options, stripRows, (System.nanoTime() - start) / 1_000_000);
+        return result.toImage();
+    }
+
+    /**
+     * Largest decode subsampling period that still leaves at least {@code minScale} times the output size along
+     * both axes of the source crop, or 1 when the reduction is too small to subsample.
+     */
+    public int subsampling(int sw, int sh, ResizeOptions options, double minScale) {
+        Geometry geometry = geometry(sw, sh, options);
+        double period = Math.min(geometry.cropW() / (geometry.dw() * minScale),
+                geometry.cropH() / (geometry.dh() * minScale));
+        return Math.max(1, (int) period);
+    }
+
+    /**
+     * Output size and the centered source crop for the options.
+     */
+    private record Geometry(int dw, int dh, int cropX, int cropY, int cropW, int cropH) {
+    }
+
+    private static Geometry geometry(int sw, int sh, ResizeOptions options) {
+        double scale = scaleFor(sw, sh, options);
+        if (options.getMode() == ResizeMode.EXACT) {
+            return new Geometry(options.getWidth(), options.getHeight(), 0, 0, sw, sh);
+        }
+        if (options.getMode() == ResizeMode.FILL) {
+            int dw = Math.min(options.getWidth(), (int) Math.round(sw * scale));
+            int dh = Math.min(options.getHeight(), (int) Math.round(sh * scale));
+            int cropW = Math.min(sw, (int) Math.round(dw / scale));
+            int cropH = Math.min(sh, (int) Math.round(dh / scale));
+            return new Geometry(dw, dh, (sw - cropW) / 2, (sh - cropH) / 2, cropW, cropH);
+        }
+        return new Geometry(Math.max(1, (int) Math.round(sw * scale)), Math.max(1, (int) Math.round(sh * scale)),
+                0, 0, sw, sh);
+    }
+
+    private static double scaleFor(int sw, int sh, ResizeOptions options) {
+        double sx = (double) options.getWidth() / sw;
+        double sy = (double) options.getHeight() / sh;
+        double scale = options.getMode() == ResizeMode.FILL ? Math.max(sx, sy) : Math.min(sx, sy);
+        return options.isUpscale() ? scale : Math.min(scale, 1.0);
+    }
+
+    /**
+     * Resizes packed pixels to exactly {@code dw x dh}.
+     */
+    public ArgbRaster resize(ArgbRaster src, int dw, int dh, ResampleFilter filter) {
+        return resize(src, dw, dh, filter, ImageBufferPool.disabled().scope());
+    }
+
+    private ArgbRaster resize(ArgbRaster src, int dw, int dh, ResampleFilter filter, ImageBufferPool.Scope scope) {
+        boolean alpha = src.hasAlpha();
+        ArgbRaster dst = ArgbRaster.of(scope.argbImage(dw, dh, alpha));
+        if (filter == ResampleFilter.NEAREST) {
+            nearest(src, dst);
+            return dst;
+        }
+
+        int w = src.getWidth();
+        int h = src.getHeight();
+        // The pooled intermediate currently in use, released once the next one replaces it
+        int[] intermediate = alpha ? premultiply(src.getPixels(), w * h) : null;
+        int[] pixels = alpha ? intermediate : src.getPixels();
+        try {
+            // Progressive box halving keeps the final kernel small for large reductions
+            while (w / 2 >= dw * 2 || h / 2 >= dh * 2) {
+                boolean halveX = w / 2 >= dw * 2;
+                boolean halveY = h / 2 >= dh * 2;
+                int nw = halveX ? w / 2 : w;
+                int nh = halveY ? h / 2 : h;
+                int[] halved = halve(pixels, w, h, nw, nh, halveX, halveY, alpha);
+                if (intermediate != null) {
+                    pool.release(intermediate);
+                }
+                intermediate = halved;
+                pixels = halved;
+                w = nw;
+                h = nh;
+            }
+
+            if (w == dw && h == dh) {
+                System.arraycopy(pixels, 0, dst.getPixels(), 0, dw * dh);
+            } else if (w == dw) {
+                verticalResize(pixels, dst.getPixels(), dw, h, dh, filter, alpha);
+            } else {
+                int[] horizontal = pool.acquireInts(dw * h);
+                try {
+                    Contributions cx = Contributions.of(w, dw, filter);
+                    int[] in = pixels;
+                    int inWidth = w;
+                    bands.forEachBand(h, dw, (from, to) -> horizontalPass(in, inWidth, horizontal, 0, dw, cx, from, to, alpha));
+                    if (h != dh) {
+                        verticalResize(horizontal, dst.getPixels(), dw, h, dh, filter, alpha);
+                    } else {
+                        System.arraycopy(horizontal, 0, dst.getPixels(), 0, dw * dh);
+                    }
+                } finally {
+                    pool.release(horizontal);
+                }
+            }
+        } finally {
+            if (intermediate != null) {
+                pool.release(intermediate);
+            }
+        }
+        if (alpha) {
+            unpremultiply(dst.getPixels(), dw * dh);
+        }
+        return dst;
+    }
+
+    private void verticalResize(int[] in, int[] out, int width, int h, int dh, ResampleFilter filter, boolean alpha) {
+        Contributions cy = Contributions.of(h, dh, filter);
+        bands.forEachBand(dh, width, (from, to) -> verticalPass(in, 0, out, width, cy, from, to, alpha));
+    }
+
+    private ArgbRaster crop(ArgbRaster src, int x, int y, int w, int h) {
+        int[] out = pool.acquireInts(w * h);
+        int[] in = src.getPixels();
+        for (int row = 0; row < h; row++) {
+            System.arraycopy(in, (y + row) * src.getWidth() + x, out, row * w, w);
+        }
+        return ArgbRaster.wrap(out, w, h, src.hasAlpha());
+    }
+
+    private void nearest(ArgbRaster src, ArgbRaster dst) {
+        int sw = src.getWidth();
+        int sh = src.getHeight();
+        int dw = dst.getWidth();
+        int[] in = src.getPixels();
+        int[] out = dst.getPixels();
+        int[] columns = new int[dw];
+        for (int x = 0; x < dw; x++) {
+            columns[x] = Math.min(sw - 1, (int) ((x + 0.5) * sw / dw));
+        }
+        int dh = dst.getHeight();
+        bands.forEachBand(dh, dw, (from, to) -> {
+            for (int y = from; y < to; y++) {
+                int srcRow = Math.min(sh - 1, (int) ((y + 0.5) * sh / dh)) * sw;
+                int dstRow = y * dw;
+                for (int x = 0; x < dw; x++) {
+                    out[dstRow + x] = in[srcRow + columns[x]];
+                }
+            }
+        });
+    }
+
+    private int[] halve(int[] in, int w, int h, int nw, int nh, boolean halveX, boolean halveY, boolean alpha) {
+        int[] out = pool.acquireInts(nw * nh);
+        int stepX = halveX ? 1 : 0;
+        int stepY = halveY ? w : 0;
+        bands.forEachBand(nh, nw, (from, to) -> {
+            for (int y = from; y < to; y++) {
+                int srcRow = (halveY ? y * 2 : y) * w;
+                int dstRow = y * nw;
+                for (int x = 0; x < nw; x++) {
+                    int i = srcRow + (halveX ? x * 2 : x);
+                    int p0 = in[i];
+                    int p1 = in[i + stepX];
+                    int p2 = in[i + stepY];
+                    int p3 = in[i + stepY + stepX];
+                    int a = alpha ? ((p0 >>> 24) + (p1 >>> 24) + (p2 >>> 24) + (p3 >>> 24) + 2) >> 2 : 0xFF;
+                    int r = (((p0 >> 16) & 0xFF) + ((p1 >> 16) & 0xFF) + ((p2 >> 16) & 0xFF) + ((p3 >> 16) & 0xFF) + 2) >> 2;
+                    int g = (((p0 >> 8) & 0xFF) + ((p1 >> 8) & 0xFF) + ((p2 >> 8) & 0xFF) + ((p3 >> 8) & 0xFF) + 2) >> 2;
+                    int b = ((p0 & 0xFF) + (p1 & 0xFF) + (p2 & 0xFF) + (p3 & 0xFF) + 2) >> 2;
+                    out[dstRow + x] = a << 24 | r << 16 | g << 8 | b;
+                }
+            }
+        });
+        return out;
+    }
+
+    private static void horizontalPass(int[] in, int inWidth, int[] out, int outOffset, int outWidth, Contributions c,
+                                       int from, int to, boolean alpha) {
+        int[] weights = c.weights;
+        for (int y = from; y < to; y++) {
+            int srcRow = y * inWidth;
+            int dstRow = outOffset + y * outWidth;
+            for (int x = 0; x < outWidth; x++) {
+                int first = srcRow + c.start[x];
+                int count = c.count[x];
+                int offset = x * c.stride;
+                int a = HALF;
+                int r = HALF;
+                int g = HALF;
+                int b = HALF;
+                for (int k = 0; k < count; k++) {
+                    int p = in[first + k];
+                    int weight = weights[offset + k];
+                    a += (p >>> 24) * weight;
+                    r += ((p >> 16) & 0xFF) * weight;
+                    g += ((p >> 8) & 0xFF) * weight;
+                    b += (p & 0xFF) * weight;
+                }
+                out[dstRow + x] = pack(alpha ? a : 0xFF << PRECISION_BITS, r, g, b);
+            }
+        }
+    }
+
+    /**
+     * Vertical pass over {@code in}, whose first row is source row {@code firstRow}.
+     */
+    private static void verticalPass(int[] in, int firstRow, int[] out, int width, Contributions c, int from, int to,
+                                     boolean alpha) {
+        int[] weights = c.weights;
+        int[] acc = new int[width * 4];
+        for (int y = from; y < to; y++) {
+            Arrays.fill(acc, HALF);
+            int count = c.count[y];
+            int offset = y * c.stride;
+            for (int k = 0; k < count; k++) {
+                int srcRow = (c.start[y] + k - firstRow) * width;
+                int weight = weights[offset + k];
+                for (int x = 0, j = 0; x < width; x++, j += 4) {
+                    int p = in[srcRow + x];
+                    acc[j] += (p >>> 24) * weight;
+                    acc[j + 1] += ((p >> 16) & 0xFF) * weight;
+                    acc[j + 2] += ((p >> 8) & 0xFF) * weight;
+                    acc[j + 3] += (p & 0xFF) * weight;
+                }
+            }
+            int dstRow = y * width;
+            for (int x = 0, j = 0; x < width; x++, j += 4) {
+                out[dstRow + x] = pack(alpha ? acc[j] : 0xFF << PRECISION_BITS, acc[j + 1], acc[j + 2], acc[j + 3]);
+            }
+        }
+    }
+
+    private static int pack(int a, int r, int g, int b) {
+        return clamp(a >> PRECISION_BITS) << 24 | clamp(r >> PRECISION_BITS) << 16
+                | clamp(g >> PRECISION_BITS) << 8 | clamp(b >> PRECISION_BITS);
+    }
+
+    private static int clamp(int v) {
+        return v < 0 ? 0 : Math.min(v, 255);
+    }
+
+    /**
+     * Premultiplied copy of the first {@code length} pixels, in an array from the pool.
+     */
+    private int[] premultiply(int[] in, int length) {
+        int[] out = pool.acquireInts(length);
+        for (int i = 0; i < length; i++) {
+            int p = in[i];
+            int a = p >>> 24;
+            if (a == 255) {
+                out[i] = p;
+            } else if (a != 0) {
+                int r = (((p >> 16) & 0xFF) * a + 127) / 255;
+                int g = (((p >> 8) & 0xFF) * a + 127) / 255;
+                int b = ((p & 0xFF) * a + 127) / 255;
+                out[i] = a << 24 | r << 16 | g << 8 | b;
+            } else {
+                out[i] = 0;
+            }
+        }
+        return out;
+    }
+
+    private static void unpremultiply(int[] pixels, int length) {
+        for (int i = 0; i < length; i++) {
+            int p = pixels[i];
+            int a = p >>> 24;
+            if (a != 255 && a != 0) {
+                int r = Math.min(255, (((p >> 16) & 0xFF) * 255 + a / 2) / a);
+                int g = Math.min(255, (((p >> 8) & 0xFF) * 255 + a / 2) / a);
+                int b = Math.min(255, ((p & 0xFF) * 255 + a / 2) / a);
+                pixels[i] = a << 24 | r << 16 | g << 8 | b;
+            }
+        }
+    }
+
+    /**
+     * The crop of a source decoded at every {@code period}-th pixel, addressed in subsampled coordinates.
+     */
+    private record SubsampledCrop(StripSource source, Geometry geometry, int period) implements StripSource {
+
+        @Override
+        public int getWidth() {
+            return (geometry.cropW() + period - 1) / period;
+        }
+
+        @Override
+        public int getHeight() {
+            return (geometry.cropH() + period - 1) / period;
+        }
+
+        @Override
+        public BufferedImage readRegion(int x, int y, int width, int height) throws IOException {
+            return source.readRegion(geometry.cropX() + x * period, geometry.cropY() + y * period,
+                    (width - 1) * period + 1, (height - 1) * period + 1, period);
+        }
+    }
+
+    /**
+     * State of one strip-by-strip resize. Horizontally resampled rows are kept in a window that starts at the first
+     * source row still needed by a pending output row; older rows are dropped as the window slides down.
+     */
+    private final class StripResize {
+        private final int sourceWidth;
+        private final int dw;
+        private final int dh;
+        private final boolean alpha;
+        private final Contributions cx;
+        private final Contributions cy;
+        // Lowest source row needed by output row i or any row after it
+        private final int[] firstNeeded;
+        private final ArgbRaster dst;
+
+        private int[] window;
+        private int windowFirst;
+        private int windowRows;
+        private int nextOut;
+
+        StripResize(Geometry geometry, ResampleFilter filter, boolean alpha, ImageBufferPool.Scope scope) {
+            this.sourceWidth = geometry.cropW();
+            this.dw = geometry.dw();
+            this.dh = geometry.dh();
+            this.alpha = alpha;
+            this.cx = filter == ResampleFilter.NEAREST || sourceWidth == dw
+                    ? Contributions.nearest(sourceWidth, dw) : Contributions.of(sourceWidth, dw, filter);
+            this.cy = filter == ResampleFilter.NEAREST || geometry.cropH() == dh
+                    ? Contributions.nearest(geometry.cropH(), dh) : Contributions.of(geometry.cropH(), dh, filter);
+            this.firstNeeded = new int[dh];
+            int min = Integer.MAX_VALUE;
+            for (int i = dh - 1; i >= 0; i--) {
+                min = Math.min(min, cy.start[i]);
+                firstNeeded[i] = min;
+            }
+            this.dst = ArgbRaster.of(scope.argbImage(dw, dh, alpha));
+        }
+
+        void push(ArgbRaster strip) {
+            int rows = strip.getHeight();
+            slide(nextOut < dh ? firstNeeded[nextOut] : windowFirst + windowRows, rows);
+            int[] in = alpha ? premultiply(strip.getPixels(), sourceWidth * rows) : strip.getPixels();
+            int[] out = window;
+            int offset = windowRows * dw;
+            try {
+                bands.forEachBand(rows, dw, (from, to) -> horizontalPass(in, sourceWidth, out, offset, dw, cx, from, to, alpha));
+            } finally {
+                if (alpha) {
+                    pool.release(in);
+                }
+            }
+            windowRows += rows;
+
+            int available = windowFirst + windowRows;
+            int ready = nextOut;
+            while (ready < dh && cy.start[ready] + cy.count[ready] <= available) {
+                ready++;
+            }
+            int first = nextOut;
+            int last = ready;
+            int[] pixels = dst.getPixels();
+            int base = windowFirst;
+            bands.forEachBand(last - first, dw, (from, to) ->
+                    verticalPass(out, base, pixels, dw, cy, first + from, first + to, alpha));
+            nextOut = ready;
+        }
+
+        /**
+         * Drops window rows above {@code keepFrom} and makes room for {@code incoming} more rows.
+         */
+        private void slide(int keepFrom, int incoming) {
+            int drop = Math.min(windowRows, Math.max(0, keepFrom - windowFirst));
+            int kept = windowRows - drop;
+            int needed = (kept + incoming) * dw;
+            if (window == null || window.length < needed) {
+                int[] target = pool.acquireInts(needed);
+                if (window != null) {
+                    System.arraycopy(window, drop * dw, target, 0, kept * dw);
+                    pool.release(window);
+                }
+                window = target;
+            } else {
+                System.arraycopy(window, drop * dw, window, 0, kept * dw);
+            }
+            windowFirst += drop;
+            windowRows = kept;
+        }
+
+        ArgbRaster finish() {
+            if (nextOut != dh) {
+                throw new IllegalStateException("Strips ended before output row " + nextOut + " of " + dh);
+            }
+            if (alpha) {
+                unpremultiply(dst.getPixels(), dw * dh);
+            }
+            return dst;
+        }
+
+        void releaseWindow() {
+            if (window != null) {
+                pool.release(window);
+                window = null;
+            }
+        }
+    }
+
+    /**
+     * Fixed-point filter taps for every output position along one axis.
+     */
+    private static final class Contributions {
+        final int[] start;
+        final int[] count;
+        final int[] weights;
+        final int stride;
+
+        private Contributions(int[] start, int[] count, int[] weights, int stride) {
+            this.start = start;
+            this.count = count;
+            this.weights = weights;
+            this.stride = stride;
+        }
+
+        /**
+         * A single full-weight tap on the nearest input position, matching the NEAREST resize.
+         */
+        static Contributions nearest(int inSize, int outSize) {
+            int[] start = new int[outSize];
+            int[] count = new int[outSize];
+            int[] weights = new int[outSize];
+            for (int i = 0; i < outSize; i++) {
+                start[i] = Math.min(inSize - 1, (int) ((i + 0.5) * inSize / outSize));
+                count[i] = 1;
+                weights[i] = ONE;
+            }
+            return new Contributions(start, count, weights, 1);
+        }
+
+        static Contributions of(int inSize, int outSize, ResampleFilter filter) {
+            double scale = (double) inSize / outSize;
+            double filterScale = Math.max(scale, 1.0);
+            double support = filter.support() * filterScale;
+            int stride = (int) Math.ceil(support) * 2 + 2;
+            int[] start = new int[outSize];
+            int[] count = new int[outSize];
+            int[] weights = new int[outSize * stride];
+            double[] taps = new double[stride];
+
+            for (int i = 0; i < outSize; i++) {
+                double center = (i + 0.5) * scale;
+                int left = Math.max(0, (int) Math.floor(center - support));
+                int right = Math.min(inSize, (int) Math.ceil(center + support));
+                int n = Math.min(right - left, stride);
+                double sum = 0;
+                for (int k = 0; k < n; k++) {
+                    taps[k] = filter.weight((left + k + 0.5 - center) / filterScale);
+                    sum += taps[k];
+                }
+                if (sum == 0) {
+                    // Degenerate window at the edge; fall back to the nearest pixel
+                    int nearest = Math.min(inSize - 1, Math.max(0, (int) center));
+                    start[i] = nearest;
+                    count[i] = 1;
+                    weights[i * stride] = ONE;
+                    continue;
+                }
+                start[i] = left;
+                count[i] = n;
+                for (int k = 0; k < n; k++) {
+                    weights[i * stride + k] = (int) Math.round(taps[k] / sum * ONE);
+                }
+            }
+            return new Contributions(start, count, weights, stride);
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.ge.imageprocessorconsumer.imaging;
+
+/**
+ * How the source aspect ratio is mapped onto the target box.
+ */
+public enum ResizeMode {
+    /** Scale to fit inside the target box, preserving aspect ratio. */
+    FIT,
+    /** Scale to cover the target box, preserving aspect ratio, and center-crop the overflow. */
+    FILL,
+    /** Stretch to exactly the target size. */
+    EXACT;
+
+    public static ResizeMode fromName(String name) {
+        return valueOf(name.trim().toUpperCase());
+    }
+}
@@ -0,0 +1,100 @@
+package com.ge.imageprocessorconsumer.imaging;
+
+import com.ge.imageprocessorconsumer.exception.ErrorCode;
+import com.ge.imageprocessorconsumer.exception.ImageProcessingException;
+
+import java.util.Map;
+
+/**
+ * Target size and quality settings for a single resize.
+ * Per-message overrides are read from {@code ImageProcessingMessage.metadata}.
+ */
+public final class ResizeOptions {
+
+    public static final String WIDTH_KEY = "resize_width";
+    public static final String HEIGHT_KEY = "resize_height";
+    public static final String FILTER_KEY = "resize_filter";
+    public static final String MODE_KEY = "resize_mode";
+    public static final String UPSCALE_KEY = "resize_upscale";
+
+    private static final int MAX_DIMENSION = 10000;
+
+    private final int width;
+    private final int height;
+    private final ResampleFilter filter;
+    private final ResizeMode mode;
+    private final boolean upscale;
+
+    public ResizeOptions(int width, int height, ResampleFilter filter, ResizeMode mode, boolean upscale) {
+        if (width < 1 || height < 1 || width > MAX_DIMENSION || height > MAX_DIMENSION) {
+            throw new ImageProcessingException(ErrorCode.CONFIGURATION_ERROR,
+                    "Resize target must be between 1 and " + MAX_DIMENSION + " pixels, got " + width + "x" + height);
+        }
+        this.width = width;
+        this.height = height;
+        this.filter = filter;
+        this.mode = mode;
+        this.upscale = upscale;
+    }
+
+    /**
+     * Applies the resize entries of a message's metadata on top of these options.
+     */
+    public ResizeOptions withOverrides(Map<String, Object> metadata) {
+        if (metadata == null || metadata.isEmpty()) {
+            return this;
+        }
+        try {
+            return new ResizeOptions(
+                    intValue(metadata.get(WIDTH_KEY), width),
+                    intValue(metadata.get(HEIGHT_KEY), height),
+                    metadata.containsKey(FILTER_KEY) ? ResampleFilter.fromName(metadata.get(FILTER_KEY).toString()) : filter,
+                    metadata.containsKey(MODE_KEY) ? ResizeMode.fromName(metadata.get(MODE_KEY).toString()) : mode,
+                    metadata.containsKey(UPSCALE_KEY) ? Boolean.parseBoolean(metadata.get(UPSCALE_KEY).toString()) : upscale);
+        } catch (IllegalArgumentException e) {
+            throw new ImageProcessingException(ErrorCode.CONFIGURATION_ERROR, "Invalid resize metadata: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * The same settings with another target size.
+     */
+    public ResizeOptions withSize(int width, int height) {
+        return new ResizeOptions(width, height, filter, mode, upscale);
+    }
+
+    private static int intValue(Object value, int defaultValue) {
+        if (value == null) {
+            return defaultValue;
+        }
+        if (value instanceof Number number) {
+            return number.intValue();
+        }
+        return Integer.parseInt(value.toString().trim());
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public ResampleFilter getFilter() {
+        return filter;
+    }
+
+    public ResizeMode getMode() {
+        return mode;
+    }
+
+    public boolean isUpscale() {
+        return upscale;
+    }
+
+    @Override
+    public String toString() {
+        return width + "x" + height + " " + mode + "/" + filter + (upscale ? " upscale" : "");
+    }
+}
@@ -0,0 +1,84 @@
+package com.ge.imageprocessorconsumer.imaging;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Splits per-row pixel work into bands and runs them on a fork/join pool shared by the imaging kernels. Work too
+ * small to split runs on the calling thread under a {@link ComputeGate} permit.
+ */
+@Component
+public class RowBandExecutor {
+
+    // Images smaller than this are processed on the calling thread
+    private static final int PARALLEL_THRESHOLD_PIXELS = 256 * 256;
+    private static final int MIN_BAND_ROWS = 16;
+
+    private final ForkJoinPool pool;
+    private final ComputeGate gate;
+
+    public RowBandExecutor(int parallelism) {
+        this(parallelism, ComputeGate.unbounded());
+    }
+
+    @Autowired
+    public RowBandExecutor(@Value("${imaging.parallelism:0}") int parallelism, ComputeGate gate) {
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        this.gate = gate;
+    }
+
+    /**
+     * Runs {@code band} over {@code [0, rows)}, in parallel when the image is large enough to pay for the split.
+     */
+    public void forEachBand(int rows, int width, RowBand band) {
+        if ((long) rows * width < PARALLEL_THRESHOLD_PIXELS || pool.getParallelism() == 1) {
+            gate.run(() -> band.run(0, rows));
+            return;
+        }
+        int bandRows = Math.max(MIN_BAND_ROWS, rows / (pool.getParallelism() * 4));
+        pool.invoke(new BandTask(band, 0, rows, bandRows));
+    }
+
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    @FunctionalInterface
+    public interface RowBand {
+        void run(int fromRow, int toRow);
+    }
+
+    private static final class BandTask extends RecursiveAction {
+        private final RowBand band;
+        private final int from;
+        private final int to;
+        private final int bandRows;
+
+        BandTask(RowBand band, int from, int to, int bandRows) {
+            this.band = band;
+            this.from = from;
+            this.to = to;
+            this.bandRows = bandRows;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= bandRows) {
+                band.run(from, to);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new BandTask(band, from, mid, bandRows), new BandTask(band, mid, to, bandRows));
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.ge.imageprocessorconsumer.imaging;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+
+/**
+ * An image that can be decoded one rectangular region at a time, so it never has to be held in memory whole.
+ */
+public interface StripSource {
+
+    int getWidth();
+
+    int getHeight();
+
+    /**
+     * Decodes the pixels of {@code [x, x + width) x [y, y + height)}.
+     */
+    BufferedImage readRegion(int x, int y, int width, int height) throws IOException;
+
+    /**
+     * Decodes every {@code period}-th column and row of the region, starting with its first pixel. Decoders that
+     * can skip pixels while decoding override this; the default decodes the whole region and picks from it.
+     */
+    default BufferedImage readRegion(int x, int y, int width, int height, int period) throws IOException {
+        BufferedImage region = readRegion(x, y, width, height);
+        if (period == 1) {
+            return region;
+        }
+        BufferedImage sampled = new BufferedImage((width + period - 1) / period, (height + period - 1) / period,
+                region.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        for (int row = 0; row < sampled.getHeight(); row++) {
+            for (int column = 0; column < sampled.getWidth(); column++) {
+                sampled.setRGB(column, row, region.getRGB(column * period, row * period));
+            }
+        }
+        return sampled;
+    }
+}
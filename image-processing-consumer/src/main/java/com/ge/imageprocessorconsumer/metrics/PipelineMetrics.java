@@ -0,0 +1,171 @@
+package com.ge.imageprocessorconsumer.metrics;
+
+import com.ge.model.ImageProcessingMessage;
+import com.ge.model.ProcessStatus;
+import com.github.benmanes.caffeine.cache.Cache;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Meters of the processing pipeline, published on the actuator's prometheus endpoint.
+ * <p>
+ * Timers cover each stage, every storage call and the decode/encode work split out of the storage reads and writes,
+ * plus the end-to-end latency from the producer's delivery timestamp. Percentile histograms are switched on with
+ * {@code management.metrics.distribution.percentiles-histogram.image}. Format tags are limited to the supported
+ * formats so a bad message cannot create new series.
+ */
+@Component
+public class PipelineMetrics {
+    private static final Logger LOGGER = LoggerFactory.getLogger(PipelineMetrics.class);
+
+    public static final String STAGE_TIMER = "image.pipeline.stage";
+    public static final String END_TO_END_TIMER = "image.pipeline.end.to.end";
+    public static final String STORAGE_TIMER = "image.storage.duration";
+    public static final String STORAGE_BYTES = "image.storage.bytes";
+    public static final String CODEC_TIMER = "image.codec.duration";
+    public static final String RETRY_COUNTER = "image.retry.scheduled";
+    public static final String DEAD_LETTER_COUNTER = "image.dead.letter";
+
+    private static final Set<String> KNOWN_FORMATS = Set.of("png", "jpg", "jpeg", "bmp", "gif");
+
+    // Format written by image-producer
+    private static final DateTimeFormatter DELIVERY_TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss 'UTC'");
+
+    private final MeterRegistry registry;
+
+    @Autowired
+    public PipelineMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Metrics kept in a private registry, for code run outside the application context.
+     */
+    public static PipelineMetrics unpublished() {
+        return new PipelineMetrics(new SimpleMeterRegistry());
+    }
+
+    public MeterRegistry getRegistry() {
+        return registry;
+    }
+
+    /**
+     * Time spent in the stage that produces {@code stage}, excluding the stages after it.
+     */
+    public void recordStage(ProcessStatus stage, String format, long nanos, boolean success) {
+        Timer.builder(STAGE_TIMER)
+                .description("Time spent in one processing stage")
+                .tag("stage", stage.name())
+                .tag("format", format(format))
+                .tag("outcome", success ? "success" : "failure")
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Time from the producer's delivery timestamp until the message finished, including any retry delays.
+     */
+    public void recordEndToEnd(ImageProcessingMessage message) {
+        String deliveryTimestamp = message.getDeliveryTimestamp();
+        if (deliveryTimestamp == null) {
+            return;
+        }
+        Instant delivered;
+        try {
+            delivered = LocalDateTime.parse(deliveryTimestamp, DELIVERY_TIMESTAMP).toInstant(ZoneOffset.UTC);
+        } catch (DateTimeParseException e) {
+            LOGGER.debug("Ignoring unparseable delivery timestamp of {}: {}", message.getImageId(), deliveryTimestamp);
+            return;
+        }
+        Duration latency = Duration.between(delivered, Instant.now());
+        if (latency.isNegative()) {
+            latency = Duration.ZERO;
+        }
+        Timer.builder(END_TO_END_TIMER)
+                .description("Time from delivery by the producer until processing finished")
+                .tag("status", message.getStatus() == null ? "unknown" : message.getStatus().name())
+                .register(registry)
+                .record(latency);
+    }
+
+    public void recordStorage(String storage, String operation, long nanos, boolean success) {
+        Timer.builder(STORAGE_TIMER)
+                .description("Latency of file storage calls")
+                .tag("storage", storage)
+                .tag("operation", operation)
+                .tag("outcome", success ? "success" : "failure")
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordStorageBytes(String storage, String operation, long bytes) {
+        DistributionSummary.builder(STORAGE_BYTES)
+                .description("Encoded bytes moved by file storage calls")
+                .baseUnit("bytes")
+                .tag("storage", storage)
+                .tag("operation", operation)
+                .register(registry)
+                .record(bytes);
+    }
+
+    /**
+     * Time spent decoding or encoding, apart from reading or writing the bytes.
+     */
+    public void recordCodec(String operation, String format, long nanos) {
+        Timer.builder(CODEC_TIMER)
+                .description("Image decode and encode time")
+                .tag("operation", operation)
+                .tag("format", format(format))
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordRetry(String topic) {
+        Counter.builder(RETRY_COUNTER)
+                .description("Failed messages sent to a retry tier")
+                .tag("topic", topic)
+                .register(registry)
+                .increment();
+    }
+
+    public void recordDeadLetter(String reason) {
+        Counter.builder(DEAD_LETTER_COUNTER)
+                .description("Messages sent to the dead letter topic")
+                .tag("reason", reason)
+                .register(registry)
+                .increment();
+    }
+
+    /**
+     * Publishes hit, miss, eviction and size meters of a cache built with {@code recordStats()}.
+     */
+    public void monitor(Cache<?, ?> cache, String name, String storage) {
+        CaffeineCacheMetrics.monitor(registry, cache, name, "storage", storage);
+    }
+
+    private static String format(String format) {
+        if (format == null) {
+            return "unknown";
+        }
+        String normalized = format.toLowerCase(Locale.ROOT);
+        return KNOWN_FORMATS.contains(normalized) ? normalized : "other";
+    }
+}
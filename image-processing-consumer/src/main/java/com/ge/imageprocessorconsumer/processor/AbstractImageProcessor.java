@@ -1,8 +1,12 @@
 package com.ge.imageprocessorconsumer.processor;
 
+import com.ge.imageprocessorconsumer.reader.FileStorage;
 import com.ge.model.ImageProcessingMessage;
 
 import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 
 public abstract class AbstractImageProcessor implements ImageProcessor {
     protected ImageProcessor next;
@@ -12,7 +16,38 @@ public abstract class AbstractImageProcessor implements ImageProcessor {
         this.next = next;
     }
 
-    protected ImageProcessingMessage processNext(ImageProcessingMessage input) throws Exception {
-        return next != null ? next.process(input) : input;
+    @Override
+    public ImageProcessingMessage process(ImageProcessingMessage input) throws Exception {
+        try (ImageProcessingContext context = new ImageProcessingContext(input, false)) {
+            return process(context);
+        }
+    }
+
+    protected ImageProcessingMessage processNext(ImageProcessingContext context) throws Exception {
+        context.stageCompleted();
+        return next != null ? next.process(context) : context.getMessage();
+    }
+
+    /**
+     * Returns the image this stage works on: the previous stage's output when it is still in memory,
+     * otherwise the file under this stage's input folder.
+     */
+    protected BufferedImage readInputImage(ImageProcessingContext context, FileStorage fileStorage) throws IOException {
+        if (context.hasWorkingImage()) {
+            return context.getWorkingImage();
+        }
+        ImageProcessingMessage input = context.getMessage();
+        Path inputFile = inputFile(input, fileStorage);
+        BufferedImage image = fileStorage.readImage(inputFile.getParent().toString(), inputFile.getFileName().toString());
+        context.setWorkingImage(image);
+        return image;
+    }
+
+    /**
+     * The file under this stage's input folder that holds the message's image. Stages reading the raw image
+     * return the producer's original file instead when the message only references it.
+     */
+    protected Path inputFile(ImageProcessingMessage input, FileStorage fileStorage) {
+        return Paths.get(getInPutFilePath(input.getS3Path()), fileStorage.fileName(input.getImageId(), input.getImageFormat()));
     }
 }
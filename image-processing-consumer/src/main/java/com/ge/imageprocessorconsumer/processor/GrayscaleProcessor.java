@@ -1,5 +1,10 @@
 package com.ge.imageprocessorconsumer.processor;
 
+import com.ge.imageprocessorconsumer.codec.EncodeOptions;
+import com.ge.imageprocessorconsumer.exception.ErrorCode;
+import com.ge.imageprocessorconsumer.exception.ImageProcessingException;
+import com.ge.imageprocessorconsumer.imaging.GrayscaleKernel;
+import com.ge.imageprocessorconsumer.imaging.ImageBufferPool;
 import com.ge.imageprocessorconsumer.reader.FileStorage;
 import com.ge.model.ImageProcessingMessage;
 import com.ge.model.ProcessStatus;
@@ -7,12 +12,12 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
-import java.awt.color.ColorSpace;
 import java.awt.image.BufferedImage;
-import java.awt.image.ColorConvertOp;
 import java.nio.file.Paths;
+import java.util.Map;
 
 @Component
 public class GrayscaleProcessor extends AbstractImageProcessor {
@@ -20,34 +25,88 @@ public class GrayscaleProcessor extends AbstractImageProcessor {
     private static final String INPUT_FOLDER_NAME = "resized";
     private static final String OUTPUT_FOLDER_NAME = "grayscaled";
 
+    public static final String MODE_KEY = "grayscale_mode";
+    public static final String WEIGHTS_KEY = "grayscale_weights";
+
     private static final Logger LOGGER = LoggerFactory.getLogger(GrayscaleProcessor.class);
 
     private final FileStorage fileStorage;
 
+    private final GrayscaleKernel grayscaleKernel;
+
+    private final GrayscaleKernel.Mode defaultMode;
+
+    private final GrayscaleKernel.Weights defaultWeights;
+
     @Autowired
-    public GrayscaleProcessor(@Qualifier("local-file-storage") FileStorage fileStorage) {
+    public GrayscaleProcessor(@Qualifier("cached-local-file-storage") FileStorage fileStorage,
+                              GrayscaleKernel grayscaleKernel,
+                              @Value("${grayscale.mode:FAST}") String mode,
+                              @Value("${grayscale.weights:BT601}") String weights) {
         this.fileStorage = fileStorage;
+        this.grayscaleKernel = grayscaleKernel;
+        this.defaultMode = GrayscaleKernel.Mode.fromName(mode);
+        this.defaultWeights = GrayscaleKernel.Weights.fromName(weights);
     }
 
     @Override
-    public ImageProcessingMessage process(ImageProcessingMessage input) throws Exception {
+    public ImageProcessingMessage process(ImageProcessingContext context) throws Exception {
+        ImageProcessingMessage input = context.getMessage();
         LOGGER.info("Processing input file for grayscale: {}", input.getImageId());
-        String inputFilePath = this.getInPutFilePath(input.getS3Path());
-        BufferedImage image
-                = fileStorage.readImage(inputFilePath, fileStorage.fileName(input.getImageId(), input.getImageFormat()));
-        BufferedImage processedImage = applyGrayscaleFilter(image);
+        BufferedImage image = readInputImage(context, fileStorage);
+        BufferedImage processedImage = grayscaleKernel.apply(image,
+                context.buffers().grayImage(image.getWidth(), image.getHeight()),
+                mode(input.getMetadata()), weights(input.getMetadata()));
         String outputFile  = getOutPutFilePath(input.getS3Path());
-        fileStorage.writeImage(processedImage, outputFile,
-                fileStorage.fileName(input.getImageId(), input.getImageFormat()), input.getImageFormat());
+        String outputFileName = fileStorage.fileName(input.getImageId(), input.getImageFormat());
+        fileStorage.writeImage(processedImage, outputFile, outputFileName, input.getImageFormat(),
+                EncodeOptions.fromMetadata(input.getMetadata()));
+        context.setWorkingImage(processedImage);
+        input.recordStageOutput(ProcessStatus.GRAY_SCALED, Paths.get(outputFile, outputFileName).toString());
         input.setStatus(ProcessStatus.GRAY_SCALED);
-        return processNext(input);
+        return processNext(context);
+    }
+
+    public BufferedImage applyGrayscaleFilter(BufferedImage image, Map<String, Object> metadata) {
+        return grayscaleKernel.apply(image, null, mode(metadata), weights(metadata));
+    }
+
+    /**
+     * Converts {@code image} with the configured settings overridden by {@code parameters}, for stages of a
+     * {@link PipelineGraph}.
+     */
+    BufferedImage grayscale(BufferedImage image, Map<String, Object> parameters, ImageBufferPool.Scope buffers) {
+        return grayscaleKernel.apply(image, buffers.grayImage(image.getWidth(), image.getHeight()),
+                mode(parameters), weights(parameters));
+    }
+
+    /**
+     * The grayscale settings this message would be processed with, for result cache keys.
+     */
+    public String parameterKey(ImageProcessingMessage input) {
+        return mode(input.getMetadata()) + "/" + weights(input.getMetadata());
+    }
+
+    private GrayscaleKernel.Mode mode(Map<String, Object> metadata) {
+        if (metadata == null || !metadata.containsKey(MODE_KEY)) {
+            return defaultMode;
+        }
+        try {
+            return GrayscaleKernel.Mode.fromName(metadata.get(MODE_KEY).toString());
+        } catch (IllegalArgumentException e) {
+            throw new ImageProcessingException(ErrorCode.CONFIGURATION_ERROR, "Invalid grayscale metadata: " + e.getMessage(), e);
+        }
     }
 
-    private BufferedImage applyGrayscaleFilter(BufferedImage image) {
-        BufferedImage grayImage = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_BYTE_GRAY);
-        ColorConvertOp op = new ColorConvertOp(ColorSpace.getInstance(ColorSpace.CS_GRAY), null);
-        op.filter(image, grayImage);
-        return grayImage;
+    private GrayscaleKernel.Weights weights(Map<String, Object> metadata) {
+        if (metadata == null || !metadata.containsKey(WEIGHTS_KEY)) {
+            return defaultWeights;
+        }
+        try {
+            return GrayscaleKernel.Weights.fromName(metadata.get(WEIGHTS_KEY).toString());
+        } catch (IllegalArgumentException e) {
+            throw new ImageProcessingException(ErrorCode.CONFIGURATION_ERROR, "Invalid grayscale metadata: " + e.getMessage(), e);
+        }
     }
 
     @Override
@@ -0,0 +1,122 @@
+package com.ge.imageprocessorconsumer.processor;
+
+import com.ge.imageprocessorconsumer.imaging.ImageBufferPool;
+import com.ge.imageprocessorconsumer.metrics.PipelineMetrics;
+import com.ge.imageprocessorconsumer.reader.ImageMetadata;
+import com.ge.model.ImageProcessingMessage;
+import com.ge.model.ProcessStatus;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * Per-message state carried through the processor chain.
+ * In in-memory mode the decoded working image is handed from one stage to the next,
+ * so a message is decoded once instead of once per stage.
+ * <p>
+ * Images the stages create take their pixels from {@link #buffers()}, which are returned to the pool when the
+ * context is closed after the last stage.
+ */
+public class ImageProcessingContext implements AutoCloseable {
+
+    private final ImageProcessingMessage message;
+    private final boolean inMemory;
+    private final PipelineMetrics metrics;
+    private final ImageBufferPool.Scope buffers;
+
+    private long stageStartedAt = System.nanoTime();
+
+    private BufferedImage workingImage;
+
+    private ImageMetadata sourceMetadata;
+
+    public ImageProcessingContext(ImageProcessingMessage message, boolean inMemory) {
+        this(message, inMemory, null);
+    }
+
+    public ImageProcessingContext(ImageProcessingMessage message, boolean inMemory, PipelineMetrics metrics) {
+        this(message, inMemory, metrics, ImageBufferPool.disabled());
+    }
+
+    public ImageProcessingContext(ImageProcessingMessage message, boolean inMemory, PipelineMetrics metrics,
+                                  ImageBufferPool bufferPool) {
+        this.message = message;
+        this.inMemory = inMemory;
+        this.metrics = metrics;
+        this.buffers = bufferPool.scope();
+    }
+
+    public ImageProcessingMessage getMessage() {
+        return message;
+    }
+
+    public boolean isInMemory() {
+        return inMemory;
+    }
+
+    public boolean hasWorkingImage() {
+        return workingImage != null;
+    }
+
+    public BufferedImage getWorkingImage() {
+        return workingImage;
+    }
+
+    /**
+     * Hands the output of the current stage to the next one. Ignored outside in-memory mode,
+     * where every stage reads its input back from storage.
+     */
+    public void setWorkingImage(BufferedImage workingImage) {
+        if (inMemory) {
+            this.workingImage = workingImage;
+        }
+    }
+
+    /**
+     * Buffers for images produced while processing this message. They are only valid until {@link #close()}.
+     */
+    public ImageBufferPool.Scope buffers() {
+        return buffers;
+    }
+
+    /**
+     * Header of the raw source image, when validation has probed it.
+     */
+    public ImageMetadata getSourceMetadata() {
+        return sourceMetadata;
+    }
+
+    public void setSourceMetadata(ImageMetadata sourceMetadata) {
+        this.sourceMetadata = sourceMetadata;
+    }
+
+    /**
+     * Records the time since the previous stage ended against the stage that produced the message's status.
+     */
+    void stageCompleted() {
+        long now = System.nanoTime();
+        if (metrics != null && message.getStatus() != null) {
+            metrics.recordStage(message.getStatus(), message.getImageFormat(), now - stageStartedAt, true);
+        }
+        stageStartedAt = now;
+    }
+
+    /**
+     * Records the time since the previous stage ended as a failure of the stage after the message's status.
+     */
+    void stageFailed() {
+        ProcessStatus status = message.getStatus() == null ? ProcessStatus.START : message.getStatus();
+        if (metrics != null && status.ordinal() + 1 < ProcessStatus.values().length) {
+            metrics.recordStage(ProcessStatus.values()[status.ordinal() + 1], message.getImageFormat(),
+                    System.nanoTime() - stageStartedAt, false);
+        }
+    }
+
+    /**
+     * Releases the buffers of every image created for this message.
+     */
+    @Override
+    public void close() {
+        workingImage = null;
+        buffers.close();
+    }
+}
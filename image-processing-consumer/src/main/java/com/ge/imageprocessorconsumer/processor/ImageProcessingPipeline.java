@@ -1,32 +1,238 @@
 package com.ge.imageprocessorconsumer.processor;
 
 
+import com.ge.imageprocessorconsumer.cache.ResultCache;
+import com.ge.imageprocessorconsumer.codec.ImageCodecs;
+import com.ge.imageprocessorconsumer.imaging.ImageBufferPool;
+import com.ge.imageprocessorconsumer.metrics.PipelineMetrics;
+import com.ge.imageprocessorconsumer.reader.FileStorage;
+import com.ge.model.ImageProcessingMessage;
 import com.ge.model.ProcessStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.EnumMap;
+import java.util.Map;
+import java.util.Optional;
 
 
 @Component
 public class ImageProcessingPipeline {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ImageProcessingPipeline.class);
+
     private EnumMap<ProcessStatus, ImageProcessor> processorChain;
 
+    private final ResizeProcessor resizeProcessor;
+
+    private final GrayscaleProcessor grayscaleProcessor;
+
+    private final PipelineGraphRunner graphRunner;
+
+    private final FileStorage fileStorage;
+
+    private final ResultCache resultCache;
+
+    private final PipelineMetrics metrics;
+
+    private final ImageBufferPool bufferPool;
+
+    private final ImageCodecs codecs;
+
+    private final boolean inMemory;
+
 
     @Autowired
     public ImageProcessingPipeline(
             ValidationProcessor validationProcessor,
             ResizeProcessor resizeProcessor,
-            GrayscaleProcessor grayscaleProcessor) {
+            GrayscaleProcessor grayscaleProcessor,
+            PipelineGraphRunner graphRunner,
+            @Qualifier("cached-local-file-storage") FileStorage fileStorage,
+            ResultCache resultCache,
+            Optional<ResizeHandoffProcessor> resizeHandoff,
+            PipelineMetrics metrics,
+            ImageBufferPool bufferPool,
+            ImageCodecs codecs,
+            @Value("${pipeline.in-memory:true}") boolean inMemory) {
         this.processorChain = new EnumMap<>(ProcessStatus.class);
+        this.resizeProcessor = resizeProcessor;
+        this.grayscaleProcessor = grayscaleProcessor;
+        this.graphRunner = graphRunner;
+        this.fileStorage = fileStorage;
+        this.resultCache = resultCache;
+        this.metrics = metrics;
+        this.bufferPool = bufferPool;
+        this.codecs = codecs;
+        this.inMemory = inMemory;
+        // With remote resize, validated messages leave the chain and come back as RESIZED
+        ImageProcessor resizeStage = resizeHandoff.<ImageProcessor>map(handoff -> handoff).orElse(resizeProcessor);
         processorChain.put(ProcessStatus.START, validationProcessor);
-        processorChain.put(ProcessStatus.VALIDATED, resizeProcessor);
+        processorChain.put(ProcessStatus.VALIDATED, resizeStage);
         processorChain.put(ProcessStatus.RESIZED, grayscaleProcessor);
-        validationProcessor.setNext(resizeProcessor);
+        validationProcessor.setNext(resizeStage);
         resizeProcessor.setNext(grayscaleProcessor);
     }
 
     public ImageProcessor findProcessor(ProcessStatus currStatus) {
         return processorChain.getOrDefault(currStatus, processorChain.get(ProcessStatus.START));
     }
+
+    /**
+     * Runs the chain from the first stage whose predecessors' outputs are still in storage. In in-memory mode the
+     * image is decoded once and passed between stages; otherwise each stage reads its input back from storage.
+     * <p>
+     * When the same content was already processed with the same parameters, its outputs are linked from the
+     * result cache instead. Finished messages record their end-to-end latency.
+     * <p>
+     * Messages for a {@link PipelineGraph} run the graph instead, see {@link PipelineGraphRunner}.
+     */
+    public ImageProcessingMessage execute(ImageProcessingMessage message) throws Exception {
+        PipelineGraph graph = graphRunner.select(message);
+        if (graph != null) {
+            return executeGraph(message, graph);
+        }
+        ProcessStatus resumeFrom = resumeStatus(message);
+        if (resumeFrom != message.getStatus()) {
+            LOGGER.info("Resuming {} from {} instead of {}", message.getImageId(), resumeFrom, message.getStatus());
+            message.setStatus(resumeFrom);
+        }
+        if (resumeFrom == ProcessStatus.GRAY_SCALED) {
+            LOGGER.info("All stages already completed for {}", message.getImageId());
+            return message;
+        }
+        String cacheKey = cacheKey(message);
+        if (cacheKey != null && restoreFromCache(message, cacheKey)) {
+            metrics.recordEndToEnd(message);
+            return message;
+        }
+        ImageProcessor processor = findProcessor(resumeFrom);
+        ImageProcessingMessage result;
+        // Image buffers are returned to the pool once the last stage has written its output
+        try (ImageProcessingContext context = new ImageProcessingContext(message, inMemory, metrics, bufferPool)) {
+            try {
+                result = processor.process(context);
+            } catch (Exception e) {
+                context.stageFailed();
+                throw e;
+            }
+        }
+        if (cacheKey != null && result.getStatus() == ProcessStatus.GRAY_SCALED) {
+            resultCache.put(cacheKey, result.getStageOutputs());
+        }
+        if (result.getStatus() == ProcessStatus.GRAY_SCALED) {
+            metrics.recordEndToEnd(result);
+        }
+        return result;
+    }
+
+    /**
+     * Runs the whole graph again unless every stage's recorded output is still there. Graph outputs are not
+     * shared through the result cache.
+     */
+    private ImageProcessingMessage executeGraph(ImageProcessingMessage message, PipelineGraph graph) throws Exception {
+        if (message.getStatus() == ProcessStatus.GRAY_SCALED && graphOutputsVerified(message, graph)) {
+            LOGGER.info("All stages of graph {} already completed for {}", graph.getName(), message.getImageId());
+            return message;
+        }
+        if (message.getStatus() != null && message.getStatus() != ProcessStatus.START) {
+            message.setStatus(ProcessStatus.VALIDATED);
+        }
+        ImageProcessingMessage result;
+        try (ImageProcessingContext context = new ImageProcessingContext(message, true, metrics, bufferPool)) {
+            result = graphRunner.run(graph, context);
+        }
+        metrics.recordEndToEnd(result);
+        return result;
+    }
+
+    private boolean graphOutputsVerified(ImageProcessingMessage message, PipelineGraph graph) throws IOException {
+        for (PipelineGraph.Stage stage : graph.getStages()) {
+            for (String output : graphRunner.outputLocations(message, stage).keySet()) {
+                if (!outputVerified(message, output)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private String cacheKey(ImageProcessingMessage message) {
+        if (!resultCache.isEnabled() || message.getContentHash() == null) {
+            return null;
+        }
+        return ResultCache.key(message.getContentHash(), message.getImageFormat(),
+                resizeProcessor.parameterKey(message), grayscaleProcessor.parameterKey(message),
+                codecs.parameterKey(message.getMetadata()));
+    }
+
+    /**
+     * Links the cached outputs into this message's output locations. Identical content needs no validation,
+     * so the message goes straight to GRAY_SCALED. A stale entry is dropped and the message processed normally.
+     */
+    private boolean restoreFromCache(ImageProcessingMessage message, String cacheKey) {
+        Map<String, String> outputs = resultCache.get(cacheKey);
+        if (outputs == null || !outputs.containsKey(ProcessStatus.GRAY_SCALED.name())) {
+            return false;
+        }
+        String fileName = fileStorage.fileName(message.getImageId(), message.getImageFormat());
+        try {
+            for (ProcessStatus stage : new ProcessStatus[]{ProcessStatus.RESIZED, ProcessStatus.GRAY_SCALED}) {
+                String cached = outputs.get(stage.name());
+                if (cached == null) {
+                    continue;
+                }
+                ImageProcessor producer = stage == ProcessStatus.RESIZED ? resizeProcessor : grayscaleProcessor;
+                Path target = Paths.get(producer.getOutPutFilePath(message.getS3Path()), fileName);
+                Path source = Paths.get(cached);
+                if (!Files.isRegularFile(source)) {
+                    throw new NoSuchFileException(cached);
+                }
+                if (!source.equals(target)) {
+                    ResultCache.link(source, target);
+                }
+                message.recordStageOutput(stage, target.toString());
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Dropping stale cache entry for {}: {}", message.getImageId(), e.getMessage());
+            resultCache.invalidate(cacheKey);
+            return false;
+        }
+        LOGGER.info("Reused cached outputs for {} (content {})", message.getImageId(), message.getContentHash());
+        message.setStatus(ProcessStatus.GRAY_SCALED);
+        return true;
+    }
+
+    /**
+     * Walks back from the message's status to the latest stage whose recorded output can be verified.
+     * Validation writes nothing, so VALIDATED is always trusted.
+     */
+    ProcessStatus resumeStatus(ImageProcessingMessage message) throws IOException {
+        ProcessStatus status = message.getStatus() == null ? ProcessStatus.START : message.getStatus();
+        while (status.ordinal() > ProcessStatus.VALIDATED.ordinal() && !outputVerified(message, status.name())) {
+            status = ProcessStatus.values()[status.ordinal() - 1];
+        }
+        return status;
+    }
+
+    private boolean outputVerified(ImageProcessingMessage message, String stage) throws IOException {
+        String location = message.getStageOutput(stage);
+        if (location == null) {
+            return false;
+        }
+        Path path = Paths.get(location);
+        if (path.getParent() == null || !fileStorage.exists(path.getParent().toString(), path.getFileName().toString())) {
+            LOGGER.warn("Recorded {} output for {} is missing: {}", stage, message.getImageId(), location);
+            return false;
+        }
+        return true;
+    }
 }
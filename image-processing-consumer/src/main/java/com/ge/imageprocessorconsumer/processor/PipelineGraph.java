@@ -0,0 +1,171 @@
+package com.ge.imageprocessorconsumer.processor;
+
+import com.ge.imageprocessorconsumer.exception.ErrorCode;
+import com.ge.imageprocessorconsumer.exception.ImageProcessingException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A named set of stages run on one decoded source, each producing an output from the source or from an earlier
+ * stage's output. Stages are listed in an order where every input precedes its consumers, so the definition is
+ * acyclic by construction.
+ * <p>
+ * Definitions read {@code <name>: <stage>, <stage>...}, several separated by {@code ;}. A stage reads
+ * {@code <output>=<operation>(<input>[, key=value...])}: the output names the stage and its folder under the
+ * message's base path, the input is {@link #SOURCE} or an earlier output, and the key/value pairs override the
+ * message's metadata for this stage only, such as {@code resize_width=320} or {@code jpeg_quality=90}.
+ * <p>
+ * A {@code renditions} stage builds a downscale pyramid from its input, one level per size of
+ * {@code resize_renditions} (sizes separated by {@code |}), and writes level {@code <size>} to
+ * {@code <output>/<size>/}. Later stages reading it get the largest level.
+ */
+public final class PipelineGraph {
+
+    /**
+     * Input name of the decoded raw image.
+     */
+    public static final String SOURCE = "source";
+
+    private static final Pattern STAGE = Pattern.compile("([a-z0-9_-]+)\\s*=\\s*([a-z]+)\\s*\\((.*)\\)");
+    private static final Pattern NAME = Pattern.compile("[a-z0-9_-]+");
+    private static final Set<String> RESERVED = Set.of(SOURCE, "raw");
+
+    public enum Operation {
+        RESIZE,
+        RENDITIONS,
+        GRAYSCALE
+    }
+
+    /**
+     * One stage: {@code operation} applied to {@code input} with {@code parameters} over the message's metadata.
+     */
+    public record Stage(String output, Operation operation, String input, Map<String, Object> parameters) {
+    }
+
+    private final String name;
+    private final List<Stage> stages;
+
+    PipelineGraph(String name, List<Stage> stages) {
+        this.name = name;
+        this.stages = List.copyOf(stages);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public List<Stage> getStages() {
+        return stages;
+    }
+
+    /**
+     * Parses the graphs of {@code definitions}, keyed by name in definition order.
+     *
+     * @throws ImageProcessingException with {@link ErrorCode#CONFIGURATION_ERROR} for a malformed definition
+     */
+    public static Map<String, PipelineGraph> parse(String definitions) {
+        Map<String, PipelineGraph> graphs = new LinkedHashMap<>();
+        if (definitions == null || definitions.isBlank()) {
+            return graphs;
+        }
+        for (String definition : split(definitions, ';')) {
+            int colon = definition.indexOf(':');
+            if (colon < 0) {
+                throw invalid("missing ':' after the graph name in '" + definition + "'");
+            }
+            String name = definition.substring(0, colon).trim();
+            if (!NAME.matcher(name).matches() || graphs.containsKey(name)) {
+                throw invalid("invalid or duplicate graph name '" + name + "'");
+            }
+            graphs.put(name, new PipelineGraph(name, stages(name, definition.substring(colon + 1))));
+        }
+        return graphs;
+    }
+
+    private static List<Stage> stages(String graph, String definition) {
+        List<Stage> stages = new ArrayList<>();
+        Set<String> outputs = new HashSet<>();
+        for (String text : split(definition, ',')) {
+            Matcher matcher = STAGE.matcher(text);
+            if (!matcher.matches()) {
+                throw invalid("stage '" + text + "' of graph " + graph + " is not <output>=<operation>(<input>, ...)");
+            }
+            String output = matcher.group(1);
+            if (RESERVED.contains(output) || !outputs.add(output)) {
+                throw invalid("output '" + output + "' of graph " + graph + " is reserved or used twice");
+            }
+            List<String> arguments = split(matcher.group(3), ',');
+            if (arguments.isEmpty()) {
+                throw invalid("stage '" + output + "' of graph " + graph + " has no input");
+            }
+            String input = arguments.get(0);
+            if (!input.equals(SOURCE) && (!outputs.contains(input) || input.equals(output))) {
+                throw invalid("input '" + input + "' of stage '" + output + "' in graph " + graph
+                        + " is neither source nor an earlier stage");
+            }
+            Map<String, Object> parameters = new LinkedHashMap<>();
+            for (String argument : arguments.subList(1, arguments.size())) {
+                int equals = argument.indexOf('=');
+                if (equals <= 0) {
+                    throw invalid("parameter '" + argument + "' of stage '" + output + "' is not key=value");
+                }
+                parameters.put(argument.substring(0, equals).trim(), argument.substring(equals + 1).trim());
+            }
+            stages.add(new Stage(output, operation(matcher.group(2)), input, Collections.unmodifiableMap(parameters)));
+        }
+        if (stages.isEmpty()) {
+            throw invalid("graph " + graph + " has no stages");
+        }
+        return stages;
+    }
+
+    private static Operation operation(String name) {
+        try {
+            return Operation.valueOf(name.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw invalid("unknown operation '" + name + "'");
+        }
+    }
+
+    /**
+     * Splits on {@code separator} outside parentheses, trimming the parts and dropping empty ones.
+     */
+    private static List<String> split(String text, char separator) {
+        List<String> parts = new ArrayList<>();
+        int depth = 0;
+        int start = 0;
+        for (int i = 0; i <= text.length(); i++) {
+            char c = i < text.length() ? text.charAt(i) : separator;
+            if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth--;
+            } else if (c == separator && depth == 0) {
+                String part = text.substring(start, i).trim();
+                if (!part.isEmpty()) {
+                    parts.add(part);
+                }
+                start = i + 1;
+            }
+        }
+        return parts;
+    }
+
+    private static ImageProcessingException invalid(String message) {
+        return new ImageProcessingException(ErrorCode.CONFIGURATION_ERROR, "Invalid pipeline graph: " + message);
+    }
+
+    @Override
+    public String toString() {
+        return name + stages;
+    }
+}
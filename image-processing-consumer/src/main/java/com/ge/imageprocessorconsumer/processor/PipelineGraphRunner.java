@@ -0,0 +1,255 @@
+package com.ge.imageprocessorconsumer.processor;
+
+import com.ge.imageprocessorconsumer.codec.EncodeOptions;
+import com.ge.imageprocessorconsumer.exception.ErrorCode;
+import com.ge.imageprocessorconsumer.exception.ImageProcessingException;
+import com.ge.imageprocessorconsumer.imaging.ImageBufferPool;
+import com.ge.imageprocessorconsumer.metrics.PipelineMetrics;
+import com.ge.imageprocessorconsumer.reader.FileStorage;
+import com.ge.model.ImageProcessingMessage;
+import com.ge.model.ProcessStatus;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs messages through a {@link PipelineGraph} instead of the fixed validate, resize, grayscale chain.
+ * <p>
+ * The graph comes from the message's {@code pipeline} metadata entry, or from {@code pipeline.graph} for every
+ * message; {@code chain} selects the fixed chain. After validation the source is decoded once and every stage runs
+ * as soon as its input is ready, so independent branches run in parallel. Stages run on their own pool of
+ * {@code pipeline.graph.stage-threads}, not on the imaging fork/join pool: they block on encoding and storage writes,
+ * which would starve the kernels' bands of fork/join threads. The source is decoded whole, so graphs only accept
+ * images up to {@code validation.max-dimension} even when tiled resizing lets the chain take larger ones. Each stage
+ * writes its output to {@code <base path>/<output>/} and records it under its output name; a renditions stage
+ * writes all its levels in one storage batch. The message becomes GRAY_SCALED once every stage has completed; if
+ * any stage fails the message fails, after the others have finished.
+ */
+@Component
+public class PipelineGraphRunner {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PipelineGraphRunner.class);
+
+    public static final String PIPELINE_KEY = "pipeline";
+
+    /**
+     * Graph name that selects the fixed chain, for messages that opt out of {@code pipeline.graph}.
+     */
+    public static final String CHAIN = "chain";
+
+    private final ValidationProcessor validationProcessor;
+
+    private final ResizeProcessor resizeProcessor;
+
+    private final GrayscaleProcessor grayscaleProcessor;
+
+    private final FileStorage fileStorage;
+
+    private final ExecutorService executor;
+
+    private final ImageBufferPool bufferPool;
+
+    private final PipelineMetrics metrics;
+
+    private final Map<String, PipelineGraph> graphs;
+
+    private final PipelineGraph defaultGraph;
+
+    private final int maxSourceDimension;
+
+    @Autowired
+    public PipelineGraphRunner(ValidationProcessor validationProcessor,
+                               ResizeProcessor resizeProcessor,
+                               GrayscaleProcessor grayscaleProcessor,
+                               @Qualifier("cached-local-file-storage") FileStorage fileStorage,
+                               ImageBufferPool bufferPool,
+                               PipelineMetrics metrics,
+                               @Value("${pipeline.graphs:}") String graphs,
+                               @Value("${pipeline.graph:chain}") String defaultGraph,
+                               @Value("${pipeline.graph.stage-threads:0}") int stageThreads,
+                               @Value("${validation.max-dimension:2000}") int maxSourceDimension) {
+        this.validationProcessor = validationProcessor;
+        this.resizeProcessor = resizeProcessor;
+        this.grayscaleProcessor = grayscaleProcessor;
+        this.fileStorage = fileStorage;
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(
+                stageThreads > 0 ? stageThreads : 2 * Runtime.getRuntime().availableProcessors(), runnable -> {
+                    Thread thread = new Thread(runnable, "graph-stage-" + threadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.maxSourceDimension = maxSourceDimension;
+        this.bufferPool = bufferPool;
+        this.metrics = metrics;
+        this.graphs = PipelineGraph.parse(graphs);
+        if (this.graphs.containsKey(CHAIN)) {
+            throw new ImageProcessingException(ErrorCode.CONFIGURATION_ERROR, "Pipeline graph name is reserved: " + CHAIN);
+        }
+        this.defaultGraph = graph(defaultGraph);
+    }
+
+    /**
+     * The graph the message asks for, or the configured default; {@code null} for the fixed chain.
+     *
+     * @throws ImageProcessingException with {@link ErrorCode#CONFIGURATION_ERROR} for an unknown graph name
+     */
+    public PipelineGraph select(ImageProcessingMessage message) {
+        Map<String, Object> metadata = message.getMetadata();
+        if (metadata == null || metadata.get(PIPELINE_KEY) == null) {
+            return defaultGraph;
+        }
+        return graph(metadata.get(PIPELINE_KEY).toString().trim());
+    }
+
+    private PipelineGraph graph(String name) {
+        if (name == null || name.isBlank() || name.equals(CHAIN)) {
+            return null;
+        }
+        PipelineGraph graph = graphs.get(name);
+        if (graph == null) {
+            throw new ImageProcessingException(ErrorCode.CONFIGURATION_ERROR, "Unknown pipeline graph: " + name);
+        }
+        return graph;
+    }
+
+    /**
+     * Validates the message unless it already is, then runs every stage of {@code graph} on its source.
+     */
+    public ImageProcessingMessage run(PipelineGraph graph, ImageProcessingContext context) throws Exception {
+        ImageProcessingMessage message = context.getMessage();
+        if (message.getStatus() == null || message.getStatus() == ProcessStatus.START) {
+            try {
+                validationProcessor.validate(context);
+            } catch (RuntimeException e) {
+                context.stageFailed();
+                throw e;
+            }
+            context.stageCompleted();
+        }
+        LOGGER.info("Running graph {} for {}", graph.getName(), message.getImageId());
+        BufferedImage source = resizeProcessor.readSource(context, maxSourceDimension);
+        Map<String, CompletableFuture<BufferedImage>> outputs = new LinkedHashMap<>();
+        // Buffers of each stage, released once no stage can read them any more
+        List<ImageBufferPool.Scope> scopes = new ArrayList<>();
+        try {
+            for (PipelineGraph.Stage stage : graph.getStages()) {
+                ImageBufferPool.Scope buffers = bufferPool.scope();
+                scopes.add(buffers);
+                CompletableFuture<BufferedImage> input = stage.input().equals(PipelineGraph.SOURCE)
+                        ? CompletableFuture.completedFuture(source) : outputs.get(stage.input());
+                outputs.put(stage.output(), input.thenApplyAsync(image -> runStage(stage, image, message, buffers), executor));
+            }
+            CompletableFuture.allOf(outputs.values().toArray(CompletableFuture[]::new)).join();
+        } catch (CompletionException e) {
+            throw unwrap(e);
+        } finally {
+            scopes.forEach(ImageBufferPool.Scope::close);
+        }
+        for (PipelineGraph.Stage stage : graph.getStages()) {
+            outputLocations(message, stage).forEach(message::recordStageOutput);
+        }
+        message.setStatus(ProcessStatus.GRAY_SCALED);
+        return message;
+    }
+
+    /**
+     * Where {@code stage} writes the message's outputs, keyed by the name each is recorded under: the stage's
+     * output name, or {@code <output>/<size>} for every level of a renditions stage.
+     */
+    public Map<String, String> outputLocations(ImageProcessingMessage message, PipelineGraph.Stage stage) {
+        String fileName = fileStorage.fileName(message.getImageId(), message.getImageFormat());
+        Map<String, String> locations = new LinkedHashMap<>();
+        if (stage.operation() == PipelineGraph.Operation.RENDITIONS) {
+            for (int size : resizeProcessor.renditionSizes(parameters(message, stage))) {
+                String name = stage.output() + "/" + size;
+                locations.put(name, Paths.get(message.getS3Path(), name, fileName).toString());
+            }
+        } else {
+            locations.put(stage.output(), Paths.get(message.getS3Path(), stage.output(), fileName).toString());
+        }
+        return locations;
+    }
+
+    private BufferedImage runStage(PipelineGraph.Stage stage, BufferedImage image, ImageProcessingMessage message,
+                                   ImageBufferPool.Scope buffers) {
+        long start = System.nanoTime();
+        ProcessStatus timedAs = stage.operation() == PipelineGraph.Operation.GRAYSCALE
+                ? ProcessStatus.GRAY_SCALED : ProcessStatus.RESIZED;
+        boolean success = false;
+        try {
+            Map<String, Object> parameters = parameters(message, stage);
+            EncodeOptions options = EncodeOptions.fromMetadata(parameters);
+            String fileName = fileStorage.fileName(message.getImageId(), message.getImageFormat());
+            BufferedImage output;
+            if (stage.operation() == PipelineGraph.Operation.RENDITIONS) {
+                Map<Integer, BufferedImage> levels = resizeProcessor.renditions(image, parameters, buffers);
+                List<FileStorage.ImageFile> files = new ArrayList<>(levels.size());
+                levels.forEach((size, level) -> files.add(new FileStorage.ImageFile(level,
+                        Paths.get(message.getS3Path(), stage.output(), size.toString()).toString(), fileName,
+                        message.getImageFormat(), options)));
+                fileStorage.writeImages(files);
+                output = levels.values().iterator().next();
+            } else {
+                output = stage.operation() == PipelineGraph.Operation.RESIZE
+                        ? resizeProcessor.resize(image, parameters, buffers)
+                        : grayscaleProcessor.grayscale(image, parameters, buffers);
+                fileStorage.writeImage(output, Paths.get(message.getS3Path(), stage.output()).toString(), fileName,
+                        message.getImageFormat(), options);
+            }
+            success = true;
+            return output;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            metrics.recordStage(timedAs, message.getImageFormat(), System.nanoTime() - start, success);
+        }
+    }
+
+    /**
+     * The message's metadata with the stage's parameters on top.
+     */
+    private static Map<String, Object> parameters(ImageProcessingMessage message, PipelineGraph.Stage stage) {
+        Map<String, Object> parameters = new HashMap<>();
+        if (message.getMetadata() != null) {
+            parameters.putAll(message.getMetadata());
+        }
+        parameters.putAll(stage.parameters());
+        return parameters;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private static Exception unwrap(CompletionException e) {
+        Throwable cause = e.getCause() instanceof UncheckedIOException io ? io.getCause() : e.getCause();
+        if (cause instanceof Exception exception) {
+            return exception;
+        }
+        if (cause instanceof Error error) {
+            throw error;
+        }
+        return e;
+    }
+}
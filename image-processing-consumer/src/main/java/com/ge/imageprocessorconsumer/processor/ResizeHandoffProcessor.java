@@ -0,0 +1,58 @@
+package com.ge.imageprocessorconsumer.processor;
+
+import com.ge.model.ImageProcessingMessage;
+import com.ge.model.ProcessStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Paths;
+
+/**
+ * Stands in for {@link ResizeProcessor} when resize runs in the separate image-resize-processor service.
+ * Validated messages are published to the resize topic and the chain stops here; the service writes the resized
+ * file and sends the message back as RESIZED, and the pipeline resumes it at grayscale.
+ */
+@Component
+@ConditionalOnProperty(name = "pipeline.resize.remote", havingValue = "true")
+public class ResizeHandoffProcessor extends AbstractImageProcessor {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ResizeHandoffProcessor.class);
+
+    private static final String INPUT_FOLDER_NAME = "raw";
+    private static final String OUTPUT_FOLDER_NAME = "resized";
+
+    private final KafkaTemplate<String, ImageProcessingMessage> kafkaTemplate;
+
+    private final String resizeTopic;
+
+    @Autowired
+    public ResizeHandoffProcessor(KafkaTemplate<String, ImageProcessingMessage> kafkaTemplate,
+                                  @Value("${kafka.resize.topic.name}") String resizeTopic) {
+        this.kafkaTemplate = kafkaTemplate;
+        this.resizeTopic = resizeTopic;
+    }
+
+    @Override
+    public ImageProcessingMessage process(ImageProcessingContext context) throws Exception {
+        ImageProcessingMessage input = context.getMessage();
+        input.setStatus(ProcessStatus.VALIDATED);
+        // Wait for the broker so the source offset is only committed once the handoff is durable
+        kafkaTemplate.send(resizeTopic, input.getImageId(), input).get();
+        LOGGER.info("Handed {} off to resize topic: {}", input.getImageId(), resizeTopic);
+        return input;
+    }
+
+    @Override
+    public String getInPutFilePath(String filePath) {
+        return Paths.get(filePath, INPUT_FOLDER_NAME).toString();
+    }
+
+    @Override
+    public String getOutPutFilePath(String filePath) {
+        return Paths.get(filePath, OUTPUT_FOLDER_NAME).toString();
+    }
+}
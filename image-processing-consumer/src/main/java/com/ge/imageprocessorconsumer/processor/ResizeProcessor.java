@@ -1,18 +1,32 @@
 package com.ge.imageprocessorconsumer.processor;
 
+import com.ge.imageprocessorconsumer.codec.EncodeOptions;
+import com.ge.imageprocessorconsumer.exception.ErrorCode;
+import com.ge.imageprocessorconsumer.exception.ImageProcessingException;
+import com.ge.imageprocessorconsumer.imaging.ImageBufferPool;
+import com.ge.imageprocessorconsumer.imaging.ResampleFilter;
+import com.ge.imageprocessorconsumer.imaging.ResizeEngine;
+import com.ge.imageprocessorconsumer.imaging.ResizeMode;
+import com.ge.imageprocessorconsumer.imaging.ResizeOptions;
 import com.ge.imageprocessorconsumer.reader.FileStorage;
+import com.ge.imageprocessorconsumer.reader.ImageMetadata;
+import com.ge.imageprocessorconsumer.reader.ImageRegionReader;
 import com.ge.model.ImageProcessingMessage;
 import com.ge.model.ProcessStatus;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
-import java.awt.Image;
-import java.awt.Graphics2D;
 import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
 
 
 @Component
@@ -21,39 +35,203 @@ public class ResizeProcessor extends AbstractImageProcessor {
     private static final String INPUT_FOLDER_NAME = "raw";
     private static final String OUTPUT_FOLDER_NAME = "resized";
 
-    private static final Integer SCALED_WIDTH = 1000;
-    private static final Integer SCALED_HEIGHT = 1000;
+    /**
+     * Metadata entry listing the rendition sizes, separated by {@code |}, {@code ,} or spaces.
+     */
+    public static final String RENDITIONS_KEY = "resize_renditions";
+
+    public static final String DEFAULT_RENDITIONS = "100,320,640,1000";
 
 
     private static final Logger LOGGER = LoggerFactory.getLogger(ResizeProcessor.class);
 
     private final FileStorage fileStorage;
 
+    private final ResizeEngine resizeEngine;
+
+    private final ResizeOptions defaultOptions;
+
+    private final boolean persistResized;
+
+    private final boolean tiled;
+
+    private final long tiledThresholdPixels;
+
+    private final long stripBytes;
+
+    private final boolean subsampling;
+
+    private final double subsamplingMinScale;
+
+    private final List<Integer> renditions;
+
     @Autowired
-    public ResizeProcessor(@Qualifier("local-file-storage") FileStorage fileStorage) {
+    public ResizeProcessor(@Qualifier("cached-local-file-storage") FileStorage fileStorage,
+                           ResizeEngine resizeEngine,
+                           @Value("${resize.width:1000}") int width,
+                           @Value("${resize.height:1000}") int height,
+                           @Value("${resize.filter:LANCZOS}") String filter,
+                           @Value("${resize.mode:FIT}") String mode,
+                           @Value("${resize.upscale:false}") boolean upscale,
+                           @Value("${pipeline.persist-resized:true}") boolean persistResized,
+                           @Value("${pipeline.tiled.enabled:false}") boolean tiled,
+                           @Value("${pipeline.tiled.threshold-pixels:4000000}") long tiledThresholdPixels,
+                           @Value("${pipeline.tiled.strip-bytes:33554432}") long stripBytes,
+                           @Value("${resize.subsampling.enabled:true}") boolean subsampling,
+                           @Value("${resize.subsampling.min-scale:2.0}") double subsamplingMinScale,
+                           @Value("${resize.renditions:" + DEFAULT_RENDITIONS + "}") String renditions) {
         this.fileStorage = fileStorage;
+        this.resizeEngine = resizeEngine;
+        this.defaultOptions = new ResizeOptions(width, height,
+                ResampleFilter.fromName(filter), ResizeMode.fromName(mode), upscale);
+        this.persistResized = persistResized;
+        this.tiled = tiled;
+        this.tiledThresholdPixels = tiledThresholdPixels;
+        this.stripBytes = stripBytes;
+        this.subsampling = subsampling;
+        this.subsamplingMinScale = subsamplingMinScale;
+        this.renditions = sizes(renditions);
     }
 
     @Override
-    public ImageProcessingMessage process(ImageProcessingMessage input) throws Exception {
+    public ImageProcessingMessage process(ImageProcessingContext context) throws Exception {
+        ImageProcessingMessage input = context.getMessage();
         LOGGER.info("Processing input file for resize: {}", input.getImageId());
-        String inputFilePath = this.getInPutFilePath(input.getS3Path());
-        BufferedImage inputImage
-                = fileStorage.readImage(inputFilePath, fileStorage.fileName(input.getImageId(), input.getImageFormat()));
-        BufferedImage resized = resize(inputImage);
-        String outputFilePath = getOutPutFilePath(input.getS3Path());
-        fileStorage.writeImage(resized, outputFilePath,
-                fileStorage.fileName(input.getImageId(), input.getImageFormat()), input.getImageFormat());
+        ResizeOptions options = defaultOptions.withOverrides(input.getMetadata());
+        BufferedImage resized = resizeFromRegions(context, options);
+        if (resized == null) {
+            resized = resizeEngine.resize(readInputImage(context, fileStorage), options, context.buffers());
+        }
+        // The next stage only needs the file when it has to read it back from storage
+        if (persistResized || !context.isInMemory()) {
+            String outputFilePath = getOutPutFilePath(input.getS3Path());
+            String outputFileName = fileStorage.fileName(input.getImageId(), input.getImageFormat());
+            fileStorage.writeImage(resized, outputFilePath, outputFileName, input.getImageFormat(),
+                    EncodeOptions.fromMetadata(input.getMetadata()));
+            input.recordStageOutput(ProcessStatus.RESIZED, Paths.get(outputFilePath, outputFileName).toString());
+        }
+        context.setWorkingImage(resized);
         input.setStatus(ProcessStatus.RESIZED);
-        return processNext(input);
+        return processNext(context);
+    }
+
+    /**
+     * Decodes the source subsampled when the reduction is large enough, and in strips when the decoded pixels are
+     * above the tiling threshold. Returns {@code null} when the source should simply be decoded whole, which is
+     * also the case when a previous stage already holds the decoded image.
+     */
+    private BufferedImage resizeFromRegions(ImageProcessingContext context, ResizeOptions options) throws IOException {
+        if (!(tiled || subsampling) || context.hasWorkingImage()) {
+            return null;
+        }
+        ImageProcessingMessage input = context.getMessage();
+        Path inputFile = inputFile(input, fileStorage);
+        String inputFilePath = inputFile.getParent().toString();
+        String inputFileName = inputFile.getFileName().toString();
+        ImageMetadata metadata = sourceMetadata(context);
+        int period = subsampling
+                ? resizeEngine.subsampling(metadata.getWidth(), metadata.getHeight(), options, subsamplingMinScale) : 1;
+        int width = (metadata.getWidth() + period - 1) / period;
+        int height = (metadata.getHeight() + period - 1) / period;
+        boolean strips = tiled && (long) width * height > tiledThresholdPixels;
+        if (period == 1 && !strips) {
+            return null;
+        }
+        // Rows sized so a decoded strip and its ARGB copy fit in strip-bytes
+        int stripRows = strips ? (int) Math.max(16, Math.min(height, stripBytes / ((long) width * 8))) : height;
+        try (ImageRegionReader reader = ImageRegionReader.open(fileStorage.openImageStream(inputFilePath, inputFileName))) {
+            LOGGER.info("Resizing {} ({}x{}) decoded at 1/{} in strips of {} rows", input.getImageId(),
+                    metadata.getWidth(), metadata.getHeight(), period, stripRows);
+            return resizeEngine.resize(reader, options, period, stripRows, context.buffers());
+        }
+    }
+
+    /**
+     * The decoded source image, whole, for stages of a {@link PipelineGraph}.
+     *
+     * @throws ImageProcessingException with {@link ErrorCode#PROCESSING_FAILURE} when a side of the source is above
+     *                                  {@code maxDimension}, before anything is decoded
+     */
+    BufferedImage readSource(ImageProcessingContext context, int maxDimension) throws IOException {
+        if (!context.hasWorkingImage()) {
+            ImageMetadata metadata = sourceMetadata(context);
+            if (metadata.getWidth() > maxDimension || metadata.getHeight() > maxDimension) {
+                LOGGER.error("Source of {} too large to decode whole: {}x{}", context.getMessage().getImageId(),
+                        metadata.getWidth(), metadata.getHeight());
+                throw new ImageProcessingException(ErrorCode.PROCESSING_FAILURE, String.format(
+                        "Image dimensions are too large for a pipeline graph. Width and Height should be at most %d",
+                        maxDimension));
+            }
+        }
+        return readInputImage(context, fileStorage);
     }
 
-    private BufferedImage resize(BufferedImage img) {
-        BufferedImage resizedImage = new BufferedImage(SCALED_WIDTH, SCALED_HEIGHT, BufferedImage.TYPE_INT_ARGB);
-        Graphics2D g2d = resizedImage.createGraphics();
-        g2d.drawImage(resizedImage, 0, 0, null);
-        g2d.dispose();
-        return img;
+    /**
+     * The source header recorded by validation, or probed again when the message resumed after it.
+     */
+    private ImageMetadata sourceMetadata(ImageProcessingContext context) throws IOException {
+        ImageMetadata metadata = context.getSourceMetadata();
+        if (metadata == null) {
+            Path inputFile = inputFile(context.getMessage(), fileStorage);
+            metadata = fileStorage.probeImage(inputFile.getParent().toString(), inputFile.getFileName().toString());
+        }
+        return metadata;
+    }
+
+    /**
+     * Resizes {@code image} with the configured settings overridden by {@code parameters}, for stages of a
+     * {@link PipelineGraph}.
+     */
+    BufferedImage resize(BufferedImage image, Map<String, Object> parameters, ImageBufferPool.Scope buffers) {
+        return resizeEngine.resize(image, defaultOptions.withOverrides(parameters), buffers);
+    }
+
+    /**
+     * Downscale pyramid of {@code image} with a level for every size of {@link #renditionSizes}, largest first,
+     * for stages of a {@link PipelineGraph}.
+     */
+    Map<Integer, BufferedImage> renditions(BufferedImage image, Map<String, Object> parameters,
+                                           ImageBufferPool.Scope buffers) {
+        return resizeEngine.pyramid(image, renditionSizes(parameters), defaultOptions.withOverrides(parameters),
+                buffers);
+    }
+
+    /**
+     * The rendition sizes in {@code parameters}, or those of {@code resize.renditions}.
+     */
+    List<Integer> renditionSizes(Map<String, Object> parameters) {
+        Object sizes = parameters.get(RENDITIONS_KEY);
+        return sizes != null ? sizes(sizes.toString()) : renditions;
+    }
+
+    private static List<Integer> sizes(String sizes) {
+        try {
+            List<Integer> parsed = Arrays.stream(sizes.trim().split("[|,\\s]+"))
+                    .filter(size -> !size.isEmpty())
+                    .map(Integer::valueOf)
+                    .toList();
+            if (parsed.isEmpty()) {
+                throw new IllegalArgumentException("no sizes");
+            }
+            return parsed;
+        } catch (IllegalArgumentException e) {
+            throw new ImageProcessingException(ErrorCode.CONFIGURATION_ERROR,
+                    "Invalid rendition sizes '" + sizes + "': " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * The resize settings this message would be processed with, for result cache keys.
+     */
+    public String parameterKey(ImageProcessingMessage input) {
+        return defaultOptions.withOverrides(input.getMetadata()) + (persistResized ? " persisted" : "")
+                + (tiled ? " tiled above " + tiledThresholdPixels : "")
+                + (subsampling ? " subsampled to " + subsamplingMinScale + "x" : "");
+    }
+
+    @Override
+    protected Path inputFile(ImageProcessingMessage input, FileStorage fileStorage) {
+        return input.getSourcePath() != null ? Paths.get(input.getSourcePath()) : super.inputFile(input, fileStorage);
     }
 
     @Override
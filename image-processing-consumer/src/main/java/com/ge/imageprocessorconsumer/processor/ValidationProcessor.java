@@ -3,16 +3,18 @@ package com.ge.imageprocessorconsumer.processor;
 import com.ge.imageprocessorconsumer.exception.ErrorCode;
 import com.ge.imageprocessorconsumer.exception.ImageProcessingException;
 import com.ge.imageprocessorconsumer.reader.FileStorage;
+import com.ge.imageprocessorconsumer.reader.ImageMetadata;
 import com.ge.model.ImageProcessingMessage;
 import com.ge.model.ProcessStatus;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
-import java.awt.image.BufferedImage;
 import java.io.IOException;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 
 @Component
@@ -23,38 +25,77 @@ public class ValidationProcessor extends AbstractImageProcessor {
 
     private final FileStorage fileStorage;
 
+    private final int minDimension;
+
+    private final int maxDimension;
+
+    /**
+     * With tiled resizing the source is never decoded whole, so the larger {@code validation.tiled-max-dimension}
+     * applies instead of {@code validation.max-dimension}.
+     */
     @Autowired
-    public ValidationProcessor(@Qualifier("local-file-storage")  FileStorage fileStorage) {
+    public ValidationProcessor(@Qualifier("cached-local-file-storage") FileStorage fileStorage,
+                               @Value("${validation.min-dimension:10}") int minDimension,
+                               @Value("${validation.max-dimension:2000}") int maxDimension,
+                               @Value("${pipeline.tiled.enabled:false}") boolean tiled,
+                               @Value("${validation.tiled-max-dimension:10000}") int tiledMaxDimension) {
         this.fileStorage = fileStorage;
+        this.minDimension = minDimension;
+        this.maxDimension = tiled ? tiledMaxDimension : maxDimension;
     }
 
     @Override
-    public ImageProcessingMessage process(ImageProcessingMessage input) throws Exception {
+    public ImageProcessingMessage process(ImageProcessingContext context) throws Exception {
+        validate(context);
+        return processNext(context);
+    }
+
+    /**
+     * Checks the declared format and the source header, records the header in the context and marks the message
+     * VALIDATED, without running any later stage.
+     */
+    void validate(ImageProcessingContext context) {
+        ImageProcessingMessage input = context.getMessage();
         LOGGER.info("Validating input image file and metadata: {}", input.getImageId());
         if(!validFormat(input.getImageFormat())) {
             throw new ImageProcessingException(ErrorCode.INVALID_FILE, "Invalid image format. Supported formats are PNG and JPG");
         }
-        String inputFilePath = this.getInPutFilePath(input.getS3Path());
+        Path inputFile = inputFile(input, fileStorage);
         try {
-            BufferedImage inputImage
-                    = fileStorage.readImage(inputFilePath, fileStorage.fileName(input.getImageId(), input.getImageFormat()));
-            if (inputImage.getWidth() > 2000 || inputImage.getHeight() > 2000
-                    || inputImage.getWidth() < 10 || inputImage.getHeight() < 10) {
-                LOGGER.error("Invalid image dimensions: Height {}, Width : {}", inputImage.getHeight(), inputImage.getWidth());
-                throw new ImageProcessingException(ErrorCode.PROCESSING_FAILURE, "Image dimensions are too large or too small for resizing. Width should be 10 - 5000 and Height should be 10 - 5000");
+            // Header only: dimensions and the real container format, no pixel decode
+            ImageMetadata metadata
+                    = fileStorage.probeImage(inputFile.getParent().toString(), inputFile.getFileName().toString());
+            if (!validFormat(metadata.getFormat())) {
+                LOGGER.error("Unsupported image content: declared {}, detected {}", input.getImageFormat(), metadata.getFormat());
+                throw new ImageProcessingException(ErrorCode.INVALID_FILE, "Invalid image content. Supported formats are PNG and JPG");
+            }
+            if (!metadata.getFormat().equals(input.getImageFormat())) {
+                LOGGER.warn("Image {} declared as {} but contains {}", input.getImageId(), input.getImageFormat(), metadata.getFormat());
             }
+            if (metadata.getWidth() > maxDimension || metadata.getHeight() > maxDimension
+                    || metadata.getWidth() < minDimension || metadata.getHeight() < minDimension) {
+                LOGGER.error("Invalid image dimensions: Height {}, Width : {}", metadata.getHeight(), metadata.getWidth());
+                throw new ImageProcessingException(ErrorCode.PROCESSING_FAILURE, String.format(
+                        "Image dimensions are too large or too small for resizing. Width should be %d - %d and Height should be %d - %d",
+                        minDimension, maxDimension, minDimension, maxDimension));
+            }
+            context.setSourceMetadata(metadata);
         } catch (IOException e) {
             LOGGER.error("Image format not supported or failed to load/write image {}", e.getMessage(), e);
             throw new ImageProcessingException(ErrorCode.IO_ERROR, "Invalid file format");
         }
         input.setStatus(ProcessStatus.VALIDATED);
-        return processNext(input);
     }
 
     private boolean validFormat(String imageFormat) {
         return "png".equals(imageFormat) || "jpg".equals(imageFormat);
     }
 
+    @Override
+    protected Path inputFile(ImageProcessingMessage input, FileStorage fileStorage) {
+        return input.getSourcePath() != null ? Paths.get(input.getSourcePath()) : super.inputFile(input, fileStorage);
+    }
+
     @Override
     public String getInPutFilePath(String filePath) {
         return Paths.get(filePath, INPUT_FOLDER_NAME).toString();
@@ -0,0 +1,81 @@
+package com.ge.imageprocessorconsumer.reader;
+
+import javax.imageio.stream.ImageInputStreamImpl;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Image input stream over bytes already in memory, such as a mapped file or a buffer read in one call. Reads and
+ * seeks are plain buffer accesses; nothing is cached or copied beyond what the decoder asks for.
+ */
+final class ByteBufferImageInputStream extends ImageInputStreamImpl {
+
+    private final ByteBuffer buffer;
+    private final int length;
+    private final Runnable onClose;
+    private boolean closed;
+
+    /**
+     * Streams the bytes between the buffer's position and limit; the buffer itself is left untouched.
+     */
+    ByteBufferImageInputStream(ByteBuffer buffer) {
+        this(buffer, () -> { });
+    }
+
+    /**
+     * Like {@link #ByteBufferImageInputStream(ByteBuffer)}, running {@code onClose} once the stream is closed, such
+     * as to return a pooled buffer.
+     */
+    ByteBufferImageInputStream(ByteBuffer buffer, Runnable onClose) {
+        this.buffer = buffer.slice();
+        this.length = this.buffer.limit();
+        this.onClose = onClose;
+    }
+
+    @Override
+    public int read() throws IOException {
+        checkClosed();
+        bitOffset = 0;
+        if (streamPos >= length) {
+            return -1;
+        }
+        return buffer.get((int) streamPos++) & 0xff;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int len) throws IOException {
+        checkClosed();
+        if (offset < 0 || len < 0 || offset + len > bytes.length || offset + len < 0) {
+            throw new IndexOutOfBoundsException();
+        }
+        bitOffset = 0;
+        if (len == 0) {
+            return 0;
+        }
+        if (streamPos >= length) {
+            return -1;
+        }
+        int count = (int) Math.min(len, length - streamPos);
+        buffer.get((int) streamPos, bytes, offset, count);
+        streamPos += count;
+        return count;
+    }
+
+    @Override
+    public long length() {
+        return length;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            super.close();
+        } finally {
+            onClose.run();
+        }
+    }
+}
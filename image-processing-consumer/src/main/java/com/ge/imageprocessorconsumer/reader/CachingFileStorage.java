@@ -0,0 +1,241 @@
+package com.ge.imageprocessorconsumer.reader;
+
+import com.ge.imageprocessorconsumer.codec.EncodeOptions;
+import com.ge.imageprocessorconsumer.codec.ImageCodecs;
+import com.ge.imageprocessorconsumer.imaging.ImageBufferPool;
+import com.ge.imageprocessorconsumer.metrics.PipelineMetrics;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.imageio.stream.ImageInputStream;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * {@link FileStorage} decorator that keeps recently decoded images and recently read encoded bytes in memory.
+ * <p>
+ * Both caches are bounded by bytes (pixel buffer size for images, array length for encoded files) and evict with
+ * Caffeine's W-TinyLFU policy. Every entry is tagged with the delegate's {@link FileStorage#version} (mtime and
+ * size locally, ETag on S3) and only served while the stored file still has that version, so a file rewritten
+ * by another process is read again. Writes through this storage replace the entry; images written in a lossless
+ * format are kept as decoded, so the next stage reading them back skips the decode, unless their pixels belong to
+ * an {@link ImageBufferPool} scope.
+ * <p>
+ * Images are written by the delegate, which encodes them into a pooled buffer and writes that out, so the encoded
+ * cache is only filled by reads. With no room for encoded bytes, reads that miss the decoded cache go to the
+ * delegate's {@link FileStorage#readImage}. Reads that miss decode here
+ * through {@link ImageCodecs}, which times the codec work apart from the storage latency.
+ * <p>
+ * Cached images are shared between callers and must be treated as read-only.
+ */
+public class CachingFileStorage implements FileStorage {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CachingFileStorage.class);
+
+    private static final Set<String> LOSSLESS_FORMATS = Set.of("png", "bmp");
+
+    private final FileStorage delegate;
+    private final ImageCodecs codecs;
+    private final long maxEncodedBytes;
+    private final Cache<String, Versioned<BufferedImage>> images;
+    private final Cache<String, Versioned<byte[]>> encoded;
+
+    private record Versioned<T>(String version, T value) {
+    }
+
+    public CachingFileStorage(FileStorage delegate, String storageName, long maxImageBytes, long maxEncodedBytes,
+                              PipelineMetrics metrics, ImageCodecs codecs) {
+        this.delegate = delegate;
+        this.codecs = codecs;
+        this.maxEncodedBytes = Math.min(maxEncodedBytes, Integer.MAX_VALUE);
+        this.images = Caffeine.newBuilder()
+                .maximumWeight(maxImageBytes)
+                .weigher((String key, Versioned<BufferedImage> entry) -> weight(pixelBytes(entry.value())))
+                .executor(Runnable::run)
+                .recordStats()
+                .build();
+        this.encoded = Caffeine.newBuilder()
+                .maximumWeight(maxEncodedBytes)
+                .weigher((String key, Versioned<byte[]> entry) -> entry.value().length)
+                .executor(Runnable::run)
+                .recordStats()
+                .build();
+        metrics.monitor(images, "storage.images", storageName);
+        metrics.monitor(encoded, "storage.encoded", storageName);
+    }
+
+    @Override
+    public BufferedImage readImage(String inputFilePath, String inputFileName) throws IOException {
+        String key = key(inputFilePath, inputFileName);
+        String version = delegate.version(inputFilePath, inputFileName);
+        if (version == null) {
+            return delegate.readImage(inputFilePath, inputFileName);
+        }
+        BufferedImage image = current(images, key, version);
+        if (image != null) {
+            return image;
+        }
+        byte[] bytes = current(encoded, key, version);
+        if (bytes != null) {
+            image = decode(bytes);
+        } else {
+            image = readThrough(inputFilePath, inputFileName, key, version);
+        }
+        if (image == null) {
+            throw new IOException("Invalid image format: " + inputFileName);
+        }
+        images.put(key, new Versioned<>(version, image));
+        return image;
+    }
+
+    /**
+     * Without an encoded cache the delegate reads and decodes the file its own way, such as from a pooled buffer or
+     * a mapping locally. Otherwise files that fit the encoded cache are read into it first, keeping later probes and
+     * region reads off the storage, and larger ones are decoded straight from the delegate's stream.
+     */
+    private BufferedImage readThrough(String inputFilePath, String inputFileName, String key, String version)
+            throws IOException {
+        if (maxEncodedBytes == 0) {
+            return delegate.readImage(inputFilePath, inputFileName);
+        }
+        try (ImageInputStream stream = delegate.openImageStream(inputFilePath, inputFileName)) {
+            long length = stream.length();
+            if (length < 0 || length > maxEncodedBytes) {
+                return codecs.decode(stream);
+            }
+            byte[] bytes = new byte[(int) length];
+            stream.readFully(bytes);
+            encoded.put(key, new Versioned<>(version, bytes));
+            return decode(bytes);
+        }
+    }
+
+    @Override
+    public ImageMetadata probeImage(String inputFilePath, String inputFileName) throws IOException {
+        String key = key(inputFilePath, inputFileName);
+        Versioned<byte[]> cached = encoded.getIfPresent(key);
+        if (cached != null && cached.version().equals(delegate.version(inputFilePath, inputFileName))) {
+            try (ImageInputStream stream = new ByteBufferImageInputStream(ByteBuffer.wrap(cached.value()))) {
+                return ImageProbe.probe(stream);
+            }
+        }
+        return delegate.probeImage(inputFilePath, inputFileName);
+    }
+
+    /**
+     * Served from the cached encoded bytes when they are current. Region reads bypass the decoded image cache,
+     * which is meant for images that fit in memory whole.
+     */
+    @Override
+    public ImageInputStream openImageStream(String inputFilePath, String inputFileName) throws IOException {
+        String key = key(inputFilePath, inputFileName);
+        Versioned<byte[]> cached = encoded.getIfPresent(key);
+        if (cached != null && cached.version().equals(delegate.version(inputFilePath, inputFileName))) {
+            return new ByteBufferImageInputStream(ByteBuffer.wrap(cached.value()));
+        }
+        return delegate.openImageStream(inputFilePath, inputFileName);
+    }
+
+    @Override
+    public boolean exists(String filePath, String fileName) throws IOException {
+        return delegate.exists(filePath, fileName);
+    }
+
+    @Override
+    public String version(String filePath, String fileName) throws IOException {
+        return delegate.version(filePath, fileName);
+    }
+
+    @Override
+    public void writeImage(BufferedImage image, String outputFilePath, String outputFileName, String fileFormat,
+                           EncodeOptions options) throws IOException {
+        String key = key(outputFilePath, outputFileName);
+        images.invalidate(key);
+        encoded.invalidate(key);
+        delegate.writeImage(image, outputFilePath, outputFileName, fileFormat, options);
+        cacheWritten(image, outputFilePath, outputFileName, fileFormat);
+    }
+
+    @Override
+    public void writeImages(List<ImageFile> files) throws IOException {
+        for (ImageFile file : files) {
+            String key = key(file.filePath(), file.fileName());
+            images.invalidate(key);
+            encoded.invalidate(key);
+        }
+        delegate.writeImages(files);
+        for (ImageFile file : files) {
+            cacheWritten(file.image(), file.filePath(), file.fileName(), file.fileFormat());
+        }
+    }
+
+    private void cacheWritten(BufferedImage image, String filePath, String fileName, String fileFormat)
+            throws IOException {
+        if (!LOSSLESS_FORMATS.contains(fileFormat.toLowerCase(Locale.ROOT)) || ImageBufferPool.isPooled(image)) {
+            return;
+        }
+        String version = delegate.version(filePath, fileName);
+        if (version != null) {
+            images.put(key(filePath, fileName), new Versioned<>(version, image));
+        }
+    }
+
+    public CacheStats imageStats() {
+        return images.stats();
+    }
+
+    public CacheStats encodedStats() {
+        return encoded.stats();
+    }
+
+    public long imageBytes() {
+        return images.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0L)).orElse(0L);
+    }
+
+    public long encodedBytes() {
+        return encoded.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0L)).orElse(0L);
+    }
+
+    /**
+     * Value cached under the key if it was read at {@code version}; a stale entry is dropped and counts as a miss.
+     */
+    private static <T> T current(Cache<String, Versioned<T>> cache, String key, String version) {
+        Versioned<T> entry = cache.getIfPresent(key);
+        if (entry == null) {
+            return null;
+        }
+        if (!entry.version().equals(version)) {
+            LOGGER.debug("Cached copy of {} is stale ({} != {})", key, entry.version(), version);
+            cache.invalidate(key);
+            return null;
+        }
+        return entry.value();
+    }
+
+    private BufferedImage decode(byte[] bytes) throws IOException {
+        try (ImageInputStream stream = new ByteBufferImageInputStream(ByteBuffer.wrap(bytes))) {
+            return codecs.decode(stream);
+        }
+    }
+
+    private static String key(String filePath, String fileName) {
+        return Paths.get(filePath, fileName).toString();
+    }
+
+    static long pixelBytes(BufferedImage image) {
+        DataBuffer buffer = image.getRaster().getDataBuffer();
+        return (long) buffer.getSize() * buffer.getNumBanks() * DataBuffer.getDataTypeSize(buffer.getDataType()) / 8;
+    }
+
+    private static int weight(long bytes) {
+        return (int) Math.min(Integer.MAX_VALUE, bytes);
+    }
+}
@@ -0,0 +1,72 @@
+package com.ge.imageprocessorconsumer.reader;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fixed set of reusable direct buffers of one size, allocated on first use. When all of them are taken,
+ * {@link #acquire()} blocks until one is released, which bounds the off-heap memory held by uploads in flight.
+ */
+@Component
+public class DirectBufferPool {
+
+    private final int bufferSize;
+    private final int capacity;
+    private final BlockingQueue<ByteBuffer> free;
+    private final AtomicInteger allocated = new AtomicInteger();
+
+    @Autowired
+    public DirectBufferPool(@Value("${amazon.s3.upload.part-size-bytes:8388608}") int bufferSize,
+                            @Value("${amazon.s3.upload.buffers:8}") int capacity) {
+        if (bufferSize <= 0 || capacity <= 0) {
+            throw new IllegalArgumentException("Buffer size and count must be positive");
+        }
+        this.bufferSize = bufferSize;
+        this.capacity = capacity;
+        this.free = new LinkedBlockingQueue<>(capacity);
+    }
+
+    /**
+     * Returns a cleared buffer, waiting for a release if the pool is exhausted.
+     */
+    public ByteBuffer acquire() throws InterruptedIOException {
+        ByteBuffer buffer = free.poll();
+        if (buffer != null) {
+            return buffer;
+        }
+        if (allocated.incrementAndGet() <= capacity) {
+            return ByteBuffer.allocateDirect(bufferSize);
+        }
+        allocated.decrementAndGet();
+        try {
+            return free.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for an upload buffer");
+        }
+    }
+
+    public void release(ByteBuffer buffer) {
+        buffer.clear();
+        free.offer(buffer);
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int getAvailable() {
+        return free.size() + capacity - allocated.get();
+    }
+}
@@ -1,12 +1,68 @@
 package com.ge.imageprocessorconsumer.reader;
 
+import com.ge.imageprocessorconsumer.codec.EncodeOptions;
+
+import javax.imageio.stream.ImageInputStream;
 import java.io.IOException;
 import java.awt.image.BufferedImage;
+import java.util.List;
 
 public interface FileStorage {
 
+    /**
+     * One image of a batch write, see {@link #writeImages}.
+     */
+    record ImageFile(BufferedImage image, String filePath, String fileName, String fileFormat, EncodeOptions options) {
+    }
+
     BufferedImage readImage(String inputFilePath, String inputFileName) throws IOException;
-    void writeImage(BufferedImage image, String outputFilePath, String outputFileName, String fileFormat) throws IOException;
+
+    /**
+     * Encodes the image with the storage's default encoder settings.
+     */
+    default void writeImage(BufferedImage image, String outputFilePath, String outputFileName, String fileFormat) throws IOException {
+        writeImage(image, outputFilePath, outputFileName, fileFormat, EncodeOptions.none());
+    }
+
+    /**
+     * Encodes the image with the given settings on top of the storage's defaults, replacing any existing file.
+     */
+    void writeImage(BufferedImage image, String outputFilePath, String outputFileName, String fileFormat,
+                    EncodeOptions options) throws IOException;
+
+    /**
+     * Encodes and stores several images as one batch, replacing any existing files. Storages that can overlap the
+     * writes or publish them together override this; by default the images are written one after the other.
+     */
+    default void writeImages(List<ImageFile> files) throws IOException {
+        for (ImageFile file : files) {
+            writeImage(file.image(), file.filePath(), file.fileName(), file.fileFormat(), file.options());
+        }
+    }
+
+    /**
+     * Reads only the image header: dimensions, pixel layout and the container format taken from the magic bytes.
+     */
+    ImageMetadata probeImage(String inputFilePath, String inputFileName) throws IOException;
+
+    /**
+     * Opens the encoded file for decoding with an {@link javax.imageio.ImageReader}, including seeking back to read
+     * several regions. The caller closes the stream.
+     */
+    ImageInputStream openImageStream(String inputFilePath, String inputFileName) throws IOException;
+
+    /**
+     * Whether a complete, non-empty file exists at the location, without reading it.
+     */
+    boolean exists(String filePath, String fileName) throws IOException;
+
+    /**
+     * Identifies the current content of the file without reading it, such as its modification time or ETag.
+     * Returns {@code null} when the file does not exist or the storage has no such validator.
+     */
+    default String version(String filePath, String fileName) throws IOException {
+        return null;
+    }
 
     default String fileName(String fileName, String fileFormat) {
         return fileName + "." + fileFormat;
@@ -0,0 +1,60 @@
+package com.ge.imageprocessorconsumer.reader;
+
+/**
+ * Image properties read from the container header without decoding any pixels.
+ */
+public class ImageMetadata {
+
+    private final String format;
+    private final int width;
+    private final int height;
+    private final int imageType;
+    private final int bands;
+    private final boolean alpha;
+
+    public ImageMetadata(String format, int width, int height, int imageType, int bands, boolean alpha) {
+        this.format = format;
+        this.width = width;
+        this.height = height;
+        this.imageType = imageType;
+        this.bands = bands;
+        this.alpha = alpha;
+    }
+
+    /**
+     * Container format detected from the file's magic bytes, e.g. {@code jpg} or {@code png}.
+     */
+    public String getFormat() {
+        return format;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * {@code BufferedImage.TYPE_*} the decoder will produce, {@code TYPE_CUSTOM} (0) when it has no standard type
+     * or the reader cannot tell without decoding.
+     */
+    public int getImageType() {
+        return imageType;
+    }
+
+    public int getBands() {
+        return bands;
+    }
+
+    public boolean hasAlpha() {
+        return alpha;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ImageMetadata{format=%s, width=%d, height=%d, imageType=%d, bands=%d, alpha=%s}",
+                format, width, height, imageType, bands, alpha);
+    }
+}
@@ -0,0 +1,96 @@
+package com.ge.imageprocessorconsumer.reader;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.Iterator;
+
+/**
+ * Reads image dimensions and pixel layout from the header through an {@link ImageReader},
+ * after identifying the container from its magic bytes.
+ */
+public final class ImageProbe {
+
+    private static final int SIGNATURE_LENGTH = 12;
+
+    private ImageProbe() {
+    }
+
+    /**
+     * Probes the image at the stream's current position. The caller owns and closes the stream.
+     *
+     * @throws IOException if the signature is not a known image container or the header cannot be read
+     */
+    public static ImageMetadata probe(ImageInputStream stream) throws IOException {
+        String format = detectFormat(stream);
+        if (format == null) {
+            throw new IOException("Unrecognized image signature");
+        }
+        Iterator<ImageReader> readers = ImageIO.getImageReadersByFormatName(format);
+        if (!readers.hasNext()) {
+            throw new IOException("No image reader available for format: " + format);
+        }
+        ImageReader reader = readers.next();
+        try {
+            reader.setInput(stream, true, true);
+            int width = reader.getWidth(0);
+            int height = reader.getHeight(0);
+            ImageTypeSpecifier type = reader.getRawImageType(0);
+            if (type == null) {
+                return new ImageMetadata(format, width, height, BufferedImage.TYPE_CUSTOM, 0, false);
+            }
+            return new ImageMetadata(format, width, height, type.getBufferedImageType(),
+                    type.getNumBands(), type.getColorModel().hasAlpha());
+        } finally {
+            reader.dispose();
+        }
+    }
+
+    /**
+     * Identifies the container from its leading bytes, leaving the stream position unchanged.
+     *
+     * @return the format name used for file extensions, or {@code null} if unknown
+     */
+    public static String detectFormat(ImageInputStream stream) throws IOException {
+        byte[] header = new byte[SIGNATURE_LENGTH];
+        stream.mark();
+        int length = 0;
+        try {
+            int read;
+            while (length < SIGNATURE_LENGTH && (read = stream.read(header, length, SIGNATURE_LENGTH - length)) > 0) {
+                length += read;
+            }
+        } finally {
+            stream.reset();
+        }
+        return detectFormat(header, length);
+    }
+
+    static String detectFormat(byte[] header, int length) {
+        if (length >= 3 && (header[0] & 0xFF) == 0xFF && (header[1] & 0xFF) == 0xD8 && (header[2] & 0xFF) == 0xFF) {
+            return "jpg";
+        }
+        if (length >= 8 && (header[0] & 0xFF) == 0x89 && header[1] == 'P' && header[2] == 'N' && header[3] == 'G'
+                && header[4] == 0x0D && header[5] == 0x0A && header[6] == 0x1A && header[7] == 0x0A) {
+            return "png";
+        }
+        if (length >= 4 && header[0] == 'G' && header[1] == 'I' && header[2] == 'F' && header[3] == '8') {
+            return "gif";
+        }
+        if (length >= 2 && header[0] == 'B' && header[1] == 'M') {
+            return "bmp";
+        }
+        if (length >= 12 && header[0] == 'R' && header[1] == 'I' && header[2] == 'F' && header[3] == 'F'
+                && header[8] == 'W' && header[9] == 'E' && header[10] == 'B' && header[11] == 'P') {
+            return "webp";
+        }
+        if (length >= 4 && ((header[0] == 'I' && header[1] == 'I' && header[2] == 0x2A && header[3] == 0)
+                || (header[0] == 'M' && header[1] == 'M' && header[2] == 0 && header[3] == 0x2A))) {
+            return "tiff";
+        }
+        return null;
+    }
+}
@@ -0,0 +1,90 @@
+package com.ge.imageprocessorconsumer.reader;
+
+import com.ge.imageprocessorconsumer.imaging.StripSource;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Iterator;
+
+/**
+ * Decodes regions of an image through {@link ImageReadParam#setSourceRegion}, holding only the requested pixels.
+ * <p>
+ * PNG and baseline JPEG cannot seek to a row, so the decoder still runs from the top of the image up to the end of
+ * each region; reading an image in {@code n} strips costs about {@code n / 2} full decodes. Strips should therefore
+ * be as tall as the memory budget allows. Subsampled reads still run the decoder over every row but allocate and
+ * convert only the kept pixels.
+ */
+public class ImageRegionReader implements StripSource, Closeable {
+
+    private final ImageInputStream stream;
+    private final ImageReader reader;
+
+    private ImageRegionReader(ImageInputStream stream, ImageReader reader) {
+        this.stream = stream;
+        this.reader = reader;
+    }
+
+    /**
+     * Takes ownership of the stream, which is closed with the reader.
+     */
+    public static ImageRegionReader open(ImageInputStream stream) throws IOException {
+        Iterator<ImageReader> readers = ImageIO.getImageReaders(stream);
+        if (!readers.hasNext()) {
+            stream.close();
+            throw new IOException("Unrecognized image format");
+        }
+        ImageReader reader = readers.next();
+        // Not seek-forward-only: every region read starts again from the image header
+        reader.setInput(stream, false, true);
+        return new ImageRegionReader(stream, reader);
+    }
+
+    @Override
+    public int getWidth() {
+        try {
+            return reader.getWidth(0);
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot read image width", e);
+        }
+    }
+
+    @Override
+    public int getHeight() {
+        try {
+            return reader.getHeight(0);
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot read image height", e);
+        }
+    }
+
+    @Override
+    public BufferedImage readRegion(int x, int y, int width, int height) throws IOException {
+        ImageReadParam param = reader.getDefaultReadParam();
+        param.setSourceRegion(new Rectangle(x, y, width, height));
+        return reader.read(0, param);
+    }
+
+    /**
+     * Skips the dropped pixels in the decoder through {@link ImageReadParam#setSourceSubsampling}, so only the
+     * subsampled region is ever allocated.
+     */
+    @Override
+    public BufferedImage readRegion(int x, int y, int width, int height, int period) throws IOException {
+        ImageReadParam param = reader.getDefaultReadParam();
+        param.setSourceRegion(new Rectangle(x, y, width, height));
+        param.setSourceSubsampling(period, period, 0, 0);
+        return reader.read(0, param);
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.dispose();
+        stream.close();
+    }
+}
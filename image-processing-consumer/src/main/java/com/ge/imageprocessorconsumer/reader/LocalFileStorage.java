@@ -1,6 +1,9 @@
 package com.ge.imageprocessorconsumer.reader;
 
 
+import com.ge.imageprocessorconsumer.codec.EncodeOptions;
+import com.ge.imageprocessorconsumer.codec.ImageCodecs;
+import com.ge.imageprocessorconsumer.imaging.ImageBufferPool;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -9,20 +12,137 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import javax.imageio.ImageIO;
+import javax.imageio.stream.ImageInputStream;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
 
+/**
+ * Images on the local filesystem.
+ * <p>
+ * Reads hand the decoder the whole file in memory instead of a buffered stream issuing small reads: files below
+ * {@code storage.local.mmap-threshold-bytes} are read in one call into one of {@code storage.local.read-buffers}
+ * pooled direct buffers, larger ones are memory-mapped. Writes go to a temporary file next to the target that is
+ * renamed over it once complete, so a reader sees either the previous file or the whole new one, never a partial
+ * one; a batch of files is renamed into place only once all of them are written. With {@code storage.local.fsync}
+ * the data is also forced to disk before the rename.
+ */
 @Component
 @Qualifier("local-file-storage")
 public class LocalFileStorage implements FileStorage {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(LocalFileStorage.class);
 
+    private static final int DEFAULT_MMAP_THRESHOLD = 1 << 20;
+
+    private static final int DEFAULT_READ_BUFFERS = 16;
+
+    private final ImageCodecs codecs;
+
+    private final ImageBufferPool bufferPool;
+
+    private final DirectBufferPool readBuffers;
+
+    private final boolean fsync;
+
+    public LocalFileStorage() {
+        this(ImageCodecs.defaults(), ImageBufferPool.disabled(), DEFAULT_MMAP_THRESHOLD, DEFAULT_READ_BUFFERS, false);
+    }
+
+    @Autowired
+    public LocalFileStorage(ImageCodecs codecs, ImageBufferPool bufferPool,
+                            @Value("${storage.local.mmap-threshold-bytes:1048576}") int mmapThreshold,
+                            @Value("${storage.local.read-buffers:16}") int readBuffers,
+                            @Value("${storage.local.fsync:false}") boolean fsync) {
+        this.codecs = codecs;
+        this.bufferPool = bufferPool;
+        this.readBuffers = new DirectBufferPool(mmapThreshold, readBuffers);
+        this.fsync = fsync;
+    }
 
     @Override
     public BufferedImage readImage(String inputFilePath, String inputFileName) throws IOException {
+        if (inputFilePath == null || inputFileName == null) {
+            LOGGER.error("Invalid input: inputFilePath={}  or inputFileName: {} is null", inputFilePath, inputFileName);
+            throw new IllegalArgumentException("Invalid input file");
+        }
+        Path imageFile = Paths.get(inputFilePath, inputFileName);
+
+        if (!Files.isRegularFile(imageFile)) {
+            LOGGER.error("Image file not found or invalid: path={}", imageFile.getFileName());
+            throw new IOException("Image file not found: " + imageFile.getFileName());
+        }
+
+        try (FileChannel channel = FileChannel.open(imageFile, StandardOpenOption.READ)) {
+            long size = channel.size();
+            BufferedImage image;
+            if (size < readBuffers.getBufferSize()) {
+                ByteBuffer buffer = readBuffers.acquire();
+                try {
+                    readFully(channel, buffer, size);
+                    image = decode(buffer.flip());
+                } finally {
+                    readBuffers.release(buffer);
+                }
+            } else {
+                image = decode(map(channel, size));
+            }
+            if (image == null) {
+                LOGGER.error("Failed to read image: path={}", imageFile.getFileName());
+                throw new IOException("Invalid image format: " + imageFile.getFileName());
+            }
+            LOGGER.info("Successfully read image: path={}", imageFile.getFileName());
+            return image;
+        } catch (IOException e) {
+            LOGGER.error("Error reading image: path={}, error={}", imageFile.getFileName(), e.getMessage());
+            throw e;
+        }
+    }
+
+    private BufferedImage decode(ByteBuffer bytes) throws IOException {
+        try (ImageInputStream stream = new ByteBufferImageInputStream(bytes)) {
+            return codecs.decode(stream);
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long size) throws IOException {
+        while (buffer.position() < size) {
+            if (channel.read(buffer) < 0) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Maps {@code size} bytes of the file. A mapping stays valid after the channel is closed and is released by
+     * the garbage collector. Outputs are only ever replaced by a rename, never truncated under it, but raw files
+     * ingested with the producer's LINK or REFERENCE modes are the producer's input file: truncating that file
+     * while it is mapped makes the next read of the mapping fault with SIGBUS, which kills the JVM. Input files
+     * must be replaced, never rewritten in place.
+     */
+    private static ByteBuffer map(FileChannel channel, long size) throws IOException {
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Image file too large to map: " + size + " bytes");
+        }
+        return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+    }
+
+    @Override
+    public ImageMetadata probeImage(String inputFilePath, String inputFileName) throws IOException {
         if (inputFilePath == null || inputFileName == null) {
             LOGGER.error("Invalid input: inputFilePath={}  or inputFileName: {} is null", inputFilePath, inputFileName);
             throw new IllegalArgumentException("Invalid input file");
@@ -34,30 +154,125 @@ public class LocalFileStorage implements FileStorage {
             throw new IOException("Image file not found: " + imageFile.getName());
         }
 
-        try {
-            BufferedImage image = ImageIO.read(imageFile);
-            if (image == null) {
-                LOGGER.error("Failed to read image: path={}", imageFile.getName());
-                throw new IOException("Invalid image format: " + imageFile.getName());
+        try (ImageInputStream stream = ImageIO.createImageInputStream(imageFile)) {
+            if (stream == null) {
+                throw new IOException("Cannot open image file: " + imageFile.getName());
             }
-            LOGGER.info("Successfully read image: path={}", imageFile.getName());
-            return image;
+            ImageMetadata metadata = ImageProbe.probe(stream);
+            LOGGER.debug("Probed image: path={}, {}", imageFile.getName(), metadata);
+            return metadata;
         } catch (IOException e) {
-            LOGGER.error("Error reading image: path={}, error={}", imageFile.getName(), e.getMessage());
+            LOGGER.error("Error probing image: path={}, error={}", imageFile.getName(), e.getMessage());
             throw e;
         }
     }
 
     @Override
-    public void writeImage(BufferedImage image, String outputFilePath, String outputFileName, String fileFormat) throws IOException {
+    public ImageInputStream openImageStream(String inputFilePath, String inputFileName) throws IOException {
+        Path imageFile = Paths.get(inputFilePath, inputFileName);
+        if (!Files.isRegularFile(imageFile)) {
+            LOGGER.error("Image file not found or invalid: path={}", imageFile.getFileName());
+            throw new IOException("Image file not found: " + imageFile.getFileName());
+        }
+        // The caller decides how long the stream lives, so it is mapped rather than read into a pooled buffer
+        try (FileChannel channel = FileChannel.open(imageFile, StandardOpenOption.READ)) {
+            return new ByteBufferImageInputStream(map(channel, channel.size()));
+        }
+    }
+
+    @Override
+    public boolean exists(String filePath, String fileName) {
+        File file = new File(Paths.get(filePath, fileName).toString());
+        return file.isFile() && file.length() > 0;
+    }
+
+    @Override
+    public String version(String filePath, String fileName) throws IOException {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(Paths.get(filePath, fileName), BasicFileAttributes.class);
+            return attributes.lastModifiedTime() + "/" + attributes.size();
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public void writeImage(BufferedImage image, String outputFilePath, String outputFileName, String fileFormat,
+                           EncodeOptions options) throws IOException {
         try {
-            File file = new File(Paths.get(outputFilePath, outputFileName).toString());
-            file.getParentFile().mkdirs();
-            ImageIO.write(image, fileFormat, file);
+            writeAtomically(Map.of(Paths.get(outputFilePath, outputFileName), imageWriter(image, fileFormat, options)));
         } catch (IOException e) {
             LOGGER.error("Error writing image: path={}, error={}", outputFilePath, e.getMessage());
             throw e;
         }
     }
 
+    @Override
+    public void writeImages(List<ImageFile> files) throws IOException {
+        Map<Path, ChannelWriter> writers = new LinkedHashMap<>();
+        for (ImageFile file : files) {
+            writers.put(Paths.get(file.filePath(), file.fileName()),
+                    imageWriter(file.image(), file.fileFormat(), file.options()));
+        }
+        try {
+            writeAtomically(writers);
+        } catch (IOException e) {
+            LOGGER.error("Error writing {} images: error={}", files.size(), e.getMessage());
+            throw e;
+        }
+    }
+
+    private ChannelWriter imageWriter(BufferedImage image, String fileFormat, EncodeOptions options) {
+        return channel -> {
+            try (ImageBufferPool.EncodeBuffer encoded = bufferPool.encodeBuffer(image.getWidth() * image.getHeight())) {
+                // Encoded in memory first: the encoder seeks back over what it wrote, the file gets one sequential write
+                codecs.encode(image, fileFormat, options, encoded);
+                encoded.writeTo(channel);
+            }
+        };
+    }
+
+    /**
+     * Writes each target to a temporary file in its folder, then renames them all over their targets, so no file of
+     * a batch is replaced before every one of them is complete. A failure while writing replaces none of them; each
+     * rename is atomic on its own, so a failure part way through the renames leaves the earlier targets replaced and
+     * the later ones untouched, never a partly written file. The temporary names start with a dot and never match an
+     * image file name.
+     */
+    private void writeAtomically(Map<Path, ChannelWriter> writers) throws IOException {
+        Map<Path, Path> temps = new LinkedHashMap<>();
+        try {
+            for (Map.Entry<Path, ChannelWriter> entry : writers.entrySet()) {
+                Path target = entry.getKey();
+                Files.createDirectories(target.getParent());
+                Path temp = target.resolveSibling("." + target.getFileName() + "." + UUID.randomUUID() + ".tmp");
+                temps.put(target, temp);
+                try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.CREATE_NEW)) {
+                    entry.getValue().write(channel);
+                    if (fsync) {
+                        channel.force(false);
+                    }
+                }
+            }
+            for (Map.Entry<Path, Path> entry : temps.entrySet()) {
+                try {
+                    Files.move(entry.getValue(), entry.getKey(), StandardCopyOption.ATOMIC_MOVE,
+                            StandardCopyOption.REPLACE_EXISTING);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(entry.getValue(), entry.getKey(), StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            for (Path temp : temps.values()) {
+                Files.deleteIfExists(temp);
+            }
+            throw e;
+        }
+    }
+
+    @FunctionalInterface
+    private interface ChannelWriter {
+        void write(FileChannel channel) throws IOException;
+    }
+
 }
@@ -0,0 +1,89 @@
+package com.ge.imageprocessorconsumer.reader;
+
+import com.ge.imageprocessorconsumer.codec.EncodeOptions;
+import com.ge.imageprocessorconsumer.metrics.PipelineMetrics;
+
+import javax.imageio.stream.ImageInputStream;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * {@link FileStorage} decorator that times every call on the wrapped storage and records the bytes read and written.
+ * Placed under {@link CachingFileStorage}, it measures the calls that actually reach the disk or S3.
+ */
+public class MeteredFileStorage implements FileStorage {
+
+    private final FileStorage delegate;
+    private final String storageName;
+    private final PipelineMetrics metrics;
+
+    private interface StorageCall<T> {
+        T call() throws IOException;
+    }
+
+    public MeteredFileStorage(FileStorage delegate, String storageName, PipelineMetrics metrics) {
+        this.delegate = delegate;
+        this.storageName = storageName;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public BufferedImage readImage(String inputFilePath, String inputFileName) throws IOException {
+        return timed("read_image", () -> delegate.readImage(inputFilePath, inputFileName));
+    }
+
+    @Override
+    public void writeImage(BufferedImage image, String outputFilePath, String outputFileName, String fileFormat,
+                           EncodeOptions options) throws IOException {
+        timed("write_image", () -> {
+            delegate.writeImage(image, outputFilePath, outputFileName, fileFormat, options);
+            return null;
+        });
+    }
+
+    @Override
+    public ImageMetadata probeImage(String inputFilePath, String inputFileName) throws IOException {
+        return timed("probe", () -> delegate.probeImage(inputFilePath, inputFileName));
+    }
+
+    @Override
+    public ImageInputStream openImageStream(String inputFilePath, String inputFileName) throws IOException {
+        return timed("open", () -> delegate.openImageStream(inputFilePath, inputFileName));
+    }
+
+    @Override
+    public boolean exists(String filePath, String fileName) throws IOException {
+        return timed("stat", () -> delegate.exists(filePath, fileName));
+    }
+
+    @Override
+    public void writeImages(List<ImageFile> files) throws IOException {
+        timed("write_images", () -> {
+            delegate.writeImages(files);
+            return null;
+        });
+    }
+
+    @Override
+    public String version(String filePath, String fileName) throws IOException {
+        return timed("stat", () -> delegate.version(filePath, fileName));
+    }
+
+    @Override
+    public String fileName(String fileName, String fileFormat) {
+        return delegate.fileName(fileName, fileFormat);
+    }
+
+    private <T> T timed(String operation, StorageCall<T> call) throws IOException {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            T result = call.call();
+            success = true;
+            return result;
+        } finally {
+            metrics.recordStorage(storageName, operation, System.nanoTime() - start, success);
+        }
+    }
+}
@@ -1,5 +1,8 @@
 package com.ge.imageprocessorconsumer.reader;
 
+import com.ge.imageprocessorconsumer.codec.EncodeOptions;
+import com.ge.imageprocessorconsumer.codec.ImageCodecs;
+import com.ge.imageprocessorconsumer.imaging.ImageBufferPool;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -7,71 +10,203 @@ import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import software.amazon.awssdk.core.ResponseInputStream;
-import software.amazon.awssdk.core.sync.RequestBody;
-import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.core.async.AsyncRequestBody;
+import software.amazon.awssdk.core.async.AsyncResponseTransformer;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
 import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
 import software.amazon.awssdk.services.s3.model.ObjectCannedACL;
 import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.PutObjectResponse;
 import software.amazon.awssdk.services.s3.model.S3Exception;
 
-import javax.imageio.ImageIO;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.MemoryCacheImageInputStream;
 import java.awt.image.BufferedImage;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
+/**
+ * Reads and writes images in S3 through the async client. Header probes fetch only a leading byte range. Reads
+ * download the body into a pooled {@link ImageBufferPool.EncodeBuffer} before decoding it, and writes encode into
+ * one before streaming it through an {@link S3UploadOutputStream}, so a decode or encode never holds its
+ * {@link com.ge.imageprocessorconsumer.imaging.ComputeGate} permit while waiting on the network.
+ */
 @Component
 @Qualifier("s3-file-storage")
 public class S3FileStorage implements FileStorage {
     private static final Logger LOGGER = LoggerFactory.getLogger(S3FileStorage.class);
 
-    private S3Client s3Client;
+    private final S3AsyncClient s3Client;
+
+    private final DirectBufferPool bufferPool;
+
+    private final ImageBufferPool imageBuffers;
 
     private final String bucketName;
 
+    private final int probeRangeBytes;
+
+    private final ImageCodecs codecs;
+
     @Autowired
-    public S3FileStorage(S3Client s3Client, @Value("${amazon.bucketName}") String bucketName) {
+    public S3FileStorage(S3AsyncClient s3Client, DirectBufferPool bufferPool, ImageBufferPool imageBuffers,
+                         @Value("${amazon.bucketName}") String bucketName,
+                         @Value("${amazon.s3.probe-range-bytes:65536}") int probeRangeBytes,
+                         ImageCodecs codecs) {
         this.s3Client = s3Client;
+        this.bufferPool = bufferPool;
+        this.imageBuffers = imageBuffers;
         this.bucketName = bucketName;
+        this.probeRangeBytes = probeRangeBytes;
+        this.codecs = codecs;
     }
 
 
     @Override
     public BufferedImage readImage(String inputFilePath, String inputFileName) throws IOException {
+        try (ImageInputStream stream = openImageStream(inputFilePath, inputFileName)) {
+            return codecs.decode(stream);
+        } catch (IOException e) {
+            LOGGER.error("IO error while reading image: {}", e.getMessage());
+            throw e;
+        }
+    }
+
+    @Override
+    public ImageMetadata probeImage(String inputFilePath, String inputFileName) throws IOException {
         String key = Paths.get(inputFilePath, inputFileName).toString(); // S3 key
-        GetObjectRequest getObjectRequest = GetObjectRequest.builder()
+        GetObjectRequest rangeRequest = GetObjectRequest.builder()
                 .bucket(bucketName)
                 .key(key)
+                .range("bytes=0-" + (probeRangeBytes - 1))
                 .build();
 
-        try (ResponseInputStream<?> objectData = s3Client.getObject(getObjectRequest)) {
-            return ImageIO.read(objectData);
+        try {
+            try (ResponseInputStream<GetObjectResponse> objectData = getStream(rangeRequest);
+                 ImageInputStream stream = new MemoryCacheImageInputStream(objectData)) {
+                try {
+                    return ImageProbe.probe(stream);
+                } catch (IOException e) {
+                    if (!isTruncated(objectData.response())) {
+                        throw e;
+                    }
+                }
+            }
+            // Header extends past the range (e.g. large EXIF segments): stream from the start and stop after it
+            LOGGER.debug("Header of {} exceeds {} bytes, probing the full object", key, probeRangeBytes);
+            GetObjectRequest fullRequest = rangeRequest.toBuilder().range(null).build();
+            try (ResponseInputStream<GetObjectResponse> objectData = getStream(fullRequest);
+                 ImageInputStream stream = new MemoryCacheImageInputStream(objectData)) {
+                try {
+                    return ImageProbe.probe(stream);
+                } finally {
+                    // Only the header was consumed; drop the connection instead of draining the body
+                    objectData.abort();
+                }
+            }
+        } catch (S3Exception e) {
+            LOGGER.error("Error probing image file from S3: {}", e.awsErrorDetails().errorMessage());
+            throw new IOException("Failed to probe image from S3: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Downloads the whole object into a pooled buffer, released when the stream is closed. The decoder would keep
+     * every byte it read in a memory cache to seek back into anyway; taking them up front keeps the download out
+     * of the decode.
+     */
+    @Override
+    public ImageInputStream openImageStream(String inputFilePath, String inputFileName) throws IOException {
+        String key = Paths.get(inputFilePath, inputFileName).toString(); // S3 key
+        try (ResponseInputStream<GetObjectResponse> objectData
+                     = getStream(GetObjectRequest.builder().bucket(bucketName).key(key).build())) {
+            Long contentLength = objectData.response().contentLength();
+            ImageBufferPool.EncodeBuffer body = imageBuffers.encodeBuffer(
+                    contentLength == null ? 0 : (int) Math.min(contentLength, Integer.MAX_VALUE));
+            try {
+                objectData.transferTo(body);
+            } catch (IOException | RuntimeException e) {
+                body.close();
+                throw e;
+            }
+            return new ByteBufferImageInputStream(body.byteBuffer(), body::close);
         } catch (S3Exception e) {
             LOGGER.error("Error reading image file from S3: {}", e.awsErrorDetails().errorMessage());
             throw new IOException("Failed to read image from S3: " + e.getMessage(), e);
-        } catch (IOException e) {
-            LOGGER.error("IO error while reading image: {}", e.getMessage());
-            System.err.println("IO error while reading image: " + e.getMessage());
-            throw e;
         }
     }
 
+    private ResponseInputStream<GetObjectResponse> getStream(GetObjectRequest request) throws IOException {
+        return S3Futures.join(s3Client.getObject(request, AsyncResponseTransformer.toBlockingInputStream()));
+    }
+
+    private static boolean isTruncated(GetObjectResponse response) {
+        // Content-Range: bytes 0-65535/1048576
+        String contentRange = response.contentRange();
+        if (contentRange == null) {
+            return false;
+        }
+        int slash = contentRange.lastIndexOf('/');
+        int dash = contentRange.indexOf('-');
+        if (slash < 0 || dash < 0 || contentRange.endsWith("*")) {
+            return false;
+        }
+        long end = Long.parseLong(contentRange.substring(dash + 1, slash).trim());
+        long total = Long.parseLong(contentRange.substring(slash + 1).trim());
+        return end + 1 < total;
+    }
+
     @Override
-    public void writeImage(BufferedImage image, String outputFilePath, String outputFileName, String fileFormat) throws IOException {
+    public boolean exists(String filePath, String fileName) throws IOException {
+        HeadObjectResponse head = head(Paths.get(filePath, fileName).toString());
+        return head != null && head.contentLength() != null && head.contentLength() > 0;
+    }
+
+    private HeadObjectResponse head(String key) throws IOException {
         try {
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            ImageIO.write(image, fileFormat, baos);
-            byte[] imageBytes = baos.toByteArray();
-            String outputFileKey = Paths.get(outputFilePath, outputFileName).toString();
-            PutObjectRequest putObjectRequest = PutObjectRequest.builder()
+            return S3Futures.join(s3Client.headObject(HeadObjectRequest.builder()
                     .bucket(bucketName)
-                    .key(outputFileKey)
-                    .acl(ObjectCannedACL.PUBLIC_READ)
-                    .contentType(getImageMimeType(fileFormat))
-                    .build();
-            s3Client.putObject(putObjectRequest, RequestBody.fromBytes(imageBytes));
-            LOGGER.info("Image written to S3 successfully: {}", outputFileKey);
+                    .key(key)
+                    .build()));
+        } catch (NoSuchKeyException e) {
+            return null;
+        } catch (S3Exception e) {
+            if (e.statusCode() == 404) {
+                return null;
+            }
+            LOGGER.error("Error checking image file in S3: {}", e.awsErrorDetails().errorMessage());
+            throw new IOException("Failed to check image in S3: " + e.getMessage(), e);
+        }
+    }
 
+    @Override
+    public String version(String filePath, String fileName) throws IOException {
+        HeadObjectResponse head = head(Paths.get(filePath, fileName).toString());
+        return head == null ? null : head.eTag();
+    }
+
+    @Override
+    public void writeImage(BufferedImage image, String outputFilePath, String outputFileName, String fileFormat,
+                           EncodeOptions options) throws IOException {
+        String outputFileKey = Paths.get(outputFilePath, outputFileName).toString();
+        try (ImageBufferPool.EncodeBuffer encoded = imageBuffers.encodeBuffer(image.getWidth() * image.getHeight())) {
+            codecs.encode(image, fileFormat, options, encoded);
+            try (S3UploadOutputStream upload = new S3UploadOutputStream(s3Client, bufferPool, bucketName,
+                    outputFileKey, getImageMimeType(fileFormat))) {
+                try {
+                    encoded.writeTo(upload);
+                } catch (IOException | RuntimeException e) {
+                    upload.abort();
+                    throw e;
+                }
+            }
         } catch (S3Exception e) {
             LOGGER.error("S3 error writing image: path={}, error={}", outputFilePath, e.awsErrorDetails().errorMessage(), e);
             throw new IOException("Failed to write image to S3: " + e.getMessage(), e);
@@ -82,6 +217,42 @@ public class S3FileStorage implements FileStorage {
             LOGGER.error("Unexpected error writing image: path={}, error={}", outputFilePath, e.getMessage(), e);
             throw new IOException("An unexpected error occurred: " + e.getMessage(), e);
         }
+        LOGGER.info("Image written to S3 successfully: {}", outputFileKey);
+    }
+
+    /**
+     * Encodes the images one after another and starts each {@code PutObject} as soon as its image is encoded, so the
+     * uploads overlap each other and the remaining encodes; returns once all of them have finished. A failed upload
+     * fails the batch and leaves the others written.
+     */
+    @Override
+    public void writeImages(List<ImageFile> files) throws IOException {
+        List<ImageBufferPool.EncodeBuffer> buffers = new ArrayList<>(files.size());
+        List<CompletableFuture<PutObjectResponse>> puts = new ArrayList<>(files.size());
+        try {
+            for (ImageFile file : files) {
+                BufferedImage image = file.image();
+                ImageBufferPool.EncodeBuffer encoded = imageBuffers.encodeBuffer(image.getWidth() * image.getHeight());
+                buffers.add(encoded);
+                codecs.encode(image, file.fileFormat(), file.options(), encoded);
+                puts.add(s3Client.putObject(PutObjectRequest.builder()
+                        .bucket(bucketName)
+                        .key(Paths.get(file.filePath(), file.fileName()).toString())
+                        .acl(ObjectCannedACL.PUBLIC_READ)
+                        .contentType(getImageMimeType(file.fileFormat()))
+                        .contentLength((long) encoded.size())
+                        .build(), AsyncRequestBody.fromRemainingByteBufferUnsafe(encoded.byteBuffer())));
+            }
+            S3Futures.join(CompletableFuture.allOf(puts.toArray(CompletableFuture[]::new)));
+        } catch (S3Exception e) {
+            LOGGER.error("S3 error writing {} images: error={}", files.size(), e.awsErrorDetails().errorMessage(), e);
+            throw new IOException("Failed to write images to S3: " + e.getMessage(), e);
+        } finally {
+            // The uploads send straight from the pooled arrays, which only go back once no upload is left running
+            CompletableFuture.allOf(puts.toArray(CompletableFuture[]::new)).exceptionally(e -> null).join();
+            buffers.forEach(ImageBufferPool.EncodeBuffer::close);
+        }
+        LOGGER.info("{} images written to S3 successfully", files.size());
     }
 
     private static String getImageMimeType(String fileFormat) {
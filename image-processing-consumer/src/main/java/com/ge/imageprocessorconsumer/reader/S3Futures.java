@@ -0,0 +1,33 @@
+package com.ge.imageprocessorconsumer.reader;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Waits on async S3 calls from the blocking {@link FileStorage} methods.
+ */
+final class S3Futures {
+
+    private S3Futures() {
+    }
+
+    /**
+     * Joins the future and rethrows its failure unwrapped, so callers can keep catching
+     * {@code S3Exception} and {@link IOException} as with the synchronous client.
+     */
+    static <T> T join(CompletableFuture<T> future) throws IOException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            if (cause instanceof IOException io) {
+                throw io;
+            }
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IOException(cause);
+        }
+    }
+}
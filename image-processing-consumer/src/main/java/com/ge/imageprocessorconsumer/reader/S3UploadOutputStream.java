@@ -0,0 +1,190 @@
+package com.ge.imageprocessorconsumer.reader;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.core.async.AsyncRequestBody;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompletedMultipartUpload;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.ObjectCannedACL;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Streams bytes to an S3 object through pooled direct buffers.
+ * <p>
+ * Each full buffer is sent as one part of a multipart upload while the caller keeps writing into the next buffer;
+ * a buffer returns to the pool as soon as its part is uploaded. An object that fits in a single buffer is sent with
+ * one {@code PutObject} on close instead. Parts other than the last must be at least 5 MiB on AWS.
+ * <p>
+ * {@link #close()} completes the upload and reports any part failure; {@link #abort()} discards it.
+ */
+class S3UploadOutputStream extends OutputStream {
+    private static final Logger LOGGER = LoggerFactory.getLogger(S3UploadOutputStream.class);
+
+    private final S3AsyncClient s3Client;
+    private final DirectBufferPool bufferPool;
+    private final String bucketName;
+    private final String key;
+    private final String contentType;
+
+    private final List<CompletableFuture<CompletedPart>> parts = new ArrayList<>();
+    private ByteBuffer current;
+    private String uploadId;
+    private boolean closed;
+
+    S3UploadOutputStream(S3AsyncClient s3Client, DirectBufferPool bufferPool, String bucketName, String key,
+                         String contentType) {
+        this.s3Client = s3Client;
+        this.bufferPool = bufferPool;
+        this.bucketName = bucketName;
+        this.key = key;
+        this.contentType = contentType;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensureBuffer().put((byte) b);
+        if (!current.hasRemaining()) {
+            uploadPart();
+        }
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        while (length > 0) {
+            ByteBuffer buffer = ensureBuffer();
+            int count = Math.min(length, buffer.remaining());
+            buffer.put(bytes, offset, count);
+            offset += count;
+            length -= count;
+            if (!buffer.hasRemaining()) {
+                uploadPart();
+            }
+        }
+    }
+
+    private ByteBuffer ensureBuffer() throws IOException {
+        if (closed) {
+            throw new IOException("Upload stream is closed: " + key);
+        }
+        if (current == null) {
+            current = bufferPool.acquire();
+        }
+        return current;
+    }
+
+    private void uploadPart() throws IOException {
+        if (uploadId == null) {
+            uploadId = S3Futures.join(s3Client.createMultipartUpload(CreateMultipartUploadRequest.builder()
+                    .bucket(bucketName)
+                    .key(key)
+                    .acl(ObjectCannedACL.PUBLIC_READ)
+                    .contentType(contentType)
+                    .build())).uploadId();
+        }
+        ByteBuffer buffer = current;
+        current = null;
+        buffer.flip();
+        int partNumber = parts.size() + 1;
+        UploadPartRequest request = UploadPartRequest.builder()
+                .bucket(bucketName)
+                .key(key)
+                .uploadId(uploadId)
+                .partNumber(partNumber)
+                .contentLength((long) buffer.remaining())
+                .build();
+        // The buffer is handed over without a copy, it goes back to the pool once the part is acknowledged
+        parts.add(s3Client.uploadPart(request, AsyncRequestBody.fromRemainingByteBufferUnsafe(buffer))
+                .whenComplete((response, error) -> bufferPool.release(buffer))
+                .thenApply(response -> CompletedPart.builder().partNumber(partNumber).eTag(response.eTag()).build()));
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        try {
+            if (uploadId == null) {
+                putSingleObject();
+            } else {
+                completeMultipart();
+            }
+            closed = true;
+        } catch (IOException | RuntimeException e) {
+            abort();
+            throw e;
+        } finally {
+            releaseCurrent();
+        }
+    }
+
+    private void putSingleObject() throws IOException {
+        ByteBuffer buffer = current != null ? current.flip() : ByteBuffer.allocate(0);
+        S3Futures.join(s3Client.putObject(PutObjectRequest.builder()
+                .bucket(bucketName)
+                .key(key)
+                .acl(ObjectCannedACL.PUBLIC_READ)
+                .contentType(contentType)
+                .contentLength((long) buffer.remaining())
+                .build(), AsyncRequestBody.fromRemainingByteBufferUnsafe(buffer)));
+    }
+
+    private void completeMultipart() throws IOException {
+        if (current != null && current.position() > 0) {
+            uploadPart();
+        }
+        List<CompletedPart> completed = new ArrayList<>(parts.size());
+        for (CompletableFuture<CompletedPart> part : parts) {
+            completed.add(S3Futures.join(part));
+        }
+        S3Futures.join(s3Client.completeMultipartUpload(CompleteMultipartUploadRequest.builder()
+                .bucket(bucketName)
+                .key(key)
+                .uploadId(uploadId)
+                .multipartUpload(CompletedMultipartUpload.builder().parts(completed).build())
+                .build()));
+        LOGGER.debug("Completed multipart upload of {} in {} parts", key, completed.size());
+    }
+
+    /**
+     * Drops everything written so far. Parts already uploaded are deleted by aborting the multipart upload.
+     */
+    void abort() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        releaseCurrent();
+        if (uploadId != null) {
+            s3Client.abortMultipartUpload(AbortMultipartUploadRequest.builder()
+                    .bucket(bucketName)
+                    .key(key)
+                    .uploadId(uploadId)
+                    .build())
+                    .whenComplete((response, error) -> {
+                        if (error != null) {
+                            LOGGER.warn("Failed to abort multipart upload {} of {}", uploadId, key, error);
+                        }
+                    });
+        }
+    }
+
+    private void releaseCurrent() {
+        if (current != null) {
+            bufferPool.release(current);
+            current = null;
+        }
+    }
+}
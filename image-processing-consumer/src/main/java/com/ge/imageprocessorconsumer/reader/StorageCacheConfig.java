@@ -0,0 +1,41 @@
+package com.ge.imageprocessorconsumer.reader;
+
+import com.ge.imageprocessorconsumer.codec.ImageCodecs;
+import com.ge.imageprocessorconsumer.metrics.PipelineMetrics;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Caching views of the storages, injected with {@code cached-local-file-storage} and {@code cached-s3-file-storage}.
+ * Each view has its own cache of at most {@code storage.cache.image-max-bytes} of decoded pixels; the S3 view also
+ * keeps up to {@code storage.cache.encoded-max-bytes} of downloaded file bytes. Local files are left to the page
+ * cache and read by {@link LocalFileStorage} into pooled buffers or mappings rather than copied onto the heap.
+ * Calls that miss the caches are timed by a {@link MeteredFileStorage} underneath.
+ */
+@Configuration
+public class StorageCacheConfig {
+
+    @Value("${storage.cache.image-max-bytes:268435456}")
+    private long maxImageBytes;
+
+    @Value("${storage.cache.encoded-max-bytes:67108864}")
+    private long maxEncodedBytes;
+
+    @Bean
+    @Qualifier("cached-local-file-storage")
+    public CachingFileStorage cachedLocalFileStorage(@Qualifier("local-file-storage") FileStorage localFileStorage,
+                                                     PipelineMetrics metrics, ImageCodecs codecs) {
+        return new CachingFileStorage(new MeteredFileStorage(localFileStorage, "local", metrics), "local",
+                maxImageBytes, 0, metrics, codecs);
+    }
+
+    @Bean
+    @Qualifier("cached-s3-file-storage")
+    public CachingFileStorage cachedS3FileStorage(@Qualifier("s3-file-storage") FileStorage s3FileStorage,
+                                                  PipelineMetrics metrics, ImageCodecs codecs) {
+        return new CachingFileStorage(new MeteredFileStorage(s3FileStorage, "s3", metrics), "s3",
+                maxImageBytes, maxEncodedBytes, metrics, codecs);
+    }
+}
@@ -0,0 +1,113 @@
+package com.ge.imageprocessorconsumer.codec;
+
+import com.ge.imageprocessorconsumer.exception.ImageProcessingException;
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.MemoryCacheImageInputStream;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ImageCodecsTests {
+
+	private final ImageCodecs codecs = ImageCodecs.defaults();
+
+	@Test
+	void pngEncoderIsLosslessWithEveryFilter() throws IOException {
+		int[] types = {BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_INT_ARGB, BufferedImage.TYPE_3BYTE_BGR,
+				BufferedImage.TYPE_4BYTE_ABGR, BufferedImage.TYPE_BYTE_GRAY};
+		for (int type : types) {
+			BufferedImage image = gradient(67, 41, type);
+			for (PngFilter filter : PngFilter.values()) {
+				byte[] png = encode(image, "png", new EncodeOptions(null, null, 6, filter, null));
+				// Read back with the JDK reader to check the stream, not just our own decoder
+				BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(png));
+
+				assertEquals(image.getColorModel().getNumComponents(), decoded.getColorModel().getNumComponents());
+				for (int y = 0; y < image.getHeight(); y++) {
+					for (int x = 0; x < image.getWidth(); x++) {
+						assertEquals(image.getRGB(x, y), decoded.getRGB(x, y), type + " " + filter + " at " + x + "," + y);
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	void pngLevelTradesSizeForSpeed() throws IOException {
+		BufferedImage image = gradient(300, 200, BufferedImage.TYPE_INT_RGB);
+
+		int stored = encode(image, "png", new EncodeOptions(null, null, 0, PngFilter.NONE, null)).length;
+		int deflated = encode(image, "png", new EncodeOptions(null, null, 9, PngFilter.PAETH, null)).length;
+
+		assertTrue(stored > 300 * 200 * 3, "level 0 stores the rows: " + stored);
+		assertTrue(deflated < stored / 4, deflated + " vs " + stored);
+	}
+
+	@Test
+	void jpegQualityAndHuffmanTablesChangeTheSize() throws IOException {
+		BufferedImage image = gradient(320, 240, BufferedImage.TYPE_INT_RGB);
+
+		int low = encode(image, "jpg", new EncodeOptions(30, false, null, null, null)).length;
+		int high = encode(image, "jpg", new EncodeOptions(95, false, null, null, null)).length;
+		int optimized = encode(image, "jpg", new EncodeOptions(95, true, null, null, null)).length;
+
+		assertTrue(low < high, low + " vs " + high);
+		assertTrue(optimized < high, optimized + " vs " + high);
+	}
+
+	@Test
+	void messageMetadataOverridesTheDefaults() {
+		EncodeOptions options = EncodeOptions.fromMetadata(Map.of(EncodeOptions.JPEG_QUALITY_KEY, "90",
+				EncodeOptions.PNG_FILTER_KEY, "paeth")).orElse(codecs.getDefaults());
+
+		assertEquals(90, options.getJpegQuality());
+		assertEquals(PngFilter.PAETH, options.getPngFilter());
+		assertEquals(codecs.getDefaults().getPngCompressionLevel(), options.getPngCompressionLevel());
+		assertNotEquals(codecs.parameterKey(Map.of()), codecs.parameterKey(Map.of(EncodeOptions.JPEG_QUALITY_KEY, 90)));
+		assertThrows(ImageProcessingException.class,
+				() -> EncodeOptions.fromMetadata(Map.of(EncodeOptions.PNG_COMPRESSION_LEVEL_KEY, 12)));
+	}
+
+	@Test
+	void decodesByTheLeadingBytes() throws IOException {
+		BufferedImage image = gradient(40, 30, BufferedImage.TYPE_INT_RGB);
+		byte[] bmp = encode(image, "bmp", EncodeOptions.none());
+
+		try (ImageInputStream stream = new MemoryCacheImageInputStream(new ByteArrayInputStream(bmp))) {
+			BufferedImage decoded = codecs.decode(stream);
+			assertEquals(image.getRGB(17, 11), decoded.getRGB(17, 11));
+		}
+		try (ImageInputStream stream = new MemoryCacheImageInputStream(new ByteArrayInputStream(new byte[64]))) {
+			assertNull(codecs.decode(stream));
+		}
+	}
+
+	private byte[] encode(BufferedImage image, String format, EncodeOptions options) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		codecs.encode(image, format, options, out);
+		return out.toByteArray();
+	}
+
+	private static BufferedImage gradient(int width, int height, int type) {
+		BufferedImage image = new BufferedImage(width, height, type);
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				int alpha = 255 - (x * 3 + y) % 256;
+				int argb = alpha << 24 | (x * 255 / width) << 16 | (y * 255 / height) << 8 | ((x * y) & 0x3F);
+				image.setRGB(x, y, argb);
+			}
+		}
+		return image;
+	}
+}
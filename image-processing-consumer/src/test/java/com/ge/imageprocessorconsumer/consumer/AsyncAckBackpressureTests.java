@@ -0,0 +1,144 @@
+package com.ge.imageprocessorconsumer.consumer;
+
+import com.ge.imageprocessorconsumer.exception.ErrorCode;
+import com.ge.imageprocessorconsumer.exception.ImageProcessingException;
+import com.ge.imageprocessorconsumer.processor.ImageProcessingPipeline;
+import com.ge.model.ImageProcessingMessage;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.annotation.Bean;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.event.ConsumerPausedEvent;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+
+import java.time.Duration;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Runs the record listener with the shipped ack settings (manual acks, async acks) against an embedded broker.
+ */
+@SpringBootTest(properties = {
+		"spring.kafka.consumer.bootstrap-servers=${spring.embedded.kafka.brokers}",
+		"spring.kafka.producer.bootstrap-servers=${spring.embedded.kafka.brokers}"
+})
+@EmbeddedKafka(partitions = 1, topics = {"input-topic", "retry-input-topic-1s", "retry-input-topic-10s",
+		"retry-input-topic-60s", "dlq-input-topic"})
+class AsyncAckBackpressureTests {
+
+	private static final TopicPartition INPUT = new TopicPartition("input-topic", 0);
+
+	private static final BlockingQueue<ConsumerPausedEvent> PAUSES = new LinkedBlockingQueue<>();
+
+	@TestConfiguration
+	static class PauseRecorder {
+
+		@Bean
+		ApplicationListener<ConsumerPausedEvent> pauseRecorder() {
+			return event -> {
+				if (event.getPartitions().contains(INPUT)) {
+					PAUSES.add(event);
+				}
+			};
+		}
+	}
+
+	@Autowired
+	private KafkaTemplate<String, ImageProcessingMessage> kafkaTemplate;
+
+	@Autowired
+	private EmbeddedKafkaBroker broker;
+
+	@MockitoSpyBean
+	private ImageProcessingPipeline pipeline;
+
+	@MockitoSpyBean
+	private ImageProcessingWorkerPool workerPool;
+
+	@MockitoSpyBean
+	private ImageProcessingFailureHandler failureHandler;
+
+	@Test
+	void pausesThePartitionWhileARecordOfTheLastPollIsUnacknowledged() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		doAnswer(invocation -> {
+			ImageProcessingMessage message = invocation.getArgument(0);
+			if (message.getImageId().equals("slow")) {
+				release.await();
+			}
+			return message;
+		}).when(pipeline).execute(any());
+
+		kafkaTemplate.send("input-topic", "slow", message("slow")).get();
+		assertTrue(PAUSES.poll(30, TimeUnit.SECONDS) != null, "partition not paused for the unacknowledged record");
+
+		long next = kafkaTemplate.send("input-topic", "next", message("next")).get().getRecordMetadata().offset();
+		Thread.sleep(1000);
+		verify(workerPool, never()).submit(eq("next"), any());
+
+		release.countDown();
+		verify(workerPool, timeout(10000)).submit(eq("next"), any());
+		long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+		while (committed() <= next && System.nanoTime() < deadline) {
+			Thread.sleep(50);
+		}
+		assertEquals(next + 1, committed());
+	}
+
+	@Test
+	void consumesTheNextRecordAfterARouteFailsToSend() throws Exception {
+		doAnswer(invocation -> {
+			ImageProcessingMessage message = invocation.getArgument(0);
+			if (message.getImageId().equals("unroutable")) {
+				throw new ImageProcessingException(ErrorCode.INVALID_FILE, "unreadable");
+			}
+			return message;
+		}).when(pipeline).execute(any());
+		doReturn(false).doCallRealMethod().when(failureHandler).handleFailure(any(), any());
+
+		kafkaTemplate.send("input-topic", "unroutable", message("unroutable")).get();
+		long next = kafkaTemplate.send("input-topic", "after", message("after")).get().getRecordMetadata().offset();
+
+		verify(pipeline, timeout(10000)).execute(argThat(message -> message.getImageId().equals("after")));
+		verify(failureHandler, timeout(10000).times(2)).handleFailure(any(), any());
+		long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+		while (committed() <= next && System.nanoTime() < deadline) {
+			Thread.sleep(50);
+		}
+		assertEquals(next + 1, committed());
+	}
+
+	private long committed() throws Exception {
+		OffsetAndMetadata offset = KafkaTestUtils.getCurrentOffset(broker.getBrokersAsString(),
+				"message-processor-group", "input-topic", 0);
+		return offset == null ? 0 : offset.offset();
+	}
+
+	private static ImageProcessingMessage message(String imageId) {
+		ImageProcessingMessage message = new ImageProcessingMessage();
+		message.setImageId(imageId);
+		message.setImageFormat("png");
+		return message;
+	}
+}
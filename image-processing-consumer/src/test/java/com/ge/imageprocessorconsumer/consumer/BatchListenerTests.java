@@ -0,0 +1,106 @@
+package com.ge.imageprocessorconsumer.consumer;
+
+import com.ge.model.ImageProcessingMessage;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@SpringBootTest(properties = {
+		"spring.kafka.consumer.bootstrap-servers=${spring.embedded.kafka.brokers}",
+		"spring.kafka.producer.bootstrap-servers=${spring.embedded.kafka.brokers}",
+		"kafka.listener.batch.enabled=true",
+		// The broker holds the first fetch until all three records are in
+		"kafka.listener.batch.max-latency-ms=2000",
+		"kafka.listener.batch.min-bytes=1048576",
+		"retry.max-attempts=0",
+		"retry.tiers-ms=1000"
+})
+@EmbeddedKafka(partitions = 1, topics = {"input-topic", "retry-input-topic-1s", "dlq-input-topic"})
+class BatchListenerTests {
+
+	@TempDir
+	static Path base;
+
+	@Autowired
+	private KafkaTemplate<String, ImageProcessingMessage> kafkaTemplate;
+
+	@Autowired
+	private EmbeddedKafkaBroker broker;
+
+	@MockitoSpyBean
+	private ImageProcessingFailureHandler failureHandler;
+
+	@Test
+	void commitsABatchOnceAndRoutesItsFailure() throws Exception {
+		Files.createDirectories(base.resolve("raw"));
+		for (String imageId : new String[]{"first", "second"}) {
+			ImageIO.write(new BufferedImage(40, 30, BufferedImage.TYPE_INT_RGB), "png",
+					base.resolve("raw").resolve(imageId + ".png").toFile());
+		}
+
+		Map<String, Object> props = KafkaTestUtils.consumerProps("dlq-reader", "true", broker);
+		props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+		JsonDeserializer<ImageProcessingMessage> valueDeserializer = new JsonDeserializer<>(ImageProcessingMessage.class);
+		valueDeserializer.addTrustedPackages("com.ge.model");
+		try (Consumer<String, ImageProcessingMessage> dlq = new DefaultKafkaConsumerFactory<>(props,
+				new StringDeserializer(), valueDeserializer).createConsumer()) {
+			broker.consumeFromAnEmbeddedTopic(dlq, "dlq-input-topic");
+
+			kafkaTemplate.send("input-topic", "first", message("first", base.toString()));
+			kafkaTemplate.send("input-topic", "missing", message("missing", "does/not/exist"));
+			kafkaTemplate.send("input-topic", "second", message("second", base.toString())).get();
+
+			ConsumerRecord<String, ImageProcessingMessage> record
+					= KafkaTestUtils.getSingleRecord(dlq, "dlq-input-topic", Duration.ofSeconds(30));
+			assertEquals("missing", record.value().getImageId());
+		}
+
+		// One flush for the whole batch, and the offset past all three records committed
+		verify(failureHandler, times(1)).handleFailures(argThat(failures -> failures.size() == 1));
+		long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+		while (committed() < 3 && System.nanoTime() < deadline) {
+			Thread.sleep(50);
+		}
+		assertEquals(3, committed());
+		assertTrue(Files.exists(base.resolve("grayscaled/first.png")));
+		assertTrue(Files.exists(base.resolve("grayscaled/second.png")));
+	}
+
+	private long committed() throws Exception {
+		return KafkaTestUtils.getCurrentOffset(broker.getBrokersAsString(), "message-processor-group", "input-topic", 0)
+				.offset();
+	}
+
+	private static ImageProcessingMessage message(String imageId, String s3Path) {
+		ImageProcessingMessage message = new ImageProcessingMessage();
+		message.setImageId(imageId);
+		message.setImageFormat("png");
+		message.setS3Path(s3Path);
+		return message;
+	}
+}
@@ -0,0 +1,81 @@
+package com.ge.imageprocessorconsumer.consumer;
+
+import com.ge.model.ImageProcessingMessage;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {
+		"spring.kafka.consumer.bootstrap-servers=${spring.embedded.kafka.brokers}",
+		"spring.kafka.producer.bootstrap-servers=${spring.embedded.kafka.brokers}",
+		"retry.max-attempts=2",
+		"retry.backoff.initial-ms=300",
+		"retry.backoff.multiplier=3",
+		"retry.backoff.jitter=0",
+		"retry.tiers-ms=300,900"
+})
+@EmbeddedKafka(partitions = 1, topics = {"input-topic", "retry-input-topic-300ms", "retry-input-topic-900ms", "dlq-input-topic"})
+class DelayedRetryTests {
+
+	@Autowired
+	private KafkaTemplate<String, ImageProcessingMessage> kafkaTemplate;
+
+	@Autowired
+	private EmbeddedKafkaBroker broker;
+
+	@Test
+	void retriesThroughTiersBeforeDeadLettering() throws Exception {
+		ImageProcessingMessage message = new ImageProcessingMessage();
+		message.setImageId("missing");
+		message.setImageFormat("png");
+		message.setS3Path("does/not/exist");
+
+		Map<String, Object> props = KafkaTestUtils.consumerProps("dlq-reader", "true", broker);
+		props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+		JsonDeserializer<ImageProcessingMessage> valueDeserializer = new JsonDeserializer<>(ImageProcessingMessage.class);
+		valueDeserializer.addTrustedPackages("com.ge.model");
+		try (Consumer<String, ImageProcessingMessage> dlq = new DefaultKafkaConsumerFactory<>(props,
+				new StringDeserializer(), valueDeserializer).createConsumer()) {
+			broker.consumeFromAnEmbeddedTopic(dlq, "dlq-input-topic");
+
+			long sent = System.currentTimeMillis();
+			kafkaTemplate.send("input-topic", message.getImageId(), message).get();
+
+			ConsumerRecord<String, ImageProcessingMessage> record
+					= KafkaTestUtils.getSingleRecord(dlq, "dlq-input-topic", Duration.ofSeconds(60));
+			assertEquals("missing", record.value().getImageId());
+			assertEquals(2, record.value().getRetryCount());
+			assertTrue(System.currentTimeMillis() - sent >= 300 + 900, "dead-lettered before both backoffs elapsed");
+			assertEquals(null, record.headers().lastHeader(RetryBackoff.NOT_BEFORE_HEADER));
+		}
+
+		Map<String, Object> retryProps = KafkaTestUtils.consumerProps("retry-reader", "true", broker);
+		retryProps.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+		try (Consumer<String, String> retries = new DefaultKafkaConsumerFactory<>(retryProps,
+				new StringDeserializer(), new StringDeserializer()).createConsumer()) {
+			broker.consumeFromEmbeddedTopics(retries, "retry-input-topic-900ms");
+			ConsumerRecord<String, String> second
+					= KafkaTestUtils.getSingleRecord(retries, "retry-input-topic-900ms", Duration.ofSeconds(10));
+			String notBefore = new String(second.headers().lastHeader(RetryBackoff.NOT_BEFORE_HEADER).value(),
+					StandardCharsets.UTF_8);
+			assertEquals(900, Long.parseLong(notBefore) - second.timestamp(), 50);
+		}
+	}
+}
@@ -0,0 +1,55 @@
+package com.ge.imageprocessorconsumer.consumer;
+
+import com.ge.imageprocessorconsumer.processor.ImageProcessingPipeline;
+import com.ge.model.ImageProcessingMessage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.support.Acknowledgment;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ImageProcessingConsumerTests {
+
+	private final ImageProcessingWorkerPool pool = new ImageProcessingWorkerPool(2, 2, false);
+
+	@AfterEach
+	void shutdown() {
+		pool.shutdown();
+	}
+
+	@Test
+	void routesAgainUntilTheFailureIsSentBeforeAcknowledging() throws Exception {
+		ImageProcessingPipeline pipeline = mock(ImageProcessingPipeline.class);
+		when(pipeline.execute(any())).thenThrow(new IOException("unreadable"));
+		ImageProcessingFailureHandler failureHandler = mock(ImageProcessingFailureHandler.class);
+		when(failureHandler.handleFailure(any(), any())).thenReturn(false, false, true);
+		CountDownLatch acknowledged = new CountDownLatch(1);
+		Acknowledgment acknowledgment = mock(Acknowledgment.class);
+		doAnswer(invocation -> {
+			acknowledged.countDown();
+			return null;
+		}).when(acknowledgment).acknowledge();
+		ImageProcessingConsumer consumer = new ImageProcessingConsumer(pipeline, failureHandler, pool);
+
+		consumer.processMessage(message("a"), acknowledgment);
+
+		assertTrue(acknowledged.await(5, TimeUnit.SECONDS));
+		verify(failureHandler, times(3)).handleFailure(any(), any());
+	}
+
+	private static ImageProcessingMessage message(String imageId) {
+		ImageProcessingMessage message = new ImageProcessingMessage();
+		message.setImageId(imageId);
+		return message;
+	}
+}
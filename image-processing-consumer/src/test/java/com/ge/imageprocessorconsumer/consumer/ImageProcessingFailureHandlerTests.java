@@ -0,0 +1,66 @@
+package com.ge.imageprocessorconsumer.consumer;
+
+import com.ge.imageprocessorconsumer.metrics.PipelineMetrics;
+import com.ge.model.ImageProcessingMessage;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.KafkaException;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ImageProcessingFailureHandlerTests {
+
+	@SuppressWarnings("unchecked")
+	private final KafkaTemplate<String, ImageProcessingMessage> kafkaTemplate = mock(KafkaTemplate.class);
+
+	private final PipelineMetrics metrics = PipelineMetrics.unpublished();
+
+	private final ImageProcessingFailureHandler handler = new ImageProcessingFailureHandler(kafkaTemplate,
+			new RetryBackoff(3, 1000, 10, 60000, 0, List.of(1000L), "retry"), metrics);
+
+	@Test
+	void reportsFailedSendsWithoutCountingThem() {
+		when(kafkaTemplate.send(any(ProducerRecord.class))).thenReturn(CompletableFuture.failedFuture(
+				new KafkaException("broker unavailable")));
+
+		ImageProcessingMessage message = message("a");
+		assertFalse(handler.handleFailure(message, new IOException("boom")));
+		assertEquals(0, message.getRetryCount());
+		assertEquals(0, metrics.getRegistry().find(PipelineMetrics.RETRY_COUNTER).counters().size());
+	}
+
+	@Test
+	void returnsTheBatchFailuresThatCouldNotBeSent() {
+		ImageProcessingMessage sent = message("sent");
+		ImageProcessingMessage lost = message("lost");
+		when(kafkaTemplate.send(any(ProducerRecord.class))).thenAnswer(invocation -> {
+			ProducerRecord<String, ImageProcessingMessage> record = invocation.getArgument(0);
+			return record.value() == lost ? CompletableFuture.failedFuture(new KafkaException("record too large"))
+					: CompletableFuture.completedFuture(mock(SendResult.class));
+		});
+		Map<ImageProcessingMessage, Exception> failures = new LinkedHashMap<>();
+		failures.put(sent, new IOException("first"));
+		failures.put(lost, new IOException("second"));
+
+		assertEquals(List.of(lost), handler.handleFailures(failures));
+		assertEquals(1, metrics.getRegistry().get(PipelineMetrics.RETRY_COUNTER).counter().count());
+	}
+
+	private static ImageProcessingMessage message(String imageId) {
+		ImageProcessingMessage message = new ImageProcessingMessage();
+		message.setImageId(imageId);
+		return message;
+	}
+}
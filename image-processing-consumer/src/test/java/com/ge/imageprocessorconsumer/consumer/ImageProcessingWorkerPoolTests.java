@@ -0,0 +1,89 @@
+package com.ge.imageprocessorconsumer.consumer;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class ImageProcessingWorkerPoolTests {
+
+	private final ImageProcessingWorkerPool pool = new ImageProcessingWorkerPool(4, 8, false);
+
+	@AfterEach
+	void shutdown() {
+		pool.shutdown();
+	}
+
+	@Test
+	void keepsSubmissionOrderPerKey() throws InterruptedException {
+		assertKeepsOrder(pool);
+	}
+
+	@Test
+	void keepsSubmissionOrderPerKeyOnVirtualThreads() throws InterruptedException {
+		assumeTrue(VirtualThreads.isSupported(), "virtual threads need Java 21");
+		ImageProcessingWorkerPool virtualPool = new ImageProcessingWorkerPool(4, 1000, true);
+		try {
+			assertKeepsOrder(virtualPool);
+		} finally {
+			virtualPool.shutdown();
+		}
+	}
+
+	@Test
+	void rejectsVirtualThreadsBeforeJava21() {
+		assumeFalse(VirtualThreads.isSupported());
+		assertThrows(IllegalStateException.class, () -> new ImageProcessingWorkerPool(4, 8, true));
+	}
+
+	private static void assertKeepsOrder(ImageProcessingWorkerPool pool) throws InterruptedException {
+		List<Integer> seen = Collections.synchronizedList(new ArrayList<>());
+		CountDownLatch done = new CountDownLatch(200);
+		for (int i = 0; i < 200; i++) {
+			int value = i;
+			pool.submit("same-image", () -> {
+				seen.add(value);
+				done.countDown();
+			});
+		}
+
+		assertTrue(done.await(10, TimeUnit.SECONDS));
+		for (int i = 0; i < 200; i++) {
+			assertEquals(i, seen.get(i));
+		}
+	}
+
+	@Test
+	void reportsSaturationAndDrains() throws InterruptedException {
+		CountDownLatch release = new CountDownLatch(1);
+		for (int i = 0; i < 8; i++) {
+			pool.submit("image-" + i, () -> {
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			});
+		}
+
+		assertTrue(pool.isSaturated());
+		release.countDown();
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+		while (pool.getInFlight() > 0 && System.nanoTime() < deadline) {
+			Thread.sleep(5);
+		}
+		assertFalse(pool.isSaturated());
+		assertEquals(0, pool.getInFlight());
+	}
+}
@@ -0,0 +1,45 @@
+package com.ge.imageprocessorconsumer.consumer;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RetryBackoffTests {
+
+	@Test
+	void growsExponentiallyUpToTheCap() {
+		RetryBackoff backoff = new RetryBackoff(5, 1000, 10, 60000, 0, List.of(60000L, 1000L, 10000L), "retry");
+
+		assertEquals(1000, backoff.delayFor(1));
+		assertEquals(10000, backoff.delayFor(2));
+		assertEquals(60000, backoff.delayFor(3));
+		assertEquals(60000, backoff.delayFor(4));
+		assertEquals(List.of("retry-1s", "retry-10s", "retry-60s"), backoff.getTierTopics());
+	}
+
+	@Test
+	void jitterStaysWithinBounds() {
+		RetryBackoff backoff = new RetryBackoff(3, 1000, 2, 60000, 0.2, List.of(1000L), "retry");
+
+		for (int i = 0; i < 1000; i++) {
+			long delay = backoff.delayFor(2);
+			assertTrue(delay >= 1600 && delay <= 2400, "delay " + delay);
+		}
+	}
+
+	@Test
+	void picksShortestCoveringTier() {
+		RetryBackoff backoff = new RetryBackoff(3, 1000, 10, 60000, 0, List.of(1000L, 10000L, 60000L), "retry");
+
+		assertEquals(0, backoff.tierFor(800));
+		assertEquals(1, backoff.tierFor(1200));
+		assertEquals(2, backoff.tierFor(60000));
+		assertEquals(2, backoff.tierFor(90000));
+		assertTrue(backoff.canRetry(2));
+		assertFalse(backoff.canRetry(3));
+	}
+}
@@ -0,0 +1,37 @@
+package com.ge.imageprocessorconsumer.imaging;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ComputeGateTests {
+
+	@Test
+	void runsNoMoreWorkAtOnceThanItHasPermits() throws InterruptedException {
+		ComputeGate gate = new ComputeGate(2);
+		AtomicInteger running = new AtomicInteger();
+		AtomicInteger peak = new AtomicInteger();
+		ExecutorService callers = Executors.newFixedThreadPool(8);
+		for (int i = 0; i < 32; i++) {
+			callers.execute(() -> gate.run(() -> {
+				peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+				try {
+					Thread.sleep(5);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				running.decrementAndGet();
+			}));
+		}
+		callers.shutdown();
+		assertTrue(callers.awaitTermination(10, TimeUnit.SECONDS));
+
+		assertEquals(2, peak.get());
+	}
+}
@@ -0,0 +1,54 @@
+package com.ge.imageprocessorconsumer.imaging;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class GrayscaleKernelTests {
+
+	private final RowBandExecutor bands = new RowBandExecutor(4);
+	private final GrayscaleKernel kernel = new GrayscaleKernel(bands);
+
+	@AfterEach
+	void shutdown() {
+		bands.shutdown();
+	}
+
+	@Test
+	void appliesFixedPointLumaWeights() {
+		int[] types = {BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_INT_ARGB, BufferedImage.TYPE_3BYTE_BGR,
+				BufferedImage.TYPE_4BYTE_ABGR, BufferedImage.TYPE_USHORT_565_RGB};
+		for (int type : types) {
+			BufferedImage source = new BufferedImage(600, 400, type);
+			source.setRGB(10, 20, 0xFF0000F8);
+			source.setRGB(599, 399, 0xFFFFFFFF);
+
+			BufferedImage bt601 = kernel.apply(source, null, GrayscaleKernel.Mode.FAST, GrayscaleKernel.Weights.BT601);
+			BufferedImage bt709 = kernel.apply(source, null, GrayscaleKernel.Mode.FAST, GrayscaleKernel.Weights.BT709);
+
+			assertEquals(BufferedImage.TYPE_BYTE_GRAY, bt601.getType());
+			assertEquals(28, gray(bt601, 10, 20), "type " + type);
+			assertEquals(18, gray(bt709, 10, 20), "type " + type);
+			assertEquals(255, gray(bt601, 599, 399), "type " + type);
+			assertEquals(0, gray(bt601, 0, 0), "type " + type);
+		}
+	}
+
+	@Test
+	void reusesMatchingDestination() {
+		BufferedImage source = new BufferedImage(300, 300, BufferedImage.TYPE_3BYTE_BGR);
+		BufferedImage destination = new BufferedImage(300, 300, BufferedImage.TYPE_BYTE_GRAY);
+
+		assertSame(destination, kernel.apply(source, destination, GrayscaleKernel.Mode.FAST, GrayscaleKernel.Weights.BT601));
+		assertSame(destination, kernel.apply(source, destination, GrayscaleKernel.Mode.COLOR_ACCURATE, GrayscaleKernel.Weights.BT601));
+	}
+
+	private static int gray(BufferedImage image, int x, int y) {
+		return ((DataBufferByte) image.getRaster().getDataBuffer()).getData()[y * image.getWidth() + x] & 0xFF;
+	}
+}
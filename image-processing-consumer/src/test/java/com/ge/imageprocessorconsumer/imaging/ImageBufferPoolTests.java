@@ -0,0 +1,105 @@
+package com.ge.imageprocessorconsumer.imaging;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ImageBufferPoolTests {
+
+	private final ImageBufferPool pool = new ImageBufferPool(1 << 24);
+
+	@Test
+	void roundsUpToQuarterPowerOfTwoClasses() {
+		assertEquals(1024, ImageBufferPool.sizeClass(10));
+		assertEquals(1280, ImageBufferPool.sizeClass(1025));
+		assertEquals(1536, ImageBufferPool.sizeClass(1500));
+		assertEquals(2048, ImageBufferPool.sizeClass(2048));
+		assertEquals(1_048_576, ImageBufferPool.sizeClass(1_000_000));
+	}
+
+	@Test
+	void reusesReleasedArraysOfTheSameClass() {
+		int[] first = pool.acquireInts(500 * 400);
+		pool.release(first);
+
+		assertSame(first, pool.acquireInts(500 * 396));
+		assertEquals(1, pool.getOutstanding());
+	}
+
+	@Test
+	void rejectsDoubleRelease() {
+		byte[] array = pool.acquireBytes(5000);
+		pool.release(array);
+
+		assertThrows(IllegalStateException.class, () -> pool.release(array));
+		assertThrows(IllegalStateException.class, () -> pool.release(new byte[5120]));
+	}
+
+	@Test
+	void scopeImagesAreStandardTypesReleasedOnClose() {
+		BufferedImage rgb;
+		try (ImageBufferPool.Scope scope = pool.scope()) {
+			rgb = scope.argbImage(300, 200, false);
+			BufferedImage argb = scope.argbImage(300, 200, true);
+			BufferedImage gray = scope.grayImage(300, 200);
+
+			assertEquals(BufferedImage.TYPE_INT_RGB, rgb.getType());
+			assertEquals(BufferedImage.TYPE_INT_ARGB, argb.getType());
+			assertEquals(BufferedImage.TYPE_BYTE_GRAY, gray.getType());
+			assertTrue(ImageBufferPool.isPooled(gray));
+			assertEquals(3, pool.getOutstanding());
+		}
+		assertEquals(0, pool.getOutstanding());
+		assertFalse(ImageBufferPool.isPooled(new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB)));
+	}
+
+	@Test
+	void encodeBufferGrowsAcrossPooledArrays() {
+		byte[] data = new byte[10_000];
+		for (int i = 0; i < data.length; i++) {
+			data[i] = (byte) i;
+		}
+		try (ImageBufferPool.EncodeBuffer out = pool.encodeBuffer(100)) {
+			out.write(data, 0, 3000);
+			out.write(data, 3000, 7000);
+
+			assertArrayEquals(data, out.toByteArray());
+			assertEquals(1, pool.getOutstanding());
+		}
+		assertEquals(0, pool.getOutstanding());
+	}
+
+	@Test
+	void pooledResizeMatchesUnpooled() {
+		RowBandExecutor bands = new RowBandExecutor(1);
+		BufferedImage source = new BufferedImage(640, 480, BufferedImage.TYPE_INT_ARGB);
+		for (int y = 0; y < 480; y++) {
+			for (int x = 0; x < 640; x++) {
+				source.setRGB(x, y, (x * 7 + y) << 24 | x << 16 | y << 8 | (x ^ y));
+			}
+		}
+		ResizeOptions options = new ResizeOptions(150, 150, ResampleFilter.LANCZOS, ResizeMode.FILL, false);
+		BufferedImage expected = new ResizeEngine(bands).resize(source, options);
+		ResizeEngine pooled = new ResizeEngine(bands, pool);
+		try {
+			for (int run = 0; run < 2; run++) {
+				// The second run gets arrays holding the first run's data
+				try (ImageBufferPool.Scope scope = pool.scope()) {
+					BufferedImage actual = pooled.resize(source, options, scope);
+					assertArrayEquals(expected.getRGB(0, 0, 150, 150, null, 0, 150),
+							actual.getRGB(0, 0, 150, 150, null, 0, 150));
+				}
+			}
+			assertEquals(0, pool.getOutstanding());
+		} finally {
+			bands.shutdown();
+		}
+	}
+}
@@ -0,0 +1,210 @@
+package com.ge.imageprocessorconsumer.imaging;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ResizeEngineTests {
+
+	private final RowBandExecutor bands = new RowBandExecutor(4);
+	private final ResizeEngine engine = new ResizeEngine(bands);
+
+	@AfterEach
+	void shutdown() {
+		bands.shutdown();
+	}
+
+	@Test
+	void fitPreservesAspectRatio() {
+		BufferedImage source = solid(2000, 1000, BufferedImage.TYPE_3BYTE_BGR, Color.RED);
+		BufferedImage resized = engine.resize(source, options(500, 500, ResizeMode.FIT));
+
+		assertEquals(500, resized.getWidth());
+		assertEquals(250, resized.getHeight());
+		assertEquals(Color.RED.getRGB(), resized.getRGB(250, 125));
+	}
+
+	@Test
+	void pyramidHasALevelPerSizeLargestFirst() {
+		BufferedImage source = solid(1024, 512, BufferedImage.TYPE_INT_RGB, Color.RED);
+		Map<Integer, BufferedImage> levels = engine.pyramid(source, List.of(64, 256, 128),
+				options(1000, 1000, ResizeMode.FIT), ImageBufferPool.disabled().scope());
+
+		assertEquals(List.of(256, 128, 64), List.copyOf(levels.keySet()));
+		for (Map.Entry<Integer, BufferedImage> level : levels.entrySet()) {
+			assertEquals(level.getKey(), level.getValue().getWidth());
+			assertEquals(level.getKey() / 2, level.getValue().getHeight());
+			assertEquals(Color.RED.getRGB(), level.getValue().getRGB(level.getKey() / 2, level.getKey() / 4));
+		}
+	}
+
+	@Test
+	void fillCoversTargetAndCrops() {
+		BufferedImage source = solid(1200, 800, BufferedImage.TYPE_INT_RGB, Color.BLUE);
+		BufferedImage resized = engine.resize(source, options(300, 300, ResizeMode.FILL));
+
+		assertEquals(300, resized.getWidth());
+		assertEquals(300, resized.getHeight());
+	}
+
+	@Test
+	void doesNotUpscaleUnlessAsked() {
+		BufferedImage source = solid(100, 50, BufferedImage.TYPE_INT_RGB, Color.GREEN);
+
+		assertSame(source, engine.resize(source, options(1000, 1000, ResizeMode.FIT)));
+		BufferedImage upscaled = engine.resize(source,
+				new ResizeOptions(1000, 1000, ResampleFilter.BICUBIC, ResizeMode.FIT, true));
+		assertEquals(1000, upscaled.getWidth());
+		assertEquals(500, upscaled.getHeight());
+	}
+
+	@Test
+	void keepsAlphaChannel() {
+		BufferedImage source = new BufferedImage(400, 400, BufferedImage.TYPE_4BYTE_ABGR);
+		BufferedImage resized = engine.resize(source, options(100, 100, ResizeMode.FIT));
+
+		assertEquals(BufferedImage.TYPE_INT_ARGB, resized.getType());
+		assertEquals(0, resized.getRGB(50, 50) >>> 24);
+	}
+
+	@Test
+	void parallelBandsMatchSingleThread() {
+		BufferedImage source = gradient(1500, 1100);
+		RowBandExecutor single = new RowBandExecutor(1);
+		ResizeEngine sequential = new ResizeEngine(single);
+		try {
+			for (ResampleFilter filter : ResampleFilter.values()) {
+				ResizeOptions options = new ResizeOptions(317, 317, filter, ResizeMode.FIT, false);
+				assertArrayEquals(pixels(sequential.resize(source, options)), pixels(engine.resize(source, options)),
+						filter.name());
+			}
+		} finally {
+			single.shutdown();
+		}
+	}
+
+	@Test
+	void stripsMatchWholeImageWithoutBoxHalving() throws IOException {
+		BufferedImage source = gradient(1500, 1100);
+		for (ResampleFilter filter : ResampleFilter.values()) {
+			for (ResizeMode mode : ResizeMode.values()) {
+				// Under a 4x reduction the whole-image path runs the same single filter pass
+				ResizeOptions options = new ResizeOptions(800, 700, filter, mode, false);
+				int[] whole = pixels(engine.resize(source, options));
+				assertArrayEquals(whole, pixels(engine.resize(strips(source), options, 37)), filter + " " + mode);
+				assertArrayEquals(whole, pixels(engine.resize(strips(source), options, 1100)), filter + " " + mode);
+			}
+		}
+	}
+
+	@Test
+	void stripHeightDoesNotChangeLargeReductions() throws IOException {
+		BufferedImage source = gradient(1600, 1200);
+		ResizeOptions options = options(100, 100, ResizeMode.FIT);
+		BufferedImage oneStrip = engine.resize(strips(source), options, 1200);
+
+		assertEquals(100, oneStrip.getWidth());
+		assertEquals(75, oneStrip.getHeight());
+		assertArrayEquals(pixels(oneStrip), pixels(engine.resize(strips(source), options, 16)));
+	}
+
+	@Test
+	void subsamplingKeepsTwiceTheTargetSize() {
+		assertEquals(8, engine.subsampling(1600, 1200, options(100, 100, ResizeMode.FIT), 2.0));
+		// FILL crops the 1600 side to 1200 first
+		assertEquals(6, engine.subsampling(1600, 1200, options(100, 100, ResizeMode.FILL), 2.0));
+		assertEquals(1, engine.subsampling(400, 300, options(300, 300, ResizeMode.FIT), 2.0));
+	}
+
+	@Test
+	void subsampledDecodeKeepsOutputGeometry() throws IOException {
+		BufferedImage source = gradient(1601, 1203);
+		for (ResizeMode mode : ResizeMode.values()) {
+			ResizeOptions options = options(100, 90, mode);
+			BufferedImage whole = engine.resize(source, options);
+			BufferedImage subsampled = engine.resize(strips(source),
+					options, engine.subsampling(1601, 1203, options, 2.0), 40);
+
+			assertEquals(whole.getWidth(), subsampled.getWidth(), mode.name());
+			assertEquals(whole.getHeight(), subsampled.getHeight(), mode.name());
+			int[] expected = pixels(whole);
+			int[] actual = pixels(subsampled);
+			for (int i = 0; i < expected.length; i++) {
+				for (int shift = 8; shift < 24; shift += 8) {
+					// Red and green are smooth ramps, dropping pixels only shifts them by a fraction of a step
+					int difference = ((expected[i] >> shift) & 0xFF) - ((actual[i] >> shift) & 0xFF);
+					assertTrue(Math.abs(difference) <= 2, mode + " pixel " + i + " differs by " + difference);
+				}
+			}
+		}
+	}
+
+	@Test
+	void metadataOverridesDefaults() {
+		ResizeOptions options = options(1000, 1000, ResizeMode.FIT).withOverrides(
+				Map.of(ResizeOptions.WIDTH_KEY, 320, ResizeOptions.HEIGHT_KEY, "240",
+						ResizeOptions.FILTER_KEY, "bilinear", ResizeOptions.MODE_KEY, "fill"));
+
+		assertEquals(320, options.getWidth());
+		assertEquals(240, options.getHeight());
+		assertEquals(ResampleFilter.BILINEAR, options.getFilter());
+		assertEquals(ResizeMode.FILL, options.getMode());
+	}
+
+	private static ResizeOptions options(int width, int height, ResizeMode mode) {
+		return new ResizeOptions(width, height, ResampleFilter.LANCZOS, mode, false);
+	}
+
+	private static BufferedImage solid(int width, int height, int type, Color color) {
+		BufferedImage image = new BufferedImage(width, height, type);
+		Graphics2D g = image.createGraphics();
+		g.setColor(color);
+		g.fillRect(0, 0, width, height);
+		g.dispose();
+		return image;
+	}
+
+	private static BufferedImage gradient(int width, int height) {
+		BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				image.setRGB(x, y, (x * 255 / width) << 16 | (y * 255 / height) << 8 | ((x ^ y) & 0xFF));
+			}
+		}
+		return image;
+	}
+
+	private static StripSource strips(BufferedImage image) {
+		return new StripSource() {
+			@Override
+			public int getWidth() {
+				return image.getWidth();
+			}
+
+			@Override
+			public int getHeight() {
+				return image.getHeight();
+			}
+
+			@Override
+			public BufferedImage readRegion(int x, int y, int width, int height) {
+				return image.getSubimage(x, y, width, height);
+			}
+		};
+	}
+
+	private static int[] pixels(BufferedImage image) {
+		return image.getRGB(0, 0, image.getWidth(), image.getHeight(), null, 0, image.getWidth());
+	}
+}
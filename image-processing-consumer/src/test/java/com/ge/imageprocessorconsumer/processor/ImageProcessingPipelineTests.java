@@ -0,0 +1,303 @@
+package com.ge.imageprocessorconsumer.processor;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ge.imageprocessorconsumer.cache.ResultCache;
+import com.ge.imageprocessorconsumer.codec.ImageCodecs;
+import com.ge.imageprocessorconsumer.exception.ErrorCode;
+import com.ge.imageprocessorconsumer.exception.ImageProcessingException;
+import com.ge.imageprocessorconsumer.imaging.GrayscaleKernel;
+import com.ge.imageprocessorconsumer.imaging.ImageBufferPool;
+import com.ge.imageprocessorconsumer.imaging.ResizeEngine;
+import com.ge.imageprocessorconsumer.imaging.RowBandExecutor;
+import com.ge.imageprocessorconsumer.metrics.PipelineMetrics;
+import com.ge.imageprocessorconsumer.reader.LocalFileStorage;
+import com.ge.model.ImageProcessingMessage;
+import com.ge.model.ProcessStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ImageProcessingPipelineTests {
+
+	private static final String GRAPHS = "variants: large=resize(source), small=resize(source, resize_width=40, resize_height=40), "
+			+ "gray=grayscale(large, grayscale_weights=BT709); thumbs: resized=renditions(source, resize_renditions=50|200|120)";
+
+	@TempDir
+	Path base;
+
+	private RowBandExecutor bands;
+	private ImageProcessingPipeline pipeline;
+	private PipelineMetrics metrics;
+	private ImageBufferPool bufferPool;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		LocalFileStorage storage = new LocalFileStorage();
+		bands = new RowBandExecutor(2);
+		metrics = PipelineMetrics.unpublished();
+		bufferPool = new ImageBufferPool(16 << 20);
+		pipeline = pipeline(storage, new ValidationProcessor(storage, 10, 2000, false, 10000),
+				new ResizeProcessor(storage, new ResizeEngine(bands, bufferPool), 100, 100, "BICUBIC", "FIT", false, true,
+						false, 4_000_000, 32 << 20, true, 2.0, ResizeProcessor.DEFAULT_RENDITIONS),
+				new ResultCache(true, base.resolve("cache-index").toString(), 100), true, GRAPHS);
+		Files.createDirectories(base.resolve("raw"));
+		ImageIO.write(new BufferedImage(400, 300, BufferedImage.TYPE_3BYTE_BGR), "png", base.resolve("raw/img.png").toFile());
+	}
+
+	@AfterEach
+	void tearDown() {
+		bands.shutdown();
+	}
+
+	@Test
+	void recordsStageOutputsThatSurviveSerialization() throws Exception {
+		ImageProcessingMessage message = pipeline.execute(message(ProcessStatus.START));
+
+		assertEquals(ProcessStatus.GRAY_SCALED, message.getStatus());
+		assertTrue(Files.exists(Paths.get(message.getStageOutput(ProcessStatus.RESIZED))));
+		assertTrue(Files.exists(Paths.get(message.getStageOutput(ProcessStatus.GRAY_SCALED))));
+
+		ObjectMapper mapper = new ObjectMapper();
+		ImageProcessingMessage copy = mapper.readValue(mapper.writeValueAsBytes(message), ImageProcessingMessage.class);
+		assertEquals(ProcessStatus.GRAY_SCALED, copy.getStatus());
+		assertEquals(message.getStageOutputs(), copy.getStageOutputs());
+	}
+
+	@Test
+	void decodesOnceAndPersistsIntermediatesOnlyWhenRequired() throws Exception {
+		AtomicInteger decodes = new AtomicInteger();
+		LocalFileStorage storage = new LocalFileStorage() {
+			@Override
+			public BufferedImage readImage(String inputFilePath, String inputFileName) throws IOException {
+				decodes.incrementAndGet();
+				return super.readImage(inputFilePath, inputFileName);
+			}
+		};
+		for (boolean inMemory : new boolean[]{true, false}) {
+			decodes.set(0);
+			ImageProcessingPipeline chain = pipeline(storage, new ValidationProcessor(storage, 10, 2000, false, 10000),
+					new ResizeProcessor(storage, new ResizeEngine(bands), 100, 100, "BICUBIC", "FIT", false, false,
+							false, 4_000_000, 32 << 20, false, 2.0, ResizeProcessor.DEFAULT_RENDITIONS),
+					new ResultCache(false, "", 0), inMemory, "");
+
+			ImageProcessingMessage message = chain.execute(message(ProcessStatus.START));
+
+			assertEquals(ProcessStatus.GRAY_SCALED, message.getStatus());
+			// Validation reads the header only; grayscale reads the resized file back only when not in memory
+			assertEquals(inMemory ? 1 : 2, decodes.get());
+			assertEquals(!inMemory, Files.exists(base.resolve("resized/img.png")));
+			assertTrue(Files.exists(base.resolve("grayscaled/img.png")));
+		}
+	}
+
+	@Test
+	void tiledModeResizesFromStrips() throws Exception {
+		LocalFileStorage storage = new LocalFileStorage();
+		// 50-row strips of the 400x300 source
+		ImageProcessingPipeline tiled = pipeline(storage, new ValidationProcessor(storage, 10, 200, true, 10000),
+				new ResizeProcessor(storage, new ResizeEngine(bands), 100, 100, "BICUBIC", "FIT", false, true,
+						true, 10_000, 400 * 8 * 50, false, 2.0, ResizeProcessor.DEFAULT_RENDITIONS),
+				new ResultCache(false, "", 0), false, "");
+
+		ImageProcessingMessage message = tiled.execute(message(ProcessStatus.START));
+
+		assertEquals(ProcessStatus.GRAY_SCALED, message.getStatus());
+		BufferedImage resized = ImageIO.read(Paths.get(message.getStageOutput(ProcessStatus.RESIZED)).toFile());
+		assertEquals(100, resized.getWidth());
+		assertEquals(75, resized.getHeight());
+	}
+
+	@Test
+	void readsReferencedSourcesInPlace() throws Exception {
+		Path input = Files.createDirectories(base.resolve("input"));
+		Files.move(base.resolve("raw/img.png"), input.resolve("photo.png"));
+		ImageProcessingMessage referenced = message(ProcessStatus.START);
+		referenced.setSourcePath(input.resolve("photo.png").toString());
+
+		ImageProcessingMessage message = pipeline.execute(referenced);
+
+		assertEquals(ProcessStatus.GRAY_SCALED, message.getStatus());
+		assertTrue(Files.exists(Paths.get(message.getStageOutput(ProcessStatus.GRAY_SCALED))));
+	}
+
+	@Test
+	void graphRunsEveryBranchOffOneSource() throws Exception {
+		ImageProcessingMessage variants = message(ProcessStatus.START);
+		variants.setMetadata(new HashMap<>(Map.of(PipelineGraphRunner.PIPELINE_KEY, "variants")));
+
+		ImageProcessingMessage message = pipeline.execute(variants);
+
+		assertEquals(ProcessStatus.GRAY_SCALED, message.getStatus());
+		assertEquals(100, ImageIO.read(Paths.get(message.getStageOutput("large")).toFile()).getWidth());
+		assertEquals(40, ImageIO.read(Paths.get(message.getStageOutput("small")).toFile()).getWidth());
+		assertEquals(base.resolve("gray").resolve("img.png").toString(), message.getStageOutput("gray"));
+		assertEquals(BufferedImage.TYPE_BYTE_GRAY, ImageIO.read(base.resolve("gray/img.png").toFile()).getType());
+		assertEquals(0, bufferPool.getOutstanding());
+		// Completed graphs are not run again
+		assertEquals(message.getStageOutputs(), pipeline.execute(message).getStageOutputs());
+	}
+
+	@Test
+	void renditionsWriteEveryLevelOfThePyramid() throws Exception {
+		ImageProcessingMessage thumbs = message(ProcessStatus.START);
+		thumbs.setMetadata(new HashMap<>(Map.of(PipelineGraphRunner.PIPELINE_KEY, "thumbs")));
+
+		ImageProcessingMessage message = pipeline.execute(thumbs);
+
+		assertEquals(ProcessStatus.GRAY_SCALED, message.getStatus());
+		for (int size : new int[]{200, 120, 50}) {
+			assertEquals(base.resolve("resized").resolve(String.valueOf(size)).resolve("img.png").toString(),
+					message.getStageOutput("resized/" + size));
+			assertEquals(size, ImageIO.read(base.resolve("resized/" + size + "/img.png").toFile()).getWidth());
+		}
+		assertEquals(0, bufferPool.getOutstanding());
+	}
+
+	@Test
+	void rejectsGraphsWithUnknownInputs() {
+		ImageProcessingException e = assertThrows(ImageProcessingException.class,
+				() -> PipelineGraph.parse("broken: gray=grayscale(large), large=resize(source)"));
+		assertEquals(ErrorCode.CONFIGURATION_ERROR, e.getErrorCode());
+	}
+
+	@Test
+	void rejectsImagesAboveTheConfiguredLimit() {
+		LocalFileStorage storage = new LocalFileStorage();
+		ValidationProcessor validation = new ValidationProcessor(storage, 10, 200, false, 10000);
+
+		ImageProcessingException e = assertThrows(ImageProcessingException.class,
+				() -> validation.process(message(ProcessStatus.START)));
+		assertTrue(e.getMessage().contains("10 - 200"), e.getMessage());
+	}
+
+	@Test
+	void graphsRejectSourcesTooLargeToDecodeWhole() {
+		LocalFileStorage storage = new LocalFileStorage();
+		// Tiled validation accepts the 400x300 source, but graphs decode it whole and stop at 200 pixels a side
+		ValidationProcessor validation = new ValidationProcessor(storage, 10, 200, true, 10000);
+		ResizeProcessor resize = new ResizeProcessor(storage, new ResizeEngine(bands), 100, 100, "BICUBIC", "FIT", false,
+				true, true, 4_000_000, 32 << 20, true, 2.0, ResizeProcessor.DEFAULT_RENDITIONS);
+		GrayscaleProcessor grayscale = new GrayscaleProcessor(storage, new GrayscaleKernel(bands), "FAST", "BT601");
+		PipelineGraphRunner runner = new PipelineGraphRunner(validation, resize, grayscale, storage, bufferPool, metrics,
+				GRAPHS, PipelineGraphRunner.CHAIN, 2, 200);
+		ImageProcessingMessage message = message(ProcessStatus.START);
+		message.setMetadata(new HashMap<>(Map.of(PipelineGraphRunner.PIPELINE_KEY, "variants")));
+
+		ImageProcessingException e = assertThrows(ImageProcessingException.class,
+				() -> runner.run(runner.select(message), new ImageProcessingContext(message, true)));
+		runner.shutdown();
+
+		assertEquals(ErrorCode.PROCESSING_FAILURE, e.getErrorCode());
+		assertFalse(Files.exists(base.resolve("large")));
+	}
+
+	@Test
+	void returnsImageBuffersToThePool() throws Exception {
+		pipeline.execute(message(ProcessStatus.START));
+
+		assertEquals(0, bufferPool.getOutstanding());
+		long retained = bufferPool.getRetainedBytes();
+		assertTrue(retained > 0);
+
+		pipeline.execute(message(ProcessStatus.START));
+
+		// The second message reuses the arrays released by the first
+		assertEquals(0, bufferPool.getOutstanding());
+		assertEquals(retained, bufferPool.getRetainedBytes());
+	}
+
+	@Test
+	void timesEachStageSeparately() throws Exception {
+		pipeline.execute(message(ProcessStatus.START));
+
+		for (ProcessStatus stage : new ProcessStatus[]{ProcessStatus.VALIDATED, ProcessStatus.RESIZED, ProcessStatus.GRAY_SCALED}) {
+			assertEquals(1, metrics.getRegistry().get(PipelineMetrics.STAGE_TIMER)
+					.tag("stage", stage.name()).tag("format", "png").tag("outcome", "success").timer().count());
+		}
+	}
+
+	@Test
+	void resumesAfterLastVerifiedStage() throws Exception {
+		ImageProcessingMessage done = pipeline.execute(message(ProcessStatus.START));
+		ImageProcessingMessage retry = message(ProcessStatus.RESIZED);
+		retry.setStageOutputs(done.getStageOutputs());
+		retry.getStageOutputs().remove(ProcessStatus.GRAY_SCALED.name());
+
+		assertEquals(ProcessStatus.RESIZED, pipeline.resumeStatus(retry));
+
+		Files.delete(Paths.get(retry.getStageOutput(ProcessStatus.RESIZED)));
+		assertEquals(ProcessStatus.VALIDATED, pipeline.resumeStatus(retry));
+
+		ImageProcessingMessage result = pipeline.execute(retry);
+		assertEquals(ProcessStatus.GRAY_SCALED, result.getStatus());
+		assertNotNull(result.getStageOutput(ProcessStatus.RESIZED));
+	}
+
+	@Test
+	void linksCachedOutputsForDuplicateContent() throws Exception {
+		ImageProcessingMessage first = message(ProcessStatus.START);
+		first.setContentHash("abc123");
+		pipeline.execute(first);
+
+		Files.copy(base.resolve("raw/img.png"), base.resolve("raw/copy.png"));
+		ImageProcessingMessage duplicate = message(ProcessStatus.START);
+		duplicate.setImageId("copy");
+		duplicate.setContentHash("abc123");
+		ImageProcessingMessage result = pipeline.execute(duplicate);
+
+		assertEquals(ProcessStatus.GRAY_SCALED, result.getStatus());
+		assertEquals(base.resolve("grayscaled/copy.png").toString(), result.getStageOutput(ProcessStatus.GRAY_SCALED));
+		assertTrue(Files.isSameFile(Paths.get(first.getStageOutput(ProcessStatus.GRAY_SCALED)),
+				Paths.get(result.getStageOutput(ProcessStatus.GRAY_SCALED))) || Files.mismatch(
+				Paths.get(first.getStageOutput(ProcessStatus.GRAY_SCALED)),
+				Paths.get(result.getStageOutput(ProcessStatus.GRAY_SCALED))) == -1);
+
+		Files.delete(base.resolve("grayscaled/img.png"));
+		Files.delete(base.resolve("grayscaled/copy.png"));
+		ImageProcessingMessage afterEviction = message(ProcessStatus.START);
+		afterEviction.setContentHash("abc123");
+		assertEquals(ProcessStatus.GRAY_SCALED, pipeline.execute(afterEviction).getStatus());
+		assertTrue(Files.exists(base.resolve("grayscaled/img.png")));
+	}
+
+	@Test
+	void startsFromBeginningWithoutStatus() throws Exception {
+		assertEquals(ProcessStatus.START, pipeline.resumeStatus(message(null)));
+	}
+
+	private ImageProcessingPipeline pipeline(LocalFileStorage storage, ValidationProcessor validation,
+											 ResizeProcessor resize, ResultCache cache, boolean inMemory, String graphs) {
+		GrayscaleProcessor grayscale = new GrayscaleProcessor(storage, new GrayscaleKernel(bands), "FAST", "BT601");
+		PipelineGraphRunner graphRunner = new PipelineGraphRunner(validation, resize, grayscale, storage, bufferPool,
+				metrics, graphs, PipelineGraphRunner.CHAIN, 2, 2000);
+		return new ImageProcessingPipeline(validation, resize, grayscale, graphRunner, storage, cache, Optional.empty(),
+				metrics, bufferPool, ImageCodecs.defaults(), inMemory);
+	}
+
+	private ImageProcessingMessage message(ProcessStatus status) {
+		ImageProcessingMessage message = new ImageProcessingMessage();
+		message.setImageId("img");
+		message.setImageFormat("png");
+		message.setS3Path(base.toString());
+		message.setStatus(status);
+		return message;
+	}
+}
@@ -0,0 +1,115 @@
+package com.ge.imageprocessorconsumer.reader;
+
+import com.ge.imageprocessorconsumer.codec.ImageCodecs;
+import com.ge.imageprocessorconsumer.imaging.ImageBufferPool;
+import com.ge.imageprocessorconsumer.metrics.PipelineMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CachingFileStorageTests {
+
+	@TempDir
+	Path dir;
+
+	@Test
+	void servesRepeatedReadsUntilTheFileChanges() throws IOException {
+		ImageIO.write(new BufferedImage(50, 40, BufferedImage.TYPE_3BYTE_BGR), "png", dir.resolve("a.png").toFile());
+		CachingFileStorage storage = new CachingFileStorage(new LocalFileStorage(), "local", 1 << 20, 1 << 20,
+				PipelineMetrics.unpublished(), ImageCodecs.defaults());
+
+		BufferedImage first = storage.readImage(dir.toString(), "a.png");
+		assertSame(first, storage.readImage(dir.toString(), "a.png"));
+		assertEquals(1, storage.imageStats().hitCount());
+
+		Files.setLastModifiedTime(dir.resolve("a.png"), FileTime.fromMillis(System.currentTimeMillis() + 5000));
+		assertNotSame(first, storage.readImage(dir.toString(), "a.png"));
+		assertEquals(50, storage.probeImage(dir.toString(), "a.png").getWidth());
+	}
+
+	@Test
+	void losslessWritesAreReadBackWithoutDecoding() throws IOException {
+		CachingFileStorage storage = new CachingFileStorage(new LocalFileStorage(), "local", 1 << 20, 1 << 20,
+				PipelineMetrics.unpublished(), ImageCodecs.defaults());
+		BufferedImage image = new BufferedImage(20, 20, BufferedImage.TYPE_BYTE_GRAY);
+
+		storage.writeImage(image, dir.toString(), "b.png", "png");
+		assertSame(image, storage.readImage(dir.toString(), "b.png"));
+
+		storage.writeImage(image, dir.toString(), "c.jpg", "jpg");
+		assertNotSame(image, storage.readImage(dir.toString(), "c.jpg"));
+	}
+
+	@Test
+	void boundsDecodedImagesByPixelBytes() throws IOException {
+		// Each 100x100 INT image weighs 40000 bytes, so at most two fit
+		CachingFileStorage storage = new CachingFileStorage(new LocalFileStorage(), "local", 100_000, 1 << 20,
+				PipelineMetrics.unpublished(), ImageCodecs.defaults());
+		for (int i = 0; i < 5; i++) {
+			storage.writeImage(new BufferedImage(100, 100, BufferedImage.TYPE_INT_RGB), dir.toString(), i + ".png", "png");
+		}
+
+		assertTrue(storage.imageBytes() <= 100_000, "cached bytes: " + storage.imageBytes());
+		assertTrue(storage.imageStats().evictionCount() >= 3);
+	}
+
+	@Test
+	void timesStorageCallsApartFromDecodeAndEncode() throws IOException {
+		PipelineMetrics metrics = PipelineMetrics.unpublished();
+		ImageCodecs codecs = ImageCodecs.defaults(metrics);
+		LocalFileStorage local = new LocalFileStorage(codecs, ImageBufferPool.disabled(), 1 << 20, 4, false);
+		CachingFileStorage storage = new CachingFileStorage(new MeteredFileStorage(local, "local", metrics),
+				"local", 1 << 20, 1 << 20, metrics, codecs);
+
+		storage.writeImage(new BufferedImage(30, 30, BufferedImage.TYPE_3BYTE_BGR), dir.toString(), "d.jpg", "jpg");
+		storage.readImage(dir.toString(), "d.jpg");
+		Files.setLastModifiedTime(dir.resolve("d.jpg"), FileTime.fromMillis(System.currentTimeMillis() + 5000));
+		storage.readImage(dir.toString(), "d.jpg");
+
+		MeterRegistry registry = metrics.getRegistry();
+		assertEquals(1, registry.get(PipelineMetrics.CODEC_TIMER).tag("operation", "encode").timer().count());
+		assertEquals(2, registry.get(PipelineMetrics.CODEC_TIMER).tag("operation", "decode").timer().count());
+		assertEquals(1, registry.get(PipelineMetrics.STORAGE_TIMER).tag("operation", "write_image").timer().count());
+		assertEquals(2, registry.get(PipelineMetrics.STORAGE_TIMER).tag("operation", "open").timer().count());
+	}
+
+	@Test
+	void readsThroughTheDelegateWithoutAnEncodedCache() throws IOException {
+		ImageIO.write(new BufferedImage(60, 40, BufferedImage.TYPE_3BYTE_BGR), "png", dir.resolve("f.png").toFile());
+		PipelineMetrics metrics = PipelineMetrics.unpublished();
+		LocalFileStorage mapped = new LocalFileStorage(ImageCodecs.defaults(), ImageBufferPool.disabled(), 64, 4, false);
+		CachingFileStorage storage = new CachingFileStorage(new MeteredFileStorage(mapped, "local", metrics),
+				"local", 1 << 20, 0, metrics, ImageCodecs.defaults());
+
+		assertEquals(60, storage.readImage(dir.toString(), "f.png").getWidth());
+
+		MeterRegistry registry = metrics.getRegistry();
+		assertEquals(1, registry.get(PipelineMetrics.STORAGE_TIMER).tag("operation", "read_image").timer().count());
+		assertEquals(0, registry.find(PipelineMetrics.STORAGE_TIMER).tag("operation", "open").timers().size());
+		assertEquals(0, storage.encodedBytes());
+	}
+
+	@Test
+	void decodesFilesLargerThanTheEncodedCacheFromTheStream() throws IOException {
+		ImageIO.write(new BufferedImage(200, 200, BufferedImage.TYPE_3BYTE_BGR), "bmp", dir.resolve("e.bmp").toFile());
+		PipelineMetrics metrics = PipelineMetrics.unpublished();
+		CachingFileStorage storage = new CachingFileStorage(new MeteredFileStorage(new LocalFileStorage(), "local", metrics),
+				"local", 1 << 20, 1024, metrics, ImageCodecs.defaults());
+
+		assertEquals(200, storage.readImage(dir.toString(), "e.bmp").getWidth());
+
+		assertEquals(0, storage.encodedBytes());
+	}
+}
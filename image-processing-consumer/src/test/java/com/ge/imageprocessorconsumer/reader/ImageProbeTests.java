@@ -0,0 +1,75 @@
+package com.ge.imageprocessorconsumer.reader;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ImageProbeTests {
+
+	private final LocalFileStorage storage = new LocalFileStorage();
+
+	@TempDir
+	Path folder;
+
+	@Test
+	void readsDimensionsAndLayoutFromHeader() throws IOException {
+		ImageIO.write(new BufferedImage(640, 480, BufferedImage.TYPE_4BYTE_ABGR), "png", folder.resolve("a.png").toFile());
+
+		ImageMetadata metadata = storage.probeImage(folder.toString(), "a.png");
+
+		assertEquals("png", metadata.getFormat());
+		assertEquals(640, metadata.getWidth());
+		assertEquals(480, metadata.getHeight());
+		assertEquals(4, metadata.getBands());
+		assertTrue(metadata.hasAlpha());
+	}
+
+	@Test
+	void detectsFormatFromMagicBytesNotExtension() throws IOException {
+		ImageIO.write(new BufferedImage(30, 20, BufferedImage.TYPE_3BYTE_BGR), "jpg", folder.resolve("b.png").toFile());
+
+		ImageMetadata metadata = storage.probeImage(folder.toString(), "b.png");
+
+		assertEquals("jpg", metadata.getFormat());
+		assertEquals(30, metadata.getWidth());
+	}
+
+	@Test
+	void rejectsUnknownSignature() throws IOException {
+		Files.writeString(folder.resolve("c.jpg"), "not an image at all");
+
+		assertThrows(IOException.class, () -> storage.probeImage(folder.toString(), "c.jpg"));
+	}
+
+	@Test
+	void regionReaderSubsamplesWhileDecoding() throws IOException {
+		BufferedImage source = new BufferedImage(97, 61, BufferedImage.TYPE_INT_RGB);
+		for (int y = 0; y < source.getHeight(); y++) {
+			for (int x = 0; x < source.getWidth(); x++) {
+				source.setRGB(x, y, (x * 2) << 16 | (y * 4) << 8 | (x + y));
+			}
+		}
+		ImageIO.write(source, "png", folder.resolve("c.png").toFile());
+
+		try (ImageRegionReader reader = ImageRegionReader.open(storage.openImageStream(folder.toString(), "c.png"))) {
+			BufferedImage region = reader.readRegion(5, 7, 90, 50, 3);
+
+			assertEquals(30, region.getWidth());
+			assertEquals(17, region.getHeight());
+			for (int y = 0; y < region.getHeight(); y++) {
+				for (int x = 0; x < region.getWidth(); x++) {
+					assertEquals(source.getRGB(5 + x * 3, 7 + y * 3), region.getRGB(x, y));
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,90 @@
+package com.ge.imageprocessorconsumer.reader;
+
+import com.ge.imageprocessorconsumer.codec.ImageCodecs;
+import com.ge.imageprocessorconsumer.imaging.ImageBufferPool;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.stream.ImageInputStream;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class LocalFileStorageTests {
+
+	@TempDir
+	Path folder;
+
+	@Test
+	void readsSmallFilesIntoBuffersAndLargeOnesMapped() throws IOException {
+		BufferedImage source = gradient(120, 80);
+		LocalFileStorage buffered = storage(1 << 20);
+		LocalFileStorage mapped = storage(64);
+		buffered.writeImage(source, folder.toString(), "a.png", "png");
+
+		for (LocalFileStorage storage : List.of(buffered, mapped)) {
+			BufferedImage image = storage.readImage(folder.toString(), "a.png");
+			assertEquals(120, image.getWidth());
+			assertEquals(source.getRGB(97, 55), image.getRGB(97, 55));
+		}
+	}
+
+	@Test
+	void replacesFilesWithoutLeavingTemporaryOnes() throws IOException {
+		LocalFileStorage storage = storage(1 << 20);
+		storage.writeImage(gradient(300, 200), folder.toString(), "a.png", "png");
+		storage.writeImage(gradient(30, 20), folder.toString(), "a.png", "png");
+
+		assertEquals(30, storage.readImage(folder.toString(), "a.png").getWidth());
+		try (Stream<Path> files = Files.list(folder)) {
+			assertEquals(List.of(folder.resolve("a.png")), files.toList());
+		}
+	}
+
+	@Test
+	void mappedStreamsSeekLikeFileStreams() throws IOException {
+		byte[] bytes = new byte[1000];
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = (byte) i;
+		}
+		Files.write(folder.resolve("raw.bin"), bytes);
+
+		try (ImageInputStream stream = storage(64).openImageStream(folder.toString(), "raw.bin")) {
+			assertEquals(1000, stream.length());
+			stream.seek(998);
+			assertEquals((byte) 998, stream.readByte());
+			byte[] tail = new byte[4];
+			assertEquals(1, stream.read(tail));
+			assertEquals(-1, stream.read());
+			stream.seek(256);
+			assertEquals(0x00010203, stream.readInt());
+		}
+	}
+
+	@Test
+	void rejectsUndecodableFiles() throws IOException {
+		Files.writeString(folder.resolve("c.png"), "not an image at all");
+
+		assertThrows(IOException.class, () -> storage(1 << 20).readImage(folder.toString(), "c.png"));
+	}
+
+	private static LocalFileStorage storage(int mmapThreshold) {
+		return new LocalFileStorage(ImageCodecs.defaults(), new ImageBufferPool(1 << 20), mmapThreshold, 2, false);
+	}
+
+	private static BufferedImage gradient(int width, int height) {
+		BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				image.setRGB(x, y, (x * 2) << 16 | (y * 3) << 8 | (x + y) & 0xff);
+			}
+		}
+		return image;
+	}
+}
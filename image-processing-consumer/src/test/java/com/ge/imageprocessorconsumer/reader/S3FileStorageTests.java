@@ -0,0 +1,174 @@
+package com.ge.imageprocessorconsumer.reader;
+
+import com.ge.imageprocessorconsumer.codec.EncodeOptions;
+import com.ge.imageprocessorconsumer.codec.ImageCodecs;
+import com.ge.imageprocessorconsumer.imaging.ComputeGate;
+import com.ge.imageprocessorconsumer.imaging.ImageBufferPool;
+import com.ge.imageprocessorconsumer.metrics.PipelineMetrics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.http.nio.netty.NettyNioAsyncHttpClient;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class S3FileStorageTests {
+
+	private static final String BUCKET = "images";
+
+	private StubS3Server server;
+	private S3AsyncClient client;
+	private DirectBufferPool bufferPool;
+	private final ImageBufferPool imageBuffers = new ImageBufferPool(1 << 24);
+
+	@BeforeEach
+	void setUp() throws IOException {
+		server = new StubS3Server();
+		client = S3AsyncClient.builder()
+				.region(Region.US_EAST_1)
+				.endpointOverride(server.endpoint())
+				.forcePathStyle(true)
+				.credentialsProvider(StaticCredentialsProvider.create(AwsBasicCredentials.create("key", "secret")))
+				.httpClient(NettyNioAsyncHttpClient.builder().maxConcurrency(4).build())
+				.build();
+		// Small parts so that a test image spans several of them
+		bufferPool = new DirectBufferPool(64 * 1024, 2);
+	}
+
+	@AfterEach
+	void tearDown() {
+		client.close();
+		server.close();
+	}
+
+	@Test
+	void smallImageIsWrittenWithSinglePut() throws IOException {
+		S3FileStorage storage = storage(65536);
+		BufferedImage image = new BufferedImage(40, 30, BufferedImage.TYPE_INT_RGB);
+
+		storage.writeImage(image, "out", "small.png", "png");
+
+		assertEquals(0, server.completedMultipartUploads());
+		assertTrue(storage.exists("out", "small.png"));
+		assertFalse(storage.exists("out", "missing.png"));
+		BufferedImage read = storage.readImage("out", "small.png");
+		assertEquals(40, read.getWidth());
+		assertEquals(30, read.getHeight());
+		assertEquals(bufferPool.getCapacity(), bufferPool.getAvailable());
+	}
+
+	@Test
+	void largeImageIsStreamedInParts() throws IOException {
+		S3FileStorage storage = storage(65536);
+		BufferedImage image = noise(400, 300);
+
+		storage.writeImage(image, "out", "large.png", "png");
+
+		assertEquals(1, server.completedMultipartUploads());
+		assertTrue(server.uploadedParts() > 2, "parts: " + server.uploadedParts());
+		BufferedImage stored = ImageIO.read(new ByteArrayInputStream(server.object(BUCKET, "out/large.png")));
+		assertArrayEquals(image.getRGB(0, 0, 400, 300, null, 0, 400), stored.getRGB(0, 0, 400, 300, null, 0, 400));
+		BufferedImage read = storage.readImage("out", "large.png");
+		assertEquals(image.getRGB(123, 45), read.getRGB(123, 45));
+		assertEquals(bufferPool.getCapacity(), bufferPool.getAvailable());
+		assertEquals(0, imageBuffers.getOutstanding());
+	}
+
+	@Test
+	void uploadsABatchConcurrently() throws IOException {
+		S3FileStorage storage = storage(65536);
+		AtomicInteger running = new AtomicInteger();
+		AtomicInteger peak = new AtomicInteger();
+		server.onRequest(() -> {
+			peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+			try {
+				Thread.sleep(200);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} finally {
+				running.decrementAndGet();
+			}
+		});
+		List<FileStorage.ImageFile> files = new ArrayList<>();
+		for (int size : new int[]{100, 80, 60, 40}) {
+			files.add(new FileStorage.ImageFile(noise(size, size), "out/" + size, "level.png", "png",
+					EncodeOptions.none()));
+		}
+
+		storage.writeImages(files);
+
+		assertTrue(peak.get() > 1, "uploads ran one at a time");
+		for (int size : new int[]{100, 80, 60, 40}) {
+			assertEquals(size, ImageIO.read(new ByteArrayInputStream(server.object(BUCKET, "out/" + size + "/level.png")))
+					.getWidth());
+		}
+		assertEquals(0, imageBuffers.getOutstanding());
+	}
+
+	@Test
+	void holdsNoComputePermitWhileWaitingOnS3() throws IOException {
+		ComputeGate gate = new ComputeGate(1);
+		S3FileStorage storage = new S3FileStorage(client, bufferPool, imageBuffers, BUCKET, 65536,
+				new ImageCodecs("fast", 75, false, 1, "SUB", 80, PipelineMetrics.unpublished(), gate));
+		AtomicInteger blocked = new AtomicInteger();
+		server.onRequest(() -> {
+			try {
+				CompletableFuture.runAsync(() -> gate.run(() -> { })).get(5, TimeUnit.SECONDS);
+			} catch (Exception e) {
+				blocked.incrementAndGet();
+			}
+		});
+
+		storage.writeImage(noise(400, 300), "out", "gated.png", "png");
+		assertEquals(400, storage.readImage("out", "gated.png").getWidth());
+
+		assertEquals(0, blocked.get(), "requests served while the storage held the only permit");
+	}
+
+	@Test
+	void probeFallsBackToFullObjectWhenHeaderExceedsRange() throws IOException {
+		storage(65536).writeImage(noise(64, 48), "raw", "img.png", "png");
+
+		ImageMetadata ranged = storage(65536).probeImage("raw", "img.png");
+		ImageMetadata truncated = storage(16).probeImage("raw", "img.png");
+
+		assertEquals("png", ranged.getFormat());
+		assertEquals(64, ranged.getWidth());
+		assertEquals(48, truncated.getHeight());
+		assertThrows(IOException.class, () -> storage(65536).probeImage("raw", "none.png"));
+	}
+
+	private S3FileStorage storage(int probeRangeBytes) {
+		return new S3FileStorage(client, bufferPool, imageBuffers, BUCKET, probeRangeBytes, ImageCodecs.defaults());
+	}
+
+	private static BufferedImage noise(int width, int height) {
+		BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		Random random = new Random(7);
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				image.setRGB(x, y, random.nextInt(0x1000000));
+			}
+		}
+		return image;
+	}
+}
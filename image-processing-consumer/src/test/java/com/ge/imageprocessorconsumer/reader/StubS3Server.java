@@ -0,0 +1,234 @@
+package com.ge.imageprocessorconsumer.reader;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Minimal S3-compatible server for tests: path-style object PUT/GET/HEAD with byte ranges and multipart uploads.
+ * Signatures are not checked.
+ */
+class StubS3Server implements AutoCloseable {
+
+	private final HttpServer server;
+	private final ExecutorService handlers = Executors.newCachedThreadPool();
+	private final Map<String, byte[]> objects = new ConcurrentHashMap<>();
+	private final Map<String, Map<Integer, byte[]>> uploads = new ConcurrentHashMap<>();
+	private final AtomicInteger completedMultipartUploads = new AtomicInteger();
+	private final AtomicInteger uploadedParts = new AtomicInteger();
+	private final AtomicInteger abortedUploads = new AtomicInteger();
+	private volatile Runnable onRequest = () -> { };
+
+	StubS3Server() throws IOException {
+		server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		server.createContext("/", this::handle);
+		// Requests are handled concurrently, as S3 would
+		server.setExecutor(handlers);
+		server.start();
+	}
+
+	URI endpoint() {
+		return URI.create("http://localhost:" + server.getAddress().getPort());
+	}
+
+	byte[] object(String bucket, String key) {
+		return objects.get(bucket + "/" + key);
+	}
+
+	int completedMultipartUploads() {
+		return completedMultipartUploads.get();
+	}
+
+	int uploadedParts() {
+		return uploadedParts.get();
+	}
+
+	int abortedUploads() {
+		return abortedUploads.get();
+	}
+
+	/**
+	 * Runs {@code hook} on the handling thread before each request is handled, while the client waits for it.
+	 */
+	void onRequest(Runnable hook) {
+		onRequest = hook;
+	}
+
+	@Override
+	public void close() {
+		server.stop(0);
+		handlers.shutdownNow();
+	}
+
+	private void handle(HttpExchange exchange) throws IOException {
+		try (exchange) {
+			onRequest.run();
+			String path = exchange.getRequestURI().getPath().substring(1);
+			Map<String, String> query = query(exchange.getRequestURI().getRawQuery());
+			String method = exchange.getRequestMethod();
+			if (method.equals("POST") && query.containsKey("uploads")) {
+				String uploadId = UUID.randomUUID().toString();
+				uploads.put(uploadId, new TreeMap<>());
+				String[] bucketAndKey = path.split("/", 2);
+				xml(exchange, 200, "<InitiateMultipartUploadResult><Bucket>" + bucketAndKey[0] + "</Bucket><Key>"
+						+ bucketAndKey[1] + "</Key><UploadId>" + uploadId + "</UploadId></InitiateMultipartUploadResult>");
+			} else if (method.equals("PUT") && query.containsKey("uploadId")) {
+				int partNumber = Integer.parseInt(query.get("partNumber"));
+				byte[] part = body(exchange);
+				uploads.get(query.get("uploadId")).put(partNumber, part);
+				uploadedParts.incrementAndGet();
+				exchange.getResponseHeaders().add("ETag", etag(part));
+				exchange.sendResponseHeaders(200, -1);
+			} else if (method.equals("POST") && query.containsKey("uploadId")) {
+				body(exchange);
+				ByteArrayOutputStream assembled = new ByteArrayOutputStream();
+				for (byte[] part : uploads.remove(query.get("uploadId")).values()) {
+					assembled.write(part);
+				}
+				objects.put(path, assembled.toByteArray());
+				completedMultipartUploads.incrementAndGet();
+				xml(exchange, 200, "<CompleteMultipartUploadResult><ETag>\"done\"</ETag></CompleteMultipartUploadResult>");
+			} else if (method.equals("DELETE") && query.containsKey("uploadId")) {
+				uploads.remove(query.get("uploadId"));
+				abortedUploads.incrementAndGet();
+				exchange.sendResponseHeaders(204, -1);
+			} else if (method.equals("PUT")) {
+				byte[] object = body(exchange);
+				objects.put(path, object);
+				exchange.getResponseHeaders().add("ETag", etag(object));
+				exchange.sendResponseHeaders(200, -1);
+			} else if (method.equals("GET") || method.equals("HEAD")) {
+				get(exchange, path, method.equals("HEAD"));
+			} else {
+				exchange.sendResponseHeaders(405, -1);
+			}
+		}
+	}
+
+	private void get(HttpExchange exchange, String path, boolean head) throws IOException {
+		byte[] data = objects.get(path);
+		if (data == null) {
+			if (head) {
+				exchange.sendResponseHeaders(404, -1);
+			} else {
+				xml(exchange, 404, "<Error><Code>NoSuchKey</Code><Message>Not found</Message></Error>");
+			}
+			return;
+		}
+		int from = 0;
+		int to = data.length - 1;
+		int status = 200;
+		String range = exchange.getRequestHeaders().getFirst("Range");
+		if (range != null && range.startsWith("bytes=")) {
+			String[] bounds = range.substring(6).split("-");
+			from = Integer.parseInt(bounds[0]);
+			to = Math.min(to, Integer.parseInt(bounds[1]));
+			status = 206;
+			exchange.getResponseHeaders().add("Content-Range", "bytes " + from + "-" + to + "/" + data.length);
+		}
+		exchange.getResponseHeaders().add("ETag", etag(data));
+		exchange.getResponseHeaders().add("Content-Type", "application/octet-stream");
+		if (head) {
+			exchange.getResponseHeaders().add("Content-Length", Integer.toString(data.length));
+			exchange.sendResponseHeaders(status, -1);
+			return;
+		}
+		exchange.sendResponseHeaders(status, to - from + 1);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(data, from, to - from + 1);
+		}
+	}
+
+	/**
+	 * The SDK checks single-part ETags against the MD5 of what it sent.
+	 */
+	private static String etag(byte[] data) {
+		try {
+			return "\"" + HexFormat.of().formatHex(MessageDigest.getInstance("MD5").digest(data)) + "\"";
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static void xml(HttpExchange exchange, int status, String body) throws IOException {
+		byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().add("Content-Type", "application/xml");
+		exchange.sendResponseHeaders(status, bytes.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(bytes);
+		}
+	}
+
+	/**
+	 * Request body with the aws-chunked framing of streaming signatures removed.
+	 */
+	private static byte[] body(HttpExchange exchange) throws IOException {
+		String sha = exchange.getRequestHeaders().getFirst("x-amz-content-sha256");
+		String encoding = exchange.getRequestHeaders().getFirst("Content-Encoding");
+		boolean chunked = (sha != null && sha.startsWith("STREAMING-"))
+				|| (encoding != null && encoding.contains("aws-chunked"));
+		try (InputStream in = exchange.getRequestBody()) {
+			if (!chunked) {
+				return in.readAllBytes();
+			}
+			DataInputStream data = new DataInputStream(in);
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			while (true) {
+				String header = line(data);
+				int size = Integer.parseInt(header.split(";")[0].trim(), 16);
+				if (size == 0) {
+					return out.toByteArray();
+				}
+				byte[] chunk = new byte[size];
+				data.readFully(chunk);
+				out.write(chunk);
+				line(data);
+			}
+		}
+	}
+
+	private static String line(InputStream in) throws IOException {
+		StringBuilder line = new StringBuilder();
+		int c;
+		while ((c = in.read()) != -1 && c != '\n') {
+			if (c != '\r') {
+				line.append((char) c);
+			}
+		}
+		return line.toString();
+	}
+
+	private static Map<String, String> query(String rawQuery) {
+		Map<String, String> query = new HashMap<>();
+		if (rawQuery == null) {
+			return query;
+		}
+		for (String pair : rawQuery.split("&")) {
+			int eq = pair.indexOf('=');
+			String name = eq < 0 ? pair : pair.substring(0, eq);
+			String value = eq < 0 ? "" : URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8);
+			query.put(name, value);
+		}
+		return query;
+	}
+}
@@ -0,0 +1,35 @@
+package com.ge.imageproducer.config;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Threads that copy submitted images into the raw folder, off the request threads. At most
+ * {@code producer.copy.queue-capacity} copies wait for one of the {@code producer.copy.threads} threads; further
+ * submissions are rejected and answered with 503 rather than queued without bound.
+ */
+@Configuration
+public class SubmissionConfig {
+
+    @Bean(destroyMethod = "shutdown")
+    @Qualifier("image-copy-executor")
+    public ExecutorService imageCopyExecutor(@Value("${producer.copy.threads:8}") int threads,
+                                             @Value("${producer.copy.queue-capacity:1000}") int queueCapacity) {
+        AtomicInteger count = new AtomicInteger();
+        return new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "image-copy-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+}
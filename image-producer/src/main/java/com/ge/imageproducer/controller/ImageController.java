@@ -1,116 +1,121 @@
 package com.ge.imageproducer.controller;
 
 
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ge.imageproducer.model.BulkSubmissionReport;
 import com.ge.imageproducer.model.ImageProcessRequest;
-import com.ge.model.ImageProcessingMessage;
-import com.ge.model.ProcessStatus;
+import com.ge.imageproducer.service.ImageSubmissionService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
-import java.time.ZoneOffset;
-import java.time.ZonedDateTime;
-import java.time.format.DateTimeFormatter;
-import java.util.UUID;
-
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Stream;
+
+/**
+ * Accepts image submissions without holding a request thread: the image is brought into the raw folder on the
+ * {@code image-copy-executor}, then published, and the response is sent once Kafka has acknowledged the message.
+ * A submission is answered with 202 and its job id (the image id) only after the broker has it; failures are
+ * reported to the caller instead of being dropped.
+ * <p>
+ * {@code /images/bulk} submits many images in one request, from an NDJSON manifest of {@link ImageProcessRequest}
+ * lines or from every file under a folder of the input folder, and answers with a {@link BulkSubmissionReport}.
+ */
 @RestController
 @RequestMapping("/images")
 public class ImageController {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(ImageController.class);
 
+    public static final String NDJSON = "application/x-ndjson";
 
-    private static final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss 'UTC'");
-
-    @Autowired
-    private KafkaTemplate<String, ImageProcessingMessage> kafkaTemplate;
+    private final ImageSubmissionService submissionService;
 
-    @Value("${kafka.topic.name}")
-    private String topic;
+    private final ObjectMapper objectMapper;
 
-    @Value("${local.baseFilePath}")
-    private String basePath;
+    @Autowired
+    public ImageController(ImageSubmissionService submissionService, ObjectMapper objectMapper) {
+        this.submissionService = submissionService;
+        this.objectMapper = objectMapper;
+    }
 
     @PostMapping
-    public ResponseEntity<String> submitImage(@RequestBody ImageProcessRequest msg) {
+    public CompletableFuture<ResponseEntity<String>> submitImage(@RequestBody ImageProcessRequest msg) {
         LOGGER.info("Received message: {} and FileFormat: {}", msg.getFileName(), msg.getFileFormat());
-        String imageId = UUID.randomUUID().toString();
-        String newFileName = imageId + "." + msg.getFileFormat();
-
+        CompletableFuture<String> submitted;
         try {
-            copyImage("/input", msg.getFileName(), "/raw", newFileName);
-        } catch (IOException e) {
-            return ResponseEntity.internalServerError().body("Invalid Input file");
+            submitted = submissionService.submit(msg);
+        } catch (RejectedExecutionException e) {
+            LOGGER.warn("Rejecting {}: too many submissions pending", msg.getFileName());
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .body("{\"message\":\"Too many pending submissions\"}"));
         }
-        ImageProcessingMessage inputMsg = new ImageProcessingMessage();
-        inputMsg.setImageId(imageId);
-        inputMsg.setS3Path(basePath);
-        inputMsg.setImageFormat(msg.getFileFormat());
-        inputMsg.setStatus(ProcessStatus.START);
-        inputMsg.setRetryCount(0);
-        String timestamp = currentTimeStamp();
-        inputMsg.setDeliveryTimestamp(timestamp);
-        kafkaTemplate.send(topic, inputMsg.getImageId(), inputMsg);
-        return ResponseEntity.ok("{\"message\":\"Message Sent\"}");
+        return submitted
+                .thenApply(imageId -> ResponseEntity.accepted()
+                        .body("{\"message\":\"Message Sent\",\"job_id\":\"" + imageId + "\"}"))
+                .exceptionally(error -> {
+                    if (ImageSubmissionService.unwrap(error) instanceof UncheckedIOException) {
+                        return ResponseEntity.internalServerError().body("Invalid Input file");
+                    }
+                    return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body("{\"message\":\"Message not sent\"}");
+                });
     }
 
-    private String currentTimeStamp() {
-        ZonedDateTime nowUtcZoned = ZonedDateTime.now(ZoneOffset.UTC);
-        return nowUtcZoned.format(formatter);
+    /**
+     * Submits the images listed in the request body, one JSON object per line, reading the body as it arrives.
+     */
+    @PostMapping(path = "/bulk", consumes = NDJSON)
+    public ResponseEntity<BulkSubmissionReport> submitManifest(InputStream body) throws IOException {
+        try (MappingIterator<ImageProcessRequest> manifest =
+                     objectMapper.readerFor(ImageProcessRequest.class).readValues(body)) {
+            BulkSubmissionReport report = submissionService.submitAll(manifest);
+            return ResponseEntity.ok(report);
+        }
     }
 
     /**
-     * Copies an image file from a source location to a destination location,
-     * optionally changing its name.
-     *
-     * @param sourceFolderPath     The path to the folder containing the source image.
-     * @param sourceFileName       The name of the source image file.
-     * @param destinationFolderPath The path to the folder where the image will be copied.
-     * @param newFileName          The new name for the copied image file.
-     * @throws IOException If an I/O error occurs during the copy operation.
+     * Submits every file under {@code prefix}, a folder relative to the input folder, listing it as it goes. The
+     * format of each file is taken from its extension.
      */
-    public void copyImage(String sourceFolderPath, String sourceFileName,
-                          String destinationFolderPath, String newFileName) throws IOException {
-
-        // Construct the full path for the source file
-        Path sourcePath = Paths.get(sourceFolderPath, sourceFileName);
-
-        // Construct the full path for the destination file
-        Path destinationPath = Paths.get(destinationFolderPath, newFileName);
-
-        // Ensure the source file exists
-        if (!Files.exists(sourcePath)) {
-            LOGGER.error("Source file does not exist: {}", sourcePath.toAbsolutePath());
-            throw new IOException("Source file does not exist: " + sourcePath.toAbsolutePath());
+    @PostMapping(path = "/bulk", params = "prefix")
+    public ResponseEntity<BulkSubmissionReport> submitFolder(@RequestParam("prefix") String prefix) throws IOException {
+        Path input = Paths.get(submissionService.getInputFolder()).toAbsolutePath().normalize();
+        Path folder = input.resolve(prefix).normalize();
+        if (!folder.startsWith(input) || !Files.isDirectory(folder)) {
+            return ResponseEntity.badRequest().build();
         }
-
-        // Ensure the destination directory exists, create if not
-        if (!Files.exists(destinationPath.getParent())) {
-            LOGGER.info("Destination directory does not exist. Creating: {}", destinationPath.getParent().toAbsolutePath());
-            Files.createDirectories(destinationPath.getParent());
+        try (Stream<Path> files = Files.walk(folder)) {
+            Iterator<ImageProcessRequest> requests = files
+                    .filter(Files::isRegularFile)
+                    .map(file -> request(input.relativize(file)))
+                    .iterator();
+            return ResponseEntity.ok(submissionService.submitAll(requests));
         }
+    }
 
-        try {
-            // Copy the file from source to destination
-            // StandardCopyOption.REPLACE_EXISTING will overwrite the destination file if it already exists.
-            Files.copy(sourcePath, destinationPath, StandardCopyOption.REPLACE_EXISTING);
-            LOGGER.info("Image copied successfully from {}, to: {}, in {} ",
-                    sourcePath.getFileName(), destinationPath.getFileName(),destinationPath.getParent().toAbsolutePath());
-        } catch (IOException e) {
-            LOGGER.error("Error copying image: {}", e.getMessage(), e);
-            throw e;
-        }
+    private static ImageProcessRequest request(Path relative) {
+        String fileName = relative.toString();
+        int dot = fileName.lastIndexOf('.');
+        ImageProcessRequest request = new ImageProcessRequest();
+        request.setFileName(fileName);
+        request.setFileFormat(dot < 0 ? "" : fileName.substring(dot + 1).toLowerCase(Locale.ROOT));
+        return request;
     }
 }
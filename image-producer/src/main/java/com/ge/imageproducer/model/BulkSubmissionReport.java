@@ -0,0 +1,29 @@
+package com.ge.imageproducer.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+/**
+ * Outcome of a bulk submission, with one item per manifest line or file in the order they were read.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record BulkSubmissionReport(
+        @JsonProperty("total") int total,
+        @JsonProperty("accepted") int accepted,
+        @JsonProperty("failed") int failed,
+        @JsonProperty("elapsed_ms") long elapsedMs,
+        @JsonProperty("error") String error,
+        @JsonProperty("items") List<Item> items) {
+
+    /**
+     * One image: its job id once Kafka has the message, or why it was not submitted.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record Item(
+            @JsonProperty("file_name") String fileName,
+            @JsonProperty("job_id") String jobId,
+            @JsonProperty("error") String error) {
+    }
+}
@@ -0,0 +1,206 @@
+package com.ge.imageproducer.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Brings submitted images into the raw folder without writing their bytes again where the filesystem allows it.
+ * <p>
+ * In {@link IngestMode#AUTO} the file is hard-linked when the input and raw folders are on the same filesystem,
+ * and copied otherwise. A filesystem that refuses links (different mounts of one device, NFS exports without link
+ * support) is remembered, so later files are copied straight away. Copies go through
+ * {@code FileChannel.transferTo}, which lets the kernel copy the file without passing it through the JVM and, where
+ * the filesystem supports it, without moving the bytes at all.
+ * <p>
+ * A linked or referenced file shares its content with the input file, so input files must be replaced rather than
+ * rewritten in place once submitted.
+ */
+@Component
+public class ImageIngester {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ImageIngester.class);
+
+    private static final int HASH_BUFFER_BYTES = 1 << 20;
+
+    private static final ThreadLocal<ByteBuffer> HASH_BUFFERS =
+            ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(HASH_BUFFER_BYTES));
+
+    /**
+     * A file brought into the raw folder: where it came from, where it is now and how it got there.
+     */
+    public record Ingested(Path source, Path location, IngestMode mode, String contentHash) {
+    }
+
+    private final IngestMode mode;
+
+    private final boolean hash;
+
+    /**
+     * Whether links work on a filesystem, keyed by its device id.
+     */
+    private final Map<Object, Boolean> linkable = new ConcurrentHashMap<>();
+
+    @Autowired
+    public ImageIngester(@Value("${producer.ingest.mode:AUTO}") String mode,
+                         @Value("${producer.ingest.hash:true}") boolean hash) {
+        this.mode = IngestMode.fromName(mode);
+        this.hash = hash;
+    }
+
+    public IngestMode getMode() {
+        return mode;
+    }
+
+    /**
+     * Brings {@code source} to {@code target}, or only checks it exists in {@link IngestMode#REFERENCE}, and hashes
+     * the result unless {@code producer.ingest.hash} is off.
+     *
+     * @return the ingested file, with the hex SHA-256 of its bytes or {@code null} when hashing is off
+     * @throws IOException if the source does not exist or could not be brought in; nothing is left at the target
+     */
+    public Ingested ingest(Path source, Path target) throws IOException {
+        if (!Files.isRegularFile(source)) {
+            LOGGER.error("Source file does not exist: {}", source.toAbsolutePath());
+            throw new NoSuchFileException("Source file does not exist: " + source.toAbsolutePath());
+        }
+        if (mode != IngestMode.REFERENCE) {
+            Files.createDirectories(target.getParent());
+        }
+        IngestMode used = switch (mode) {
+            case AUTO -> linkable(source, target) ? link(source, target) : copy(source, target);
+            case MOVE -> move(source, target);
+            case LINK -> link(source, target);
+            case COPY -> copy(source, target);
+            case REFERENCE -> IngestMode.REFERENCE;
+        };
+        Path location = used == IngestMode.REFERENCE ? source.toAbsolutePath() : target;
+        try {
+            String contentHash = hash ? sha256(location) : null;
+            LOGGER.info("Image {} brought in as {} ({})", source.getFileName(), location, used);
+            return new Ingested(source, location, used, contentHash);
+        } catch (IOException e) {
+            discard(new Ingested(source, location, used, null));
+            throw e;
+        }
+    }
+
+    /**
+     * Undoes {@link #ingest} for an image that will not be processed: a moved file goes back to the input folder,
+     * a link or copy is deleted, and a reference is left alone.
+     */
+    public void discard(Ingested image) {
+        try {
+            switch (image.mode()) {
+                case MOVE -> Files.move(image.location(), image.source());
+                case LINK, COPY -> Files.deleteIfExists(image.location());
+                default -> {
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Failed to undo ingestion of {}: {}", image.location(), e.getMessage());
+        }
+    }
+
+    private boolean linkable(Path source, Path target) {
+        Object sourceDevice = device(source.toAbsolutePath().getParent());
+        if (!sourceDevice.equals(device(target.toAbsolutePath().getParent()))) {
+            return false;
+        }
+        return linkable.getOrDefault(sourceDevice, Boolean.TRUE);
+    }
+
+    private IngestMode link(Path source, Path target) throws IOException {
+        try {
+            Files.createLink(target, source);
+            return IngestMode.LINK;
+        } catch (NoSuchFileException e) {
+            throw e;
+        } catch (UnsupportedOperationException | FileSystemException e) {
+            if (linkable.put(device(source.toAbsolutePath().getParent()), Boolean.FALSE) == null) {
+                LOGGER.warn("Cannot link {} into {}, copying instead: {}", source.getParent(), target.getParent(),
+                        e.getMessage());
+            }
+            return copy(source, target);
+        }
+    }
+
+    private static IngestMode move(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            // Across filesystems: the source is only removed once the copy is complete
+            copy(source, target);
+            Files.delete(source);
+        }
+        return IngestMode.MOVE;
+    }
+
+    private static IngestMode copy(Path source, Path target) throws IOException {
+        try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(target, StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+                     StandardOpenOption.TRUNCATE_EXISTING)) {
+            long size = in.size();
+            long position = 0;
+            while (position < size) {
+                position += in.transferTo(position, size - position, out);
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(target);
+            throw e;
+        }
+        return IngestMode.COPY;
+    }
+
+    private static String sha256(Path file) throws IOException {
+        MessageDigest digest = sha256();
+        ByteBuffer buffer = HASH_BUFFERS.get();
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer.clear();
+            while (in.read(buffer) >= 0) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * Identifies the filesystem of {@code directory}: its device id where the platform exposes it, otherwise the
+     * directory itself.
+     */
+    private static Object device(Path directory) {
+        try {
+            return Files.getAttribute(directory, "unix:dev");
+        } catch (UnsupportedOperationException | IllegalArgumentException | IOException e) {
+            return directory;
+        }
+    }
+}
@@ -0,0 +1,258 @@
+package com.ge.imageproducer.service;
+
+import com.ge.imageproducer.model.BulkSubmissionReport;
+import com.ge.imageproducer.model.ImageProcessRequest;
+import com.ge.model.ImageProcessingMessage;
+import com.ge.model.ProcessStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+/**
+ * Brings submitted images from the input folder into the raw folder through the {@link ImageIngester} and
+ * announces them on the input topic.
+ * <p>
+ * Ingestion runs on the {@code image-copy-executor} and sends are not waited for one by one: the returned futures
+ * complete when Kafka acknowledges the message. An image whose message could not be sent is discarded from the raw
+ * folder again, as nothing would ever process it.
+ * <p>
+ * In {@link IngestMode#REFERENCE} the message carries the location of the input file under
+ * {@code producer.ingest.reference-folder}, the input folder as the consumer sees it.
+ * <p>
+ * Requested file names are resolved against the input folder and rejected when they lead out of it, and formats
+ * must be plain extensions, so a request can neither read nor write files elsewhere.
+ */
+@Service
+public class ImageSubmissionService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ImageSubmissionService.class);
+
+    private static final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss 'UTC'");
+
+    private static final int PROGRESS_INTERVAL = 1000;
+
+    private static final Pattern FILE_FORMAT = Pattern.compile("[A-Za-z0-9]{1,10}");
+
+    private final KafkaTemplate<String, ImageProcessingMessage> kafkaTemplate;
+
+    private final ExecutorService copyExecutor;
+
+    private final ImageIngester ingester;
+
+    private final String topic;
+
+    private final String basePath;
+
+    private final String inputFolder;
+
+    private final Path inputRoot;
+
+    private final String rawFolder;
+
+    private final String referenceFolder;
+
+    private final int bulkMaxInFlight;
+
+    @Autowired
+    public ImageSubmissionService(KafkaTemplate<String, ImageProcessingMessage> kafkaTemplate,
+                                  @Qualifier("image-copy-executor") ExecutorService copyExecutor,
+                                  ImageIngester ingester,
+                                  @Value("${kafka.topic.name}") String topic,
+                                  @Value("${local.baseFilePath}") String basePath,
+                                  @Value("${producer.input-folder:/input}") String inputFolder,
+                                  @Value("${producer.raw-folder:/raw}") String rawFolder,
+                                  @Value("${producer.ingest.reference-folder:${producer.input-folder:/input}}") String referenceFolder,
+                                  @Value("${producer.bulk.max-in-flight:256}") int bulkMaxInFlight) {
+        this.kafkaTemplate = kafkaTemplate;
+        this.copyExecutor = copyExecutor;
+        this.ingester = ingester;
+        this.topic = topic;
+        this.basePath = basePath;
+        this.inputFolder = inputFolder;
+        this.inputRoot = Paths.get(inputFolder).toAbsolutePath().normalize();
+        this.rawFolder = rawFolder;
+        this.referenceFolder = referenceFolder;
+        this.bulkMaxInFlight = bulkMaxInFlight;
+    }
+
+    public String getInputFolder() {
+        return inputFolder;
+    }
+
+    /**
+     * Ingests and publishes one image.
+     *
+     * @return the image id once Kafka has the message; fails with an {@link UncheckedIOException} if the input
+     * could not be ingested, or with the producer's exception if the message was not sent
+     * @throws RejectedExecutionException if too many copies are already waiting
+     */
+    public CompletableFuture<String> submit(ImageProcessRequest request) {
+        return submit(request, copyExecutor);
+    }
+
+    private CompletableFuture<String> submit(ImageProcessRequest request, Executor executor) {
+        String imageId = UUID.randomUUID().toString();
+        return CompletableFuture.supplyAsync(() -> {
+                    try {
+                        Path source = inputFile(request);
+                        return ingester.ingest(source, Paths.get(rawFolder, imageId + "." + request.getFileFormat()));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }, executor)
+                .thenCompose(ingested -> kafkaTemplate.send(topic, imageId, message(imageId, request, ingested))
+                        .whenComplete((result, error) -> {
+                            if (error != null) {
+                                ingester.discard(ingested);
+                            }
+                        }))
+                .handle((result, error) -> {
+                    if (error == null) {
+                        LOGGER.debug("Published {} to {}-{}@{}", imageId, result.getRecordMetadata().topic(),
+                                result.getRecordMetadata().partition(), result.getRecordMetadata().offset());
+                        return imageId;
+                    }
+                    Throwable cause = unwrap(error);
+                    if (!(cause instanceof UncheckedIOException)) {
+                        LOGGER.error("Failed to publish {}: {}", request.getFileName(), cause.getMessage(), cause);
+                    }
+                    throw cause instanceof RuntimeException runtime ? runtime : new CompletionException(cause);
+                });
+    }
+
+    /**
+     * The requested file under the input folder. Names that resolve outside of it, such as {@code ../secret.png} or
+     * an absolute path, are rejected like a missing file.
+     */
+    private Path inputFile(ImageProcessRequest request) throws IOException {
+        String fileName = request.getFileName();
+        String fileFormat = request.getFileFormat();
+        if (fileName == null || fileFormat == null || !FILE_FORMAT.matcher(fileFormat).matches()) {
+            throw new IOException("Invalid file name or format: " + fileName + " (" + fileFormat + ")");
+        }
+        Path file;
+        try {
+            file = inputRoot.resolve(fileName).normalize();
+        } catch (InvalidPathException e) {
+            throw new IOException("Invalid file name: " + fileName, e);
+        }
+        if (!file.startsWith(inputRoot) || file.equals(inputRoot)) {
+            throw new IOException("File is outside the input folder: " + fileName);
+        }
+        return file;
+    }
+
+    /**
+     * Submits every image of the sequence, which is read lazily. At most {@code producer.bulk.max-in-flight}
+     * images are being ingested or awaiting their acknowledgement at a time; the next one is read as soon as one
+     * completes, so sends are pipelined and batched by the producer rather than waited for in turn. When the copy
+     * queue is full, the copy runs on the calling thread instead of failing the item.
+     * <p>
+     * Reading stops at the first entry the sequence cannot produce, such as a malformed manifest line; images
+     * submitted up to then are still completed and reported.
+     */
+    public BulkSubmissionReport submitAll(Iterator<ImageProcessRequest> requests) {
+        long start = System.nanoTime();
+        Semaphore inFlight = new Semaphore(bulkMaxInFlight);
+        List<BulkSubmissionReport.Item> items = new ArrayList<>();
+        AtomicInteger completed = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        String error = null;
+        try {
+            while (requests.hasNext()) {
+                ImageProcessRequest request = requests.next();
+                inFlight.acquireUninterruptibly();
+                int index;
+                synchronized (items) {
+                    index = items.size();
+                    items.add(null);
+                }
+                CompletableFuture<String> submitted;
+                try {
+                    submitted = submit(request, copyExecutor);
+                } catch (RejectedExecutionException e) {
+                    submitted = submit(request, Runnable::run);
+                }
+                submitted.whenComplete((imageId, failure) -> {
+                    BulkSubmissionReport.Item item = failure == null
+                            ? new BulkSubmissionReport.Item(request.getFileName(), imageId, null)
+                            : new BulkSubmissionReport.Item(request.getFileName(), null, unwrap(failure).getMessage());
+                    if (failure != null) {
+                        failed.incrementAndGet();
+                    }
+                    synchronized (items) {
+                        items.set(index, item);
+                    }
+                    int done = completed.incrementAndGet();
+                    if (done % PROGRESS_INTERVAL == 0) {
+                        LOGGER.info("Bulk submission: {} images done, {} failed", done, failed.get());
+                    }
+                    inFlight.release();
+                });
+            }
+        } catch (RuntimeException e) {
+            LOGGER.error("Stopped reading bulk submission: {}", e.getMessage());
+            error = e.getMessage();
+        }
+        // Sends still lingering in the producer's batches go out now rather than after linger.ms
+        kafkaTemplate.flush();
+        inFlight.acquireUninterruptibly(bulkMaxInFlight);
+        inFlight.release(bulkMaxInFlight);
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        LOGGER.info("Bulk submission finished: {} images, {} failed, in {} ms", items.size(), failed.get(), elapsedMs);
+        synchronized (items) {
+            return new BulkSubmissionReport(items.size(), items.size() - failed.get(), failed.get(), elapsedMs, error,
+                    List.copyOf(items));
+        }
+    }
+
+    private ImageProcessingMessage message(String imageId, ImageProcessRequest request, ImageIngester.Ingested ingested) {
+        ImageProcessingMessage inputMsg = new ImageProcessingMessage();
+        inputMsg.setImageId(imageId);
+        inputMsg.setS3Path(basePath);
+        inputMsg.setImageFormat(request.getFileFormat());
+        inputMsg.setContentHash(ingested.contentHash());
+        if (ingested.mode() == IngestMode.REFERENCE) {
+            inputMsg.setSourcePath(Paths.get(referenceFolder).resolve(inputRoot.relativize(ingested.source())).toString());
+        }
+        inputMsg.setStatus(ProcessStatus.START);
+        inputMsg.setRetryCount(0);
+        String timestamp = currentTimeStamp();
+        inputMsg.setDeliveryTimestamp(timestamp);
+        return inputMsg;
+    }
+
+    public static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
+    private String currentTimeStamp() {
+        ZonedDateTime nowUtcZoned = ZonedDateTime.now(ZoneOffset.UTC);
+        return nowUtcZoned.format(formatter);
+    }
+}
@@ -0,0 +1,37 @@
+package com.ge.imageproducer.service;
+
+import java.util.Locale;
+
+/**
+ * How {@link ImageIngester} brings a submitted file into the raw folder.
+ */
+public enum IngestMode {
+    /**
+     * Hard-link where the input and raw folders allow it, otherwise copy. Decided per filesystem and remembered.
+     */
+    AUTO,
+    /**
+     * Move the file out of the input folder; a rename on one filesystem, a copy and delete across filesystems.
+     */
+    MOVE,
+    /**
+     * Hard-link the file into the raw folder, copying where links are not possible.
+     */
+    LINK,
+    /**
+     * Copy the bytes with {@code FileChannel.transferTo}, which leaves the copy to the kernel.
+     */
+    COPY,
+    /**
+     * Leave the file where it is and send its location in the message; nothing is written to the raw folder.
+     */
+    REFERENCE;
+
+    static IngestMode fromName(String name) {
+        try {
+            return valueOf(name.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown ingest mode: " + name, e);
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package com.ge.imageproducer.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ge.imageproducer.model.BulkSubmissionReport;
+import com.ge.imageproducer.model.ImageProcessRequest;
+import com.ge.imageproducer.service.ImageIngester;
+import com.ge.imageproducer.service.ImageSubmissionService;
+import com.ge.model.ImageProcessingMessage;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ImageControllerTests {
+
+	@TempDir
+	Path base;
+
+	@SuppressWarnings("unchecked")
+	private final KafkaTemplate<String, ImageProcessingMessage> kafkaTemplate = mock(KafkaTemplate.class);
+
+	private ExecutorService copyExecutor;
+	private ImageController controller;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		copyExecutor = Executors.newFixedThreadPool(2);
+		Files.createDirectories(base.resolve("input"));
+		Files.write(base.resolve("input").resolve("photo.jpg"), new byte[]{1, 2, 3});
+		controller = controller("AUTO");
+	}
+
+	@AfterEach
+	void tearDown() {
+		copyExecutor.shutdown();
+	}
+
+	@Test
+	void acceptsOnceKafkaAcknowledges() throws Exception {
+		acknowledgeSends();
+
+		ResponseEntity<String> response = controller.submitImage(request("photo.jpg")).get();
+
+		assertEquals(HttpStatus.ACCEPTED, response.getStatusCode());
+		assertTrue(response.getBody().contains("\"job_id\""), response.getBody());
+		try (var raw = Files.list(base.resolve("raw"))) {
+			assertEquals(1, raw.count());
+		}
+	}
+
+	@Test
+	void reportsFailedSendsAndRemovesTheCopy() throws Exception {
+		when(kafkaTemplate.send(eq("input-topic"), anyString(), any(ImageProcessingMessage.class)))
+				.thenReturn(CompletableFuture.failedFuture(new IllegalStateException("broker down")));
+
+		ResponseEntity<String> response = controller.submitImage(request("photo.jpg")).get();
+
+		assertEquals(HttpStatus.SERVICE_UNAVAILABLE, response.getStatusCode());
+		try (var raw = Files.list(base.resolve("raw"))) {
+			assertEquals(0, raw.count());
+		}
+	}
+
+	@Test
+	void missingInputIsAnInvalidFile() throws Exception {
+		ResponseEntity<String> response = controller.submitImage(request("missing.jpg")).get();
+
+		assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, response.getStatusCode());
+	}
+
+	@Test
+	void pathsLeadingOutOfTheInputFolderAreRejected() throws Exception {
+		acknowledgeSends();
+		Files.write(base.resolve("secret.jpg"), new byte[]{9});
+		ImageProcessRequest escapingFormat = request("photo.jpg");
+		escapingFormat.setFileFormat("jpg/../../escaped");
+
+		assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, controller.submitImage(request("../secret.jpg")).get().getStatusCode());
+		assertEquals(HttpStatus.INTERNAL_SERVER_ERROR,
+				controller.submitImage(request(base.resolve("secret.jpg").toString())).get().getStatusCode());
+		assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, controller.submitImage(escapingFormat).get().getStatusCode());
+		assertFalse(Files.exists(base.resolve("raw")));
+		assertTrue(Files.exists(base.resolve("secret.jpg")));
+	}
+
+	@Test
+	void bulkManifestReportsEveryLine() throws Exception {
+		acknowledgeSends();
+		Files.write(base.resolve("input").resolve("second.png"), new byte[]{4, 5});
+		String manifest = "{\"file_name\":\"photo.jpg\",\"file_format\":\"jpg\"}\n"
+				+ "{\"file_name\":\"missing.jpg\",\"file_format\":\"jpg\"}\n"
+				+ "{\"file_name\":\"second.png\",\"file_format\":\"png\"}\n";
+
+		BulkSubmissionReport report = controller.submitManifest(
+				new ByteArrayInputStream(manifest.getBytes(StandardCharsets.UTF_8))).getBody();
+
+		assertEquals(3, report.total());
+		assertEquals(2, report.accepted());
+		assertEquals(1, report.failed());
+		assertEquals("missing.jpg", report.items().get(1).fileName());
+		assertNull(report.items().get(1).jobId());
+		assertNotNull(report.items().get(2).jobId());
+	}
+
+	@Test
+	void bulkFolderSubmitsEveryFileBelowThePrefix() throws Exception {
+		acknowledgeSends();
+		Path batch = Files.createDirectories(base.resolve("input").resolve("night").resolve("a"));
+		for (int i = 0; i < 10; i++) {
+			Files.write(batch.resolve(i + ".jpg"), new byte[]{(byte) i});
+		}
+
+		BulkSubmissionReport report = controller.submitFolder("night").getBody();
+
+		assertEquals(10, report.accepted());
+		try (var raw = Files.list(base.resolve("raw"))) {
+			assertEquals(10, raw.count());
+		}
+		assertEquals(HttpStatus.BAD_REQUEST, controller.submitFolder("../..").getStatusCode());
+	}
+
+	@Test
+	void referencedImagesAreSentWithTheirInputLocation() throws Exception {
+		acknowledgeSends();
+
+		ResponseEntity<String> response = controller("REFERENCE").submitImage(request("photo.jpg")).get();
+
+		assertEquals(HttpStatus.ACCEPTED, response.getStatusCode());
+		assertFalse(Files.exists(base.resolve("raw")));
+		ArgumentCaptor<ImageProcessingMessage> sent = ArgumentCaptor.forClass(ImageProcessingMessage.class);
+		verify(kafkaTemplate).send(eq("input-topic"), anyString(), sent.capture());
+		assertEquals(base.resolve("input").resolve("photo.jpg").toString(), sent.getValue().getSourcePath());
+		assertNotNull(sent.getValue().getContentHash());
+	}
+
+	private ImageController controller(String ingestMode) {
+		ImageSubmissionService service = new ImageSubmissionService(kafkaTemplate, copyExecutor,
+				new ImageIngester(ingestMode, true), "input-topic", base.toString(), base.resolve("input").toString(),
+				base.resolve("raw").toString(), base.resolve("input").toString(), 4);
+		return new ImageController(service, new ObjectMapper());
+	}
+
+	private void acknowledgeSends() {
+		when(kafkaTemplate.send(eq("input-topic"), anyString(), any(ImageProcessingMessage.class)))
+				.thenAnswer(invocation -> {
+					ImageProcessingMessage message = invocation.getArgument(2);
+					RecordMetadata metadata = new RecordMetadata(new TopicPartition("input-topic", 0), 7, 0, 0, 0, 0);
+					return CompletableFuture.completedFuture(new SendResult<>(
+							new ProducerRecord<>("input-topic", message.getImageId(), message), metadata));
+				});
+	}
+
+	private static ImageProcessRequest request(String fileName) {
+		ImageProcessRequest request = new ImageProcessRequest();
+		request.setFileName(fileName);
+		request.setFileFormat("jpg");
+		return request;
+	}
+}
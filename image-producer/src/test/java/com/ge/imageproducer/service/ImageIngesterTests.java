@@ -0,0 +1,73 @@
+package com.ge.imageproducer.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ImageIngesterTests {
+
+	private static final byte[] CONTENT = {1, 2, 3, 4, 5};
+
+	// SHA-256 of CONTENT
+	private static final String CONTENT_HASH = "74f81fe167d99b4cb41d6d0ccda82278caee9f3e2f25d5e5a3936ff3dcec60d0";
+
+	@TempDir
+	Path base;
+
+	private Path source;
+	private Path target;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		source = Files.write(Files.createDirectories(base.resolve("input")).resolve("photo.jpg"), CONTENT);
+		target = base.resolve("raw").resolve("id.jpg");
+	}
+
+	@Test
+	void autoLinksWithinOneFilesystem() throws IOException {
+		ImageIngester.Ingested ingested = new ImageIngester("AUTO", true).ingest(source, target);
+
+		assertEquals(IngestMode.LINK, ingested.mode());
+		assertTrue(Files.isSameFile(source, target));
+		assertEquals(CONTENT_HASH, ingested.contentHash());
+	}
+
+	@Test
+	void copiesTheBytes() throws IOException {
+		ImageIngester.Ingested ingested = new ImageIngester("COPY", true).ingest(source, target);
+
+		assertFalse(Files.isSameFile(source, target));
+		assertArrayEquals(CONTENT, Files.readAllBytes(target));
+		assertEquals(CONTENT_HASH, ingested.contentHash());
+	}
+
+	@Test
+	void discardingAMoveRestoresTheInput() throws IOException {
+		ImageIngester ingester = new ImageIngester("MOVE", false);
+		ImageIngester.Ingested ingested = ingester.ingest(source, target);
+		assertFalse(Files.exists(source));
+
+		ingester.discard(ingested);
+
+		assertArrayEquals(CONTENT, Files.readAllBytes(source));
+		assertFalse(Files.exists(target));
+	}
+
+	@Test
+	void missingSourceLeavesNothingBehind() {
+		assertThrows(NoSuchFileException.class,
+				() -> new ImageIngester("AUTO", true).ingest(base.resolve("input").resolve("none.jpg"), target));
+		assertFalse(Files.exists(target));
+	}
+}
@@ -0,0 +1,90 @@
+package com.ge.imageresizeprocessor.config;
+
+import com.ge.imageprocessorconsumer.codec.ImageCodecs;
+import com.ge.imageprocessorconsumer.imaging.ImageBufferPool;
+import com.ge.imageprocessorconsumer.imaging.ResizeEngine;
+import com.ge.imageprocessorconsumer.imaging.RowBandExecutor;
+import com.ge.imageprocessorconsumer.processor.ResizeProcessor;
+import com.ge.imageprocessorconsumer.reader.LocalFileStorage;
+import com.ge.model.ImageProcessingMessage;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.util.backoff.FixedBackOff;
+
+/**
+ * Wires the consumer's resize stage on its own: the stage reads the raw image, writes the resized file and
+ * marks the message RESIZED. Nothing after resize runs in this service.
+ */
+@Configuration
+public class ResizeWorkerConfig {
+
+    @Bean
+    public ImageCodecs imageCodecs(@Value("${codec.png.encoder:fast}") String pngEncoder,
+                                   @Value("${codec.jpeg.quality:75}") int jpegQuality,
+                                   @Value("${codec.jpeg.optimize-huffman:false}") boolean jpegOptimizeHuffman,
+                                   @Value("${codec.png.compression-level:1}") int pngCompressionLevel,
+                                   @Value("${codec.png.filter:SUB}") String pngFilter,
+                                   @Value("${codec.webp.quality:80}") int webpQuality) {
+        return new ImageCodecs(pngEncoder, jpegQuality, jpegOptimizeHuffman, pngCompressionLevel, pngFilter, webpQuality);
+    }
+
+    @Bean
+    public LocalFileStorage localFileStorage(ImageCodecs imageCodecs, ImageBufferPool imageBufferPool,
+                                             @Value("${storage.local.mmap-threshold-bytes:1048576}") int mmapThreshold,
+                                             @Value("${storage.local.read-buffers:16}") int readBuffers,
+                                             @Value("${storage.local.fsync:false}") boolean fsync) {
+        return new LocalFileStorage(imageCodecs, imageBufferPool, mmapThreshold, readBuffers, fsync);
+    }
+
+    @Bean
+    public RowBandExecutor rowBandExecutor(@Value("${imaging.parallelism:0}") int parallelism) {
+        return new RowBandExecutor(parallelism);
+    }
+
+    @Bean
+    public ImageBufferPool imageBufferPool(@Value("${imaging.buffer-pool.max-bytes:134217728}") long maxBytes) {
+        return new ImageBufferPool(maxBytes);
+    }
+
+    @Bean
+    public ResizeEngine resizeEngine(RowBandExecutor rowBandExecutor, ImageBufferPool imageBufferPool) {
+        return new ResizeEngine(rowBandExecutor, imageBufferPool);
+    }
+
+    @Bean
+    public ResizeProcessor resizeProcessor(LocalFileStorage localFileStorage,
+                                           ResizeEngine resizeEngine,
+                                           @Value("${resize.width:1000}") int width,
+                                           @Value("${resize.height:1000}") int height,
+                                           @Value("${resize.filter:LANCZOS}") String filter,
+                                           @Value("${resize.mode:FIT}") String mode,
+                                           @Value("${resize.upscale:false}") boolean upscale,
+                                           @Value("${pipeline.tiled.enabled:false}") boolean tiled,
+                                           @Value("${pipeline.tiled.threshold-pixels:4000000}") long tiledThresholdPixels,
+                                           @Value("${pipeline.tiled.strip-bytes:33554432}") long stripBytes,
+                                           @Value("${resize.subsampling.enabled:true}") boolean subsampling,
+                                           @Value("${resize.subsampling.min-scale:2.0}") double subsamplingMinScale) {
+        // The next stage runs in another process, so the output is always written
+        return new ResizeProcessor(localFileStorage, resizeEngine, width, height, filter, mode, upscale, true,
+                tiled, tiledThresholdPixels, stripBytes, subsampling, subsamplingMinScale,
+                ResizeProcessor.DEFAULT_RENDITIONS);
+    }
+
+    /**
+     * Retries a failing record in place, then publishes it unchanged to the consumer's DLQ.
+     */
+    @Bean
+    public DefaultErrorHandler resizeErrorHandler(KafkaTemplate<String, ImageProcessingMessage> kafkaTemplate,
+                                                  @Value("${kafka.dlq.topic.name}") String dlqTopic,
+                                                  @Value("${resize.max-attempts:3}") int maxAttempts,
+                                                  @Value("${resize.retry-interval-ms:1000}") long retryIntervalMs) {
+        DeadLetterPublishingRecoverer recoverer = new DeadLetterPublishingRecoverer(kafkaTemplate,
+                (record, e) -> new TopicPartition(dlqTopic, -1));
+        return new DefaultErrorHandler(recoverer, new FixedBackOff(retryIntervalMs, Math.max(0, maxAttempts - 1)));
+    }
+}
@@ -0,0 +1,50 @@
+package com.ge.imageresizeprocessor.consumer;
+
+import com.ge.imageprocessorconsumer.processor.ResizeProcessor;
+import com.ge.model.ImageProcessingMessage;
+import com.ge.model.ProcessStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Service;
+
+/**
+ * Resizes validated images handed off by image-processing-consumer and sends them back downstream as RESIZED.
+ * Instances scale with the partitions of the resize topic, independently of the consumer.
+ */
+@Service
+public class ResizeRequestConsumer {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ResizeRequestConsumer.class);
+
+    private final ResizeProcessor resizeProcessor;
+
+    private final KafkaTemplate<String, ImageProcessingMessage> kafkaTemplate;
+
+    private final String outputTopic;
+
+    @Autowired
+    public ResizeRequestConsumer(ResizeProcessor resizeProcessor,
+                                 KafkaTemplate<String, ImageProcessingMessage> kafkaTemplate,
+                                 @Value("${kafka.resize.output.topic.name}") String outputTopic) {
+        this.resizeProcessor = resizeProcessor;
+        this.kafkaTemplate = kafkaTemplate;
+        this.outputTopic = outputTopic;
+    }
+
+    @KafkaListener(topics = "${kafka.resize.topic.name}", groupId = "${spring.kafka.consumer.group-id}",
+            concurrency = "${kafka.listener.concurrency:1}")
+    public void processMessage(ImageProcessingMessage message) throws Exception {
+        if (message.getStatus() != ProcessStatus.VALIDATED) {
+            LOGGER.warn("Skipping {} in status {}, only validated images are resized", message.getImageId(), message.getStatus());
+            return;
+        }
+        LOGGER.info("Received request to resize: {}", message.getImageId());
+        ImageProcessingMessage resized = resizeProcessor.process(message);
+        // Wait for the broker so the offset is only committed once the result is durable
+        kafkaTemplate.send(outputTopic, resized.getImageId(), resized).get();
+        LOGGER.info("Resized {} and sent it to {}", resized.getImageId(), outputTopic);
+    }
+}
@@ -0,0 +1,77 @@
+package com.ge.imageresizeprocessor.consumer;
+
+import com.ge.model.ImageProcessingMessage;
+import com.ge.model.ProcessStatus;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest(properties = {
+		"spring.kafka.consumer.bootstrap-servers=${spring.embedded.kafka.brokers}",
+		"spring.kafka.producer.bootstrap-servers=${spring.embedded.kafka.brokers}",
+		"resize.width=200",
+		"resize.height=200"
+})
+@EmbeddedKafka(partitions = 1, topics = {"resize-input-topic", "input-topic", "dlq-input-topic"})
+class ResizeRequestConsumerTests {
+
+	@TempDir
+	static Path base;
+
+	@Autowired
+	private KafkaTemplate<String, ImageProcessingMessage> kafkaTemplate;
+
+	@Autowired
+	private EmbeddedKafkaBroker broker;
+
+	@Test
+	void resizesValidatedImagesAndSendsThemDownstream() throws Exception {
+		Files.createDirectories(base.resolve("raw"));
+		ImageIO.write(new BufferedImage(800, 400, BufferedImage.TYPE_3BYTE_BGR), "png", base.resolve("raw/img.png").toFile());
+		ImageProcessingMessage message = new ImageProcessingMessage();
+		message.setImageId("img");
+		message.setImageFormat("png");
+		message.setS3Path(base.toString());
+		message.setStatus(ProcessStatus.VALIDATED);
+
+		Map<String, Object> props = KafkaTestUtils.consumerProps("downstream", "true", broker);
+		props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+		JsonDeserializer<ImageProcessingMessage> valueDeserializer = new JsonDeserializer<>(ImageProcessingMessage.class);
+		valueDeserializer.addTrustedPackages("com.ge.model");
+		try (Consumer<String, ImageProcessingMessage> downstream = new DefaultKafkaConsumerFactory<>(props,
+				new StringDeserializer(), valueDeserializer).createConsumer()) {
+			broker.consumeFromAnEmbeddedTopic(downstream, "input-topic");
+
+			kafkaTemplate.send("resize-input-topic", "img", message).get();
+
+			ConsumerRecord<String, ImageProcessingMessage> record
+					= KafkaTestUtils.getSingleRecord(downstream, "input-topic", Duration.ofSeconds(60));
+			assertEquals(ProcessStatus.RESIZED, record.value().getStatus());
+			String output = record.value().getStageOutput(ProcessStatus.RESIZED);
+			BufferedImage resized = ImageIO.read(Paths.get(output).toFile());
+			assertEquals(200, resized.getWidth());
+			assertEquals(100, resized.getHeight());
+		}
+	}
+}